@@ -0,0 +1,124 @@
+package srs.me.sidesheetdemo;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.NestedScrollView;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+/**
+ * Compares {@code onLayoutChild} of a sheet over a deep tree with the cached nested scrolling
+ * child lookup against a lookup on every pass. Medians per pass are reported as instrumentation
+ * status values and in the log.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SideSheetLookupCostTest {
+
+    private static final String TAG = "SideSheetLookupCost";
+    private static final int DEPTH = 12;
+    private static final int BREADTH = 8;
+    private static final int LAYOUT_COUNT = 200;
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 15;
+
+    @Rule
+    public ActivityTestRule<MainActivity> mActivityRule = new ActivityTestRule<>(MainActivity.class);
+
+    private CoordinatorLayout mParent;
+    private FrameLayout mSheet;
+    private SideSheetBehavior<FrameLayout> mBehavior;
+
+    @Test
+    public void layout_reportsCostOfNestedScrollingLookup() throws Exception {
+        final long[] medians = new long[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                setUpSheet();
+                medians[0] = median(measure(true));
+                medians[1] = median(measure(false));
+            }
+        });
+
+        Bundle results = new Bundle();
+        results.putLong("lookup_layout_median_ns", medians[0]);
+        results.putLong("cached_layout_median_ns", medians[1]);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+        Log.i(TAG, "median onLayoutChild: " + medians[0] + " ns with lookup, " + medians[1]
+                + " ns cached");
+    }
+
+    private void setUpSheet() {
+        MainActivity activity = mActivityRule.getActivity();
+        mParent = new CoordinatorLayout(activity);
+        mSheet = new FrameLayout(activity);
+        mBehavior = new SideSheetBehavior<>();
+        CoordinatorLayout.LayoutParams params = new CoordinatorLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        params.setBehavior(mBehavior);
+        mParent.addView(mSheet, params);
+        // The scrolling child sits last, at the bottom of the tree, so the lookup visits it all
+        addTree(mSheet, DEPTH).addView(new NestedScrollView(activity));
+        mParent.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mParent.layout(0, 0, 1080, 1920);
+    }
+
+    /**
+     * Nanoseconds per {@code onLayoutChild} pass, one sample per batch.
+     */
+    private long[] measure(boolean invalidate) {
+        long[] samples = new long[RUNS];
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < LAYOUT_COUNT; i++) {
+                if (invalidate) {
+                    mBehavior.invalidateNestedScrollingChild();
+                }
+                mBehavior.onLayoutChild(mParent, mSheet, ViewCompat.LAYOUT_DIRECTION_LTR);
+            }
+            if (run >= WARMUP_RUNS) {
+                samples[run - WARMUP_RUNS] = (System.nanoTime() - start) / LAYOUT_COUNT;
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Nests {@code depth} levels of {@link #BREADTH} frames and returns the last one.
+     */
+    private static ViewGroup addTree(ViewGroup root, int depth) {
+        Context context = root.getContext();
+        ViewGroup last = root;
+        for (int level = 0; level < depth; level++) {
+            ViewGroup next = null;
+            for (int i = 0; i < BREADTH; i++) {
+                FrameLayout frame = new FrameLayout(context);
+                frame.addView(new View(context));
+                last.addView(frame);
+                next = frame;
+            }
+            last = next;
+        }
+        return last;
+    }
+
+    private static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,133 @@
+package srs.me.sidesheetdemo;
+
+import android.app.Instrumentation;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the time from {@code show()} to the first frame traversal of the sheet content for
+ * {@link SideSheetDialog} and {@link SideSheetOverlay}. Medians are reported as instrumentation
+ * status values and in the log. The overlay skips creating a window, so it should open at least
+ * as fast; device timing is noisy, so it only fails when the overlay's median is more than
+ * {@link #MAX_OVERLAY_RATIO} times the dialog's.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SideSheetOpenLatencyTest {
+
+    private static final String TAG = "SideSheetOpenLatency";
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 15;
+    private static final float MAX_OVERLAY_RATIO = 1.5f;
+
+    @Rule
+    public ActivityTestRule<MainActivity> mActivityRule = new ActivityTestRule<>(MainActivity.class);
+
+    @Test
+    public void open_overlayIsNotSlowerThanDialog() throws Exception {
+        long dialog = median(measure(false));
+        long overlay = median(measure(true));
+
+        Bundle results = new Bundle();
+        results.putLong("dialog_open_median_ns", dialog);
+        results.putLong("overlay_open_median_ns", overlay);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+        Log.i(TAG, "median open latency: dialog " + TimeUnit.NANOSECONDS.toMicros(dialog)
+                + " us, overlay " + TimeUnit.NANOSECONDS.toMicros(overlay) + " us");
+        assertTrue("overlay median " + overlay + " ns against dialog median " + dialog + " ns",
+                overlay <= dialog * MAX_OVERLAY_RATIO);
+    }
+
+    private long[] measure(boolean overlay) throws Exception {
+        long[] samples = new long[RUNS];
+        for (int i = 0; i < WARMUP_RUNS + RUNS; i++) {
+            long latency = openOnce(overlay);
+            if (i >= WARMUP_RUNS) {
+                samples[i - WARMUP_RUNS] = latency;
+            }
+        }
+        return samples;
+    }
+
+    private long openOnce(final boolean overlay) throws Exception {
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final MainActivity activity = mActivityRule.getActivity();
+        final CountDownLatch drawn = new CountDownLatch(1);
+        final CountDownLatch dismissed = new CountDownLatch(1);
+        final DialogInterface.OnDismissListener dismissListener =
+                new DialogInterface.OnDismissListener() {
+                    @Override
+                    public void onDismiss(DialogInterface dialog) {
+                        dismissed.countDown();
+                    }
+                };
+        final long[] times = new long[2];
+        final Object[] host = new Object[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final View content = new View(activity);
+                content.getViewTreeObserver().addOnPreDrawListener(
+                        new ViewTreeObserver.OnPreDrawListener() {
+                            @Override
+                            public boolean onPreDraw() {
+                                times[1] = System.nanoTime();
+                                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                                drawn.countDown();
+                                return true;
+                            }
+                        });
+                times[0] = System.nanoTime();
+                if (overlay) {
+                    SideSheetOverlay sheet = new SideSheetOverlay(activity);
+                    sheet.setContentView(content);
+                    sheet.setOnDismissListener(dismissListener);
+                    sheet.show();
+                    host[0] = sheet;
+                } else {
+                    SideSheetDialog sheet = new SideSheetDialog(activity);
+                    sheet.setContentView(content);
+                    sheet.setOnDismissListener(dismissListener);
+                    sheet.show();
+                    host[0] = sheet;
+                }
+            }
+        });
+        assertTrue(drawn.await(5, TimeUnit.SECONDS));
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (host[0] instanceof SideSheetOverlay) {
+                    ((SideSheetOverlay) host[0]).dismiss();
+                } else {
+                    ((SideSheetDialog) host[0]).dismiss();
+                }
+            }
+        });
+        // Both slide out before they go away
+        assertTrue(dismissed.await(5, TimeUnit.SECONDS));
+        instrumentation.waitForIdleSync();
+        return times[1] - times[0];
+    }
+
+    private static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
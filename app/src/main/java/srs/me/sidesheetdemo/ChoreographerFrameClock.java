@@ -0,0 +1,63 @@
+package srs.me.sidesheetdemo;
+
+import android.view.Choreographer;
+
+import srs.me.sidesheet.core.FrameCallbackQueue;
+import srs.me.sidesheet.core.FrameClock;
+
+/**
+ * {@link FrameClock} backed by the main thread {@link Choreographer}. All callbacks share a
+ * single vsync registration.
+ */
+final class ChoreographerFrameClock implements FrameClock, Choreographer.FrameCallback {
+
+    private static ChoreographerFrameClock sInstance;
+
+    private final Choreographer mChoreographer;
+    private final FrameCallbackQueue mCallbacks = new FrameCallbackQueue();
+    private boolean mFramePosted;
+
+    private ChoreographerFrameClock() {
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Must be called on the main thread.
+     */
+    static ChoreographerFrameClock getInstance() {
+        if (sInstance == null) {
+            sInstance = new ChoreographerFrameClock();
+        }
+        return sInstance;
+    }
+
+    @Override
+    public long nanoTime() {
+        // Choreographer frame times use the System.nanoTime() time base
+        return System.nanoTime();
+    }
+
+    @Override
+    public void postFrameCallback(Callback callback) {
+        mCallbacks.add(callback);
+        if (!mFramePosted) {
+            mFramePosted = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void removeFrameCallback(Callback callback) {
+        mCallbacks.remove(callback);
+        if (mFramePosted && mCallbacks.isEmpty()) {
+            mFramePosted = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFramePosted = false;
+        mCallbacks.dispatch(frameTimeNanos);
+    }
+}
@@ -1,10 +1,9 @@
 package srs.me.sidesheetdemo;
 
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.view.LayoutInflater;
 import android.view.View;
-import android.view.ViewGroup;
 
 /**
  * @author Sony Raj on 09-07-2017.
@@ -12,16 +11,14 @@ import android.view.ViewGroup;
 
 public class DemoSideSheetDialogFragment extends SideSheetDialogFragment {
 
-    @Nullable
     @Override
-    public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        return inflater.inflate(R.layout.demo_side_sheet,container,false);
+    protected int getContentLayoutResId() {
+        return R.layout.demo_side_sheet;
     }
 
     @Override
-    public void onViewCreated(View view, @Nullable Bundle savedInstanceState) {
-        super.onViewCreated(view, savedInstanceState);
-        view.findViewById(R.id.touch).setOnClickListener(new View.OnClickListener() {
+    protected void onContentInflated(@NonNull View content, @Nullable Bundle savedInstanceState) {
+        content.findViewById(R.id.touch).setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 dismiss();
@@ -4,12 +4,16 @@ import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements SideSheetShellPool.Owner {
+
+    private SideSheetShellPool mShellPool;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        mShellPool = new SideSheetShellPool(this, 0, 2);
+        mShellPool.prewarm(1);
 
         findViewById(R.id.btnShowSideSheet).setOnClickListener(new View.OnClickListener() {
             @Override
@@ -21,4 +25,15 @@ public class MainActivity extends AppCompatActivity {
         });
 
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mShellPool.release();
+    }
+
+    @Override
+    public SideSheetShellPool getSideSheetShellPool() {
+        return mShellPool;
+    }
 }
@@ -1,33 +1,60 @@
 package srs.me.sidesheetdemo;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Region;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.support.annotation.ColorInt;
+import android.support.annotation.IdRes;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
-import android.support.design.widget.BottomSheetBehavior;
+import android.support.annotation.Nullable;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.v4.os.ParcelableCompat;
 import android.support.v4.os.ParcelableCompatCreatorCallbacks;
 import android.support.v4.view.AbsSavedState;
+import android.support.v4.view.GravityCompat;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.NestedScrollingChild;
-import android.support.v4.view.VelocityTrackerCompat;
 import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewPropertyAnimatorListenerAdapter;
+import android.support.v4.view.ViewPropertyAnimatorUpdateListener;
 import android.support.v4.widget.ViewDragHelper;
+import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
-import android.util.TypedValue;
+import android.view.Gravity;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
 import android.view.View;
-import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.WindowManager;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import srs.me.sidesheet.core.DeferredWorkQueue;
+import srs.me.sidesheet.core.DetentSpec;
+import srs.me.sidesheet.core.FrameClock;
+import srs.me.sidesheet.core.FrameStats;
+import srs.me.sidesheet.core.GestureRecorder;
+import srs.me.sidesheet.core.MathUtils;
+import srs.me.sidesheet.core.SettleEngine;
+import srs.me.sidesheet.core.SheetGeometry;
+import srs.me.sidesheet.core.SheetStates;
+import srs.me.sidesheet.core.SpringSettleEngine;
+import srs.me.sidesheet.core.VelocityEstimator;
 
 /**
  * @author Sony Raj on 04-07-2017.
@@ -36,38 +63,109 @@ import java.lang.ref.WeakReference;
 public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavior<V> {
 
 
-    public static final int STATE_DRAGGING = 1;
-    public static final int STATE_SETTLING = 2;
-    public static final int STATE_EXPANDED = 3;
-    public static final int STATE_COLLAPSED = 4;
-    public static final int STATE_HIDDEN = 5;
+    public static final int STATE_DRAGGING = SheetStates.STATE_DRAGGING;
+    public static final int STATE_SETTLING = SheetStates.STATE_SETTLING;
+    public static final int STATE_EXPANDED = SheetStates.STATE_EXPANDED;
+    public static final int STATE_COLLAPSED = SheetStates.STATE_COLLAPSED;
+    public static final int STATE_HIDDEN = SheetStates.STATE_HIDDEN;
+    /**
+     * Resting at one of the detents set with {@link #setDetents(DetentSpec)}; which one is
+     * returned by {@link #getDetent()}.
+     */
+    public static final int STATE_DETENT = SheetStates.STATE_DETENT;
+    public static final int NO_DETENT = SheetStates.NO_DETENT;
     public static final int PEEK_WIDTH_AUTO = -1;
-    private static final float HIDE_THRESHOLD = 0.5f;
-    private static final float HIDE_FRICTION = 0.1f;
-    int mMinOffset;
-    int mMaxOffset;
-    boolean mHideable;
+    /**
+     * The sheet is moved by offsetting its layout bounds.
+     */
+    public static final int MOVEMENT_OFFSET = 0;
+    /**
+     * The sheet keeps a fixed layout at its expanded position and is moved by its translationX,
+     * which only updates the render node instead of invalidating the parent. Unless an engine is
+     * set with {@link #setSettleEngine}, settles run as a property animation of the translation
+     * that needs nothing from the UI thread per frame while no callback or metrics listener is
+     * set. Callbacks still get a slide per frame, read from the translation.
+     */
+    public static final int MOVEMENT_TRANSLATION = 1;
+    private static final int TRANSLATION_SETTLE_DURATION = 250;
+    private static final long DEFAULT_IDLE_WORK_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+    /**
+     * Layers are left alone.
+     */
+    public static final int LAYER_POLICY_NONE = 0;
+    /**
+     * The sheet is rendered into a hardware layer while it is dragged or settling.
+     */
+    public static final int LAYER_POLICY_SHEET = 1;
+    final SheetGeometry mGeometry = new SheetGeometry();
     @SideSheetBehavior.State
     int mState = STATE_COLLAPSED;
+    int mDetent = NO_DETENT;
     ViewDragHelper mViewDragHelper;
-    int mParentWidth;
     WeakReference<V> mViewRef;
     WeakReference<View> mNestedScrollingChildRef;
+    private boolean mNestedScrollingChildValid;
+    private boolean mNestedScrollingChildExplicit;
+    private static final View[] NO_VIEWS = new View[0];
+    // Direct children of the sheet when the lookup ran, dropped when the sheet detaches
+    private View[] mNestedScrollingLookupChildren = NO_VIEWS;
+    private int mNestedScrollingLookupChildCount;
     int mActivePointerId;
     boolean mTouchingScrollingChild;
     private float mMaximumVelocity;
     private int mPeekWidth;
     private boolean mPeekWidthAuto;
     private int mPeekWidthMin;
-    private boolean mSkipCollapsed;
+    private int mPeekRegionId = View.NO_ID;
+    private float mPeekRatio;
+    private boolean mAutoPeekValid;
+    private int mAutoPeekParentWidth;
+    private int mAutoPeekChildWidth;
+    private boolean mAutoPeekFromLeft;
+    private int mAutoPeekWidth;
     private boolean mIgnoreEvents;
     private int mLastNestedScrollDx;
     private boolean mNestedScrolled;
+    private boolean mNestedFlung;
+    private static final SideSheetCallback[] NO_CALLBACKS = new SideSheetCallback[0];
+    private SideSheetCallback[] mCallbacks = NO_CALLBACKS;
     private SideSheetCallback mCallback;
+    private boolean mCoalesceSlide;
+    private boolean mSlidePending;
+    private boolean mSlideFramePosted;
+    private int mPendingSlideLeft;
+    private MetricsListener mMetricsListener;
+    private FrameStats mFrameStats;
+    private GestureRecorder mGestureRecorder;
+    private int[] mRecordPointerIds;
+    private float[] mRecordXs;
+    private float[] mRecordYs;
+    private SettleEngine mSettleEngine = new SpringSettleEngine();
+    private boolean mSettleEngineSet;
+    private FrameClock mFrameClock;
+    private final SettleDriver mSettleDriver = new SettleDriver();
+    @MovementMode
+    private int mMovementMode = MOVEMENT_OFFSET;
+    private boolean mTranslationSettling;
+    private boolean mTranslationSlides;
+    private int mTranslationTargetState;
+    private int mTranslationTargetDetent;
+    @LayerPolicy
+    private int mLayerPolicy = LAYER_POLICY_NONE;
+    private boolean mLayersPromoted;
+    private int mSheetLayerType;
+    private static final int NO_STATE = 0;
+    private int mEnterState = NO_STATE;
+    private boolean mAnimatingOut;
+    private Runnable mExitAction;
+    private boolean mRestoringState;
+    private boolean mRestoreScroll;
+    private int mRestoredScrollX;
+    private int mRestoredScrollY;
     private final ViewDragHelper.Callback mDragCallback = new ViewDragHelper.Callback() {
         @Override
         public boolean tryCaptureView(View child, int pointerId) {
-            if (mState == STATE_DRAGGING) {
+            if (mState == STATE_DRAGGING || mAnimatingOut) {
                 return false;
             }
             if (mTouchingScrollingChild) {
@@ -75,16 +173,22 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
             }
             if (mState == STATE_EXPANDED && mActivePointerId == pointerId) {
                 View scroll = mNestedScrollingChildRef.get();
-                if (scroll != null && ViewCompat.canScrollHorizontally(scroll, -1)) {
+                if (scroll != null && ViewCompat.canScrollHorizontally(scroll,
+                        -mGeometry.getDirection())) {
                     return false;
                 }
             }
             return mViewRef != null && mViewRef.get() == child;
         }
 
+        @Override
+        public void onViewCaptured(View capturedChild, int activePointerId) {
+            stopSettling();
+        }
+
         @Override
         public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) {
-            dispatchOnSlide(left);
+            dispatchOnSlide(mGeometry.toOffset(left));
         }
 
         @Override
@@ -96,34 +200,10 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
 
         @Override
         public void onViewReleased(View releasedChild, float xvel, float yvel) {
-            int left;
-            @State int targetState;
-            if (xvel < 0) {
-                left = mMinOffset;
-                targetState = STATE_EXPANDED;
-            } else if (mHideable && shouldHide(releasedChild, xvel)) {
-                left = mParentWidth;
-                targetState = STATE_HIDDEN;
-            } else if (xvel == 0.f) {
-                int currentLeft = releasedChild.getLeft();
-                if (Math.abs(currentLeft - mMinOffset) < Math.abs(currentLeft - mMaxOffset)) {
-                    left = mMinOffset;
-                    targetState = STATE_EXPANDED;
-                } else {
-                    left = mMaxOffset;
-                    targetState = STATE_COLLAPSED;
-                }
-            } else {
-                left = mMaxOffset;
-                targetState = STATE_COLLAPSED;
-            }
-            if (mViewDragHelper.settleCapturedViewAt(releasedChild.getTop(), left)) {
-                setStateInternal(STATE_SETTLING);
-                ViewCompat.postOnAnimation(releasedChild,
-                        new SettleRunnable(releasedChild, targetState));
-            } else {
-                setStateInternal(targetState);
-            }
+            float velocity = mGeometry.getDirection() * xvel;
+            @State int targetState = mGeometry.resolveReleaseState(getSheetLeft(releasedChild),
+                    velocity);
+            startSettling(releasedChild, targetState, resolvedDetent(targetState), velocity);
         }
 
         @Override
@@ -133,38 +213,189 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
 
         @Override
         public int clampViewPositionHorizontal(View child, int left, int dx) {
-            return MathUtils.constrain(left, mMinOffset, mHideable ? mParentWidth : mMaxOffset);
+            if (mMovementMode == MOVEMENT_TRANSLATION) {
+                // Apply the drag to the translation and keep the layout bounds where they are
+                int sheetLeft = getSheetLeft(child);
+                int newLeft = mGeometry.clampLeft(
+                        sheetLeft + mGeometry.getDirection() * (left - child.getLeft()));
+                if (newLeft != sheetLeft) {
+                    moveSheetTo(child, newLeft);
+                    dispatchOnSlide(newLeft);
+                }
+                return child.getLeft();
+            }
+            return mGeometry.toLeft(mGeometry.clampLeft(mGeometry.toOffset(left)));
         }
 
         @Override
         public int getViewVerticalDragRange(View child) {
-            if (mHideable) {
-                return mParentWidth - mMinOffset;
-            } else {
-                return mMaxOffset - mMinOffset;
+            return mGeometry.getDragRange();
+        }
+    };
+    private final ViewPropertyAnimatorUpdateListener mTranslationUpdateListener =
+            new ViewPropertyAnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(View view) {
+                    dispatchOnSlide(getSheetLeft(view));
+                }
+            };
+    private final ViewPropertyAnimatorListenerAdapter mTranslationListener =
+            new ViewPropertyAnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(View view) {
+                    if (mTranslationSettling) {
+                        mTranslationSettling = false;
+                        if (!mTranslationSlides) {
+                            dispatchOnSlide(getSheetLeft(view));
+                        }
+                        setStateInternal(mTranslationTargetState, mTranslationTargetDetent);
+                    }
+                }
+            };
+    private final View.OnAttachStateChangeListener mScrollingChildAttachListener =
+            new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View view) {
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View view) {
+                    // Removed from the sheet, or the sheet itself went away
+                    if (!mNestedScrollingChildExplicit) {
+                        mNestedScrollingChildValid = false;
+                    }
+                }
+            };
+    private final FrameClock.Callback mSlideFrameCallback = new FrameClock.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mSlideFramePosted = false;
+            flushPendingSlide();
+        }
+    };
+    private final DeferredWorkQueue mIdleWork = new DeferredWorkQueue();
+    private long mIdleWorkBudgetNanos = DEFAULT_IDLE_WORK_BUDGET_NANOS;
+    private boolean mIdleWorkPosted;
+    private final FrameClock.Callback mIdleWorkCallback = new FrameClock.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mIdleWorkPosted = false;
+            FrameClock clock = getFrameClock();
+            mIdleWork.drain(clock, clock.nanoTime() + mIdleWorkBudgetNanos);
+            scheduleIdleWork();
+        }
+    };
+    // Created on the first touch and dropped again while the sheet is hidden
+    private VelocityEstimator mVelocityEstimator;
+    private int mVelocityStrategy = VelocityEstimator.STRATEGY_LSQ2;
+    private boolean mGestureStateReleasePosted;
+    private final FrameClock.Callback mReleaseGestureStateCallback = new FrameClock.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mGestureStateReleasePosted = false;
+            if (mState == STATE_HIDDEN) {
+                releaseGestureState();
             }
         }
     };
-    private VelocityTracker mVelocityTracker;
+    private SettleRunnable mSettleRunnable;
+    private final View.OnAttachStateChangeListener mSheetAttachListener =
+            new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View view) {
+                    scheduleIdleWork();
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View view) {
+                    // Nothing queued on the window or the frame clock may outlive it
+                    finishSettling(view);
+                    cancelSlideFrame();
+                    mSlidePending = false;
+                    cancelIdleWorkFrame();
+                    clearNestedScrollingLookup();
+                }
+            };
+    private SideSheetDragResources mDragResources;
+    private boolean mCovered;
     private int mInitialX;
+    private int mInitialY;
+    private int mEdgeSwipeWidth;
+    private int mSheetGravity = GravityCompat.END;
+    private boolean mEdgeSwiping;
+    private int mScrimColor = Color.TRANSPARENT;
+    private TranslatedScrim mTranslatedScrim;
+    private ViewGroup mTranslatedScrimParent;
+    private OnOutsideTapListener mOutsideTapListener;
+    private boolean mOutsideTapping;
 
     public SideSheetBehavior() {
     }
 
     public SideSheetBehavior(Context context, AttributeSet attrs) {
         super(context, attrs);
-        TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.side_sheet_behaviour_layout);
-        TypedValue value = ta.peekValue(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_peek_width);
-        if (value != null && value.data == PEEK_WIDTH_AUTO) {
-            setPeekWidth(value.data);
-        } else {
-            setPeekWidth(ta.getDimensionPixelSize(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_peek_width, PEEK_WIDTH_AUTO));
+        applyConfig(SideSheetConfigCache.BehaviorConfig.read(context, attrs, 0));
+    }
+
+    /**
+     * Creates a behavior from attributes that {@link SideSheetConfigCache} already resolved.
+     */
+    SideSheetBehavior(SideSheetConfigCache.BehaviorConfig config) {
+        applyConfig(config);
+    }
+
+    private void applyConfig(SideSheetConfigCache.BehaviorConfig config) {
+        setPeekWidth(config.peekWidth);
+        mPeekWidthMin = config.peekWidthMin;
+        mPeekRegionId = config.peekRegionId;
+        mPeekRatio = config.peekRatio;
+        setHideable(config.hideable);
+        setSkipCollapsed(config.skipCollapsed);
+        if (config.detents != null) {
+            setDetents(config.detents);
+        }
+        //noinspection WrongConstant
+        setMovementMode(config.movementMode);
+        //noinspection WrongConstant
+        setLayerPolicy(config.layerPolicy);
+        setEdgeSwipeWidth(config.edgeSwipeWidth);
+        setSheetGravity(config.gravity);
+        setScrimColor(config.scrimColor);
+        mMaximumVelocity = config.maximumVelocity;
+    }
+
+    /**
+     * Puts back everything an owner may have set since the behavior was created from
+     * {@code config}, for a sheet that is handed on to other content. The sheet is left
+     * collapsed without a state change, since it may never have been laid out.
+     */
+    void resetToConfig(SideSheetConfigCache.BehaviorConfig config) {
+        stopSettling();
+        cancelGestureStateRelease();
+        mState = STATE_COLLAPSED;
+        mDetent = NO_DETENT;
+        mEnterState = NO_STATE;
+        mRestoringState = false;
+        mAnimatingOut = false;
+        mExitAction = null;
+        demoteLayers();
+        mIdleWork.setHeld(false);
+        setSettleEngine(new SpringSettleEngine());
+        mSettleEngineSet = false;
+        setFrameClock(null);
+        setCoalesceSlideEvents(false);
+        setMetricsListener(null);
+        setGestureRecorder(null);
+        setNestedScrollingChild(null);
+        if (mVelocityStrategy != VelocityEstimator.STRATEGY_LSQ2) {
+            setVelocityStrategy(VelocityEstimator.STRATEGY_LSQ2);
         }
-        setHideable(ta.getBoolean(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_layout_behavior_hideable, false));
-        setSkipCollapsed(ta.getBoolean(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_layout_behavior_skip_collapsed, false));
-        ta.recycle();
-        ViewConfiguration configuration = ViewConfiguration.get(context);
-        mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
+        mIdleWorkBudgetNanos = DEFAULT_IDLE_WORK_BUDGET_NANOS;
+        if (config.detents == null) {
+            setDetents(null);
+        }
+        applyConfig(config);
+        mAutoPeekValid = false;
     }
 
     public static <V extends View> SideSheetBehavior<V> from(V view) {
@@ -181,9 +412,58 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
         return (SideSheetBehavior<V>) behavior;
     }
 
+    @Override
+    public void onDetachedFromLayoutParams() {
+        super.onDetachedFromLayoutParams();
+        if (mVelocityEstimator != null) {
+            mVelocityEstimator.clear();
+        }
+        cancelGestureStateRelease();
+        View view = mViewRef != null ? mViewRef.get() : null;
+        if (view != null) {
+            view.removeOnAttachStateChangeListener(mSheetAttachListener);
+        }
+        updateNestedScrollingChild(null);
+        mNestedScrollingChildValid = false;
+        cancelSlideFrame();
+        mSlidePending = false;
+        mEnterState = NO_STATE;
+        mAnimatingOut = false;
+        mExitAction = null;
+        clearIdleWork();
+        updateTranslatedScrim(null);
+    }
+
     @Override
     public Parcelable onSaveInstanceState(CoordinatorLayout parent, V child) {
-        return new SavedState(super.onSaveInstanceState(parent, child), mState);
+        int state = mState;
+        int detent = mDetent;
+        if (SheetStates.isMoving(state)) {
+            // A moving sheet is saved where it is headed, so it comes back at rest
+            if (mSettleDriver.mRunning) {
+                state = mSettleDriver.mTargetState;
+                detent = mSettleDriver.mTargetDetent;
+            } else if (mTranslationSettling) {
+                state = mTranslationTargetState;
+                detent = mTranslationTargetDetent;
+            } else {
+                state = mGeometry.resolveReleaseState(getSheetLeft(child), 0);
+                detent = resolvedDetent(state);
+            }
+        } else if (mEnterState != NO_STATE) {
+            state = mEnterState;
+        }
+        if (state == STATE_HIDDEN && !mGeometry.isHideable()) {
+            // Only an exit transition hides a sheet that is not hideable
+            state = STATE_COLLAPSED;
+        }
+        if (state != STATE_DETENT) {
+            detent = NO_DETENT;
+        }
+        View scroll = mNestedScrollingChildRef != null ? mNestedScrollingChildRef.get() : null;
+        return new SavedState(super.onSaveInstanceState(parent, child), state, detent,
+                mPeekWidthAuto ? PEEK_WIDTH_AUTO : mPeekWidth, mGeometry.isHideable(),
+                mGeometry.getSkipCollapsed(), scroll);
     }
 
     @Override
@@ -191,11 +471,26 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
         SavedState ss = (SavedState) state;
         super.onRestoreInstanceState(parent, child, state);
 
-        if (ss.state == STATE_DRAGGING || ss.state == STATE_SETTLING) {
-            mState = STATE_COLLAPSED;
-        } else {
-            mState = ss.state;
-        }
+        stopSettling();
+        mEnterState = NO_STATE;
+        setPeekWidth(ss.peekWidth);
+        setHideable(ss.hideable);
+        setSkipCollapsed(ss.skipCollapsed);
+        mState = ss.state;
+        mDetent = ss.detent;
+        mRestoreScroll = ss.hasScroll;
+        mRestoredScrollX = ss.scrollX;
+        mRestoredScrollY = ss.scrollY;
+        // The next layout places the sheet straight at the restored state
+        mRestoringState = true;
+    }
+
+    /**
+     * Whether state was restored that the next layout has not applied yet. Hosts use it to
+     * leave out their enter transition.
+     */
+    boolean isRestoringState() {
+        return mRestoringState;
     }
 
     @Override
@@ -204,40 +499,68 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
             ViewCompat.setFitsSystemWindows(child, true);
         }
 
-        int savedLeft = child.getLeft();
+        int savedLeft = getSheetLeft(child);
         parent.onLayoutChild(child, layoutDirection);
 
-        mParentWidth = parent.getWidth();
+        int parentWidth = parent.getWidth();
         int peekWidth;
+        // Resolved once here, so that the rest of the behavior only sees mirrored offsets
+        boolean fromLeft = (GravityCompat.getAbsoluteGravity(mSheetGravity, layoutDirection)
+                & Gravity.HORIZONTAL_GRAVITY_MASK) == Gravity.LEFT;
 
         if (mPeekWidthAuto) {
             if (mPeekWidthMin == 0) {
                 mPeekWidthMin = parent.getResources().getDimensionPixelSize(
                         R.dimen.side_sheet_peek_width_min);
             }
-            peekWidth = mParentWidth ;
+            peekWidth = resolveAutoPeekWidth(child, parentWidth, fromLeft);
         } else {
             peekWidth = mPeekWidth;
         }
 
-
-        mMinOffset = Math.max(0, mParentWidth - child.getWidth());
-        mMaxOffset = Math.max(mParentWidth - peekWidth, mMinOffset);
+        mGeometry.layout(parentWidth, child.getWidth(), peekWidth, fromLeft);
 
         if (mState == STATE_EXPANDED) {
-            ViewCompat.offsetLeftAndRight(child, mMinOffset);
-        } else if (mHideable && mState == STATE_HIDDEN) {
-            ViewCompat.offsetLeftAndRight(child, mParentWidth);
+            placeSheet(child, mGeometry.getMinOffset());
+        } else if (mState == STATE_HIDDEN) {
+            placeSheet(child, mGeometry.getHiddenOffset());
         } else if (mState == STATE_COLLAPSED) {
-            ViewCompat.offsetLeftAndRight(child, mMaxOffset);
+            placeSheet(child, mGeometry.getMaxOffset());
+        } else if (mState == STATE_DETENT) {
+            if (mDetent < 0 || mDetent >= mGeometry.getDetentCount()) {
+                // The detent went away with a new detent spec
+                mState = STATE_COLLAPSED;
+                mDetent = NO_DETENT;
+            }
+            placeSheet(child, mGeometry.getOffsetForState(mState, mDetent));
         } else if (mState == STATE_DRAGGING || mState == STATE_SETTLING) {
-            ViewCompat.offsetLeftAndRight(child, savedLeft - child.getLeft());
+            placeSheet(child, savedLeft);
         }
-        if (mViewDragHelper == null) {
-            mViewDragHelper = ViewDragHelper.create(parent, mDragCallback);
+        if (mViewDragHelper == null && mState != STATE_HIDDEN) {
+            mViewDragHelper = createDragHelper(parent);
+        }
+        // Only replace the references when they point at a different view, so that a steady
+        // state layout pass does not allocate.
+        if (mViewRef == null || mViewRef.get() != child) {
+            V previous = mViewRef != null ? mViewRef.get() : null;
+            if (previous != null) {
+                previous.removeOnAttachStateChangeListener(mSheetAttachListener);
+            }
+            mViewRef = new WeakReference<>(child);
+            child.addOnAttachStateChangeListener(mSheetAttachListener);
+        }
+        resolveNestedScrollingChild(child);
+        updateTranslatedScrim(parent);
+        if (mRestoringState) {
+            mRestoringState = false;
+            restoreNestedScroll();
+        }
+        if (mEnterState != NO_STATE) {
+            startEnter(child);
+        }
+        if (mGestureRecorder != null && mGestureRecorder.getEventCount() == 0) {
+            mGestureRecorder.setSize(parentWidth, parent.getHeight(), child.getWidth());
         }
-        mViewRef = new WeakReference<>(child);
-        mNestedScrollingChildRef = new WeakReference<>(findScrollingChild(child));
 
         return true;
     }
@@ -245,24 +568,35 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
 
     @Override
     public boolean onInterceptTouchEvent(CoordinatorLayout parent, V child, MotionEvent event) {
+        if (mGestureRecorder != null) {
+            recordTouch(GestureRecorder.EVENT_INTERCEPT_TOUCH, event);
+        }
         if (!child.isShown()) {
             mIgnoreEvents = true;
             return false;
         }
         int action = MotionEventCompat.getActionMasked(event);
+        if (mCovered) {
+            return interceptCoveredTouch(parent, child, event, action);
+        }
+        obtainDragHelper(parent);
+        if (mDragResources != null) {
+            mDragResources.claim(mDragCallback);
+        }
         if (action == MotionEvent.ACTION_DOWN) {
             reset();
         }
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
-        }
-        mVelocityTracker.addMovement(event);
+        addMovement(event);
 
+        boolean catchSettlingSheet = false;
         switch (action) {
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
                 mTouchingScrollingChild = false;
                 mActivePointerId = MotionEvent.INVALID_POINTER_ID;
+                mEdgeSwiping = false;
+                // Another view took the gesture, so it wasn't a tap on the scrim
+                mOutsideTapping = false;
 
                 if (mIgnoreEvents) {
                     mIgnoreEvents = false;
@@ -274,6 +608,7 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
             case MotionEvent.ACTION_DOWN:
                 int initialY = (int) event.getY();
                 mInitialX = (int) event.getX();
+                mInitialY = initialY;
                 View scroll = mNestedScrollingChildRef.get();
                 if (scroll != null && parent.isPointInChildBounds(child, mInitialX, initialY)) {
                     mActivePointerId = event.getPointerId(event.getActionIndex());
@@ -281,11 +616,34 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
                 }
                 mIgnoreEvents = mActivePointerId == MotionEvent.INVALID_POINTER_ID &&
                         !parent.isPointInChildBounds(child, mInitialX, initialY);
+                // A touch on a settling sheet grabs it right where it is
+                catchSettlingSheet = isSettling() && !mAnimatingOut &&
+                        parent.isPointInChildBounds(child, mInitialX, initialY);
+                mOutsideTapping = mOutsideTapListener != null && mState != STATE_HIDDEN &&
+                        !parent.isPointInChildBounds(child, mInitialX, initialY);
+                mEdgeSwiping = mState == STATE_HIDDEN && isInEdgeSwipeZone(parent, mInitialX);
+                if (mEdgeSwiping) {
+                    // Get the sheet ready while the finger is still deciding where to go
+                    prelayoutSheet(parent, child);
+                    mIgnoreEvents = false;
+                }
                 break;
+
         }
         if (!mIgnoreEvents && mViewDragHelper.shouldInterceptTouchEvent(event)) {
             return true;
         }
+        // Checked after the drag helper has seen the move, so it drags on from this position
+        if (action == MotionEvent.ACTION_MOVE && mEdgeSwiping && tryEdgeSwipe(child, event)) {
+            return true;
+        }
+        if (catchSettlingSheet) {
+            stopSettling();
+            mTouchingScrollingChild = false;
+            mIgnoreEvents = false;
+            mViewDragHelper.captureChildView(child, event.getPointerId(event.getActionIndex()));
+            return true;
+        }
 
         View scroll = mNestedScrollingChildRef.get();
         return action == MotionEvent.ACTION_MOVE && scroll != null &&
@@ -296,10 +654,22 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
 
     @Override
     public boolean onTouchEvent(CoordinatorLayout parent, V child, MotionEvent event) {
+        if (mGestureRecorder != null) {
+            recordTouch(GestureRecorder.EVENT_TOUCH, event);
+        }
         if (!child.isShown()) {
             return false;
         }
+        obtainDragHelper(parent);
         int action = MotionEventCompat.getActionMasked(event);
+        if (mOutsideTapping) {
+            trackOutsideTap(child, event, action);
+            return true;
+        }
+        if (mCovered) {
+            return action == MotionEvent.ACTION_DOWN
+                    && parent.isPointInChildBounds(child, (int) event.getX(), (int) event.getY());
+        }
         if (mState == STATE_DRAGGING && action == MotionEvent.ACTION_DOWN) {
             return true;
         }
@@ -310,13 +680,10 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
             reset();
         }
 
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
-        }
-
-        mVelocityTracker.addMovement(event);
+        addMovement(event);
 
-        if (action == MotionEvent.ACTION_MOVE && !mIgnoreEvents) {
+        if (action == MotionEvent.ACTION_MOVE && !mIgnoreEvents
+                && mViewDragHelper.getViewDragState() != ViewDragHelper.STATE_DRAGGING) {
             if (Math.abs(mInitialX - event.getX()) > mViewDragHelper.getTouchSlop()) {
                 mViewDragHelper.captureChildView(child, event.getPointerId(event.getActionIndex()));
             }
@@ -327,100 +694,170 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
 
     @Override
     public boolean onStartNestedScroll(CoordinatorLayout coordinatorLayout, V child, View directTargetChild, View target, int nestedScrollAxes) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.recordNestedScrollStart(uptimeNanos(), nestedScrollAxes);
+        }
         mLastNestedScrollDx = 0;
         mNestedScrolled = false;
+        mNestedFlung = false;
 
-        return (nestedScrollAxes & ViewCompat.SCROLL_AXIS_HORIZONTAL) != 0;
+        boolean horizontal = (nestedScrollAxes & ViewCompat.SCROLL_AXIS_HORIZONTAL) != 0;
+        if (horizontal) {
+            stopSettling();
+        }
+        return horizontal;
     }
 
     @Override
     public void onNestedPreScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dx, int dy, int[] consumed) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.recordNestedPreScroll(uptimeNanos(), dx, dy);
+        }
         View scrollingChild = mNestedScrollingChildRef.get();
         if (target != scrollingChild) {
             return;
         }
 
-        int currentLeft = child.getLeft();
-        int newLeft = currentLeft - dx;
-
-        if (dx > 0) {
-            if (newLeft < mMinOffset) {
-                consumed[1] = currentLeft - mMinOffset;
-                ViewCompat.offsetLeftAndRight(child, -consumed[1]);
+        // Along the offsets, so that dx > 0 always heads towards expanded
+        int sheetDx = mGeometry.getDirection() * dx;
+        int currentLeft = getSheetLeft(child);
+        int newLeft = currentLeft - sheetDx;
+        int minOffset = mGeometry.getMinOffset();
+        int maxOffset = mGeometry.getMaxOffset();
+
+        if (sheetDx > 0) {
+            if (newLeft < minOffset) {
+                consumed[0] = mGeometry.getDirection() * (currentLeft - minOffset);
+                moveSheetTo(child, minOffset);
                 setStateInternal(STATE_EXPANDED);
             } else {
-                consumed[1] = dx;
-                ViewCompat.offsetLeftAndRight(child, -dx);
+                consumed[0] = dx;
+                moveSheetTo(child, newLeft);
                 setStateInternal(STATE_DRAGGING);
             }
-        } else if (dx < 0) {
-            if (ViewCompat.canScrollHorizontally(child, -1)) {
-                if (newLeft <= mMaxOffset || mHideable) {
-                    consumed[1] = dx;
-                    ViewCompat.offsetLeftAndRight(child, -dx);
+        } else if (sheetDx < 0) {
+            // The content scrolls back to its start before the sheet moves
+            if (!ViewCompat.canScrollHorizontally(target, -mGeometry.getDirection())) {
+                if (newLeft <= maxOffset || mGeometry.isHideable()) {
+                    consumed[0] = dx;
+                    moveSheetTo(child, newLeft);
                     setStateInternal(STATE_DRAGGING);
                 } else {
-                    consumed[1] = currentLeft - mMaxOffset;
-                    ViewCompat.offsetLeftAndRight(child, -consumed[1]);
+                    consumed[0] = mGeometry.getDirection() * (currentLeft - maxOffset);
+                    moveSheetTo(child, maxOffset);
                     setStateInternal(STATE_COLLAPSED);
                 }
             }
         }
 
-        dispatchOnSlide(child.getLeft());
-        mLastNestedScrollDx = dx;
-        mNestedScrolled = true;
+        dispatchOnSlide(getSheetLeft(child));
+        mLastNestedScrollDx = sheetDx;
+        if (consumed[0] != 0) {
+            mNestedScrolled = true;
+        }
     }
 
     @Override
     public void onStopNestedScroll(CoordinatorLayout coordinatorLayout, V child, View target) {
-        if (child.getLeft() == mMinOffset) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.recordNestedScrollStop(uptimeNanos());
+        }
+        if (mNestedFlung) {
+            // The sheet is already settling with the velocity of the fling
+            mNestedFlung = false;
+            mNestedScrolled = false;
+            return;
+        }
+        if (getSheetLeft(child) == mGeometry.getMinOffset()) {
             setStateInternal(STATE_EXPANDED);
             return;
         }
 
-        if (target != mNestedScrollingChildRef.get() && !mNestedScrolled) {
+        if (!mNestedScrolled) {
+            // The sheet did not move in this gesture, so it is still where it rests
             return;
         }
 
-        int left;
-        int targetState;
+        float xVelocity = mLastNestedScrollDx > 0 || !mGeometry.isHideable() ? 0 : getXVelocity();
+        int targetState = mGeometry.resolveNestedScrollStopState(getSheetLeft(child),
+                mLastNestedScrollDx, xVelocity);
+        startSettling(child, targetState, resolvedDetent(targetState), 0);
+        mNestedScrolled = false;
+    }
+
 
-        if (mLastNestedScrollDx > 0) {
-            left = mMinOffset;
-            targetState = STATE_EXPANDED;
-        } else if (mHideable && shouldHide(child, getXVelocity())) {
-            left = mParentWidth;
-            targetState = STATE_HIDDEN;
-        } else if (mLastNestedScrollDx == 0) {
-            int currentLeft = child.getLeft();
-            if (Math.abs(currentLeft - mMinOffset) < Math.abs(currentLeft - mMaxOffset)) {
-                left = mMinOffset;
-                targetState = STATE_EXPANDED;
-            } else {
-                left = mMaxOffset;
-                targetState = STATE_COLLAPSED;
-            }
-        } else {
-            left = mMaxOffset;
-            targetState = STATE_COLLAPSED;
+    @Override
+    public boolean onNestedPreFling(CoordinatorLayout coordinatorLayout, V child, View target, float velocityX, float velocityY) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.recordNestedPreFling(uptimeNanos(), velocityX, velocityY);
+        }
+        if (target != mNestedScrollingChildRef.get()) {
+            return false;
+        }
+        if (mState == STATE_EXPANDED) {
+            // The content flings; what it can't use comes back in onNestedFling
+            return super.onNestedPreFling(coordinatorLayout, child, target, velocityX, velocityY);
+        }
+        if (!mNestedScrolled && velocityX != 0
+                && ViewCompat.canScrollHorizontally(target, velocityX > 0 ? 1 : -1)) {
+            // The content took the whole gesture so far, and can take the fling too
+            return false;
+        }
+        if (velocityX != 0 && !mAnimatingOut) {
+            settleNestedFling(child, -mGeometry.getDirection() * velocityX);
         }
+        return true;
+    }
 
-        if (mViewDragHelper.smoothSlideViewTo(child, child.getTop(), left)) {
-            setStateInternal(STATE_SETTLING);
-            ViewCompat.postOnAnimation(child, new SettleRunnable(child, targetState));
-        } else {
-            setStateInternal(targetState);
+    @Override
+    public boolean onNestedFling(CoordinatorLayout coordinatorLayout, V child, View target, float velocityX, float velocityY, boolean consumed) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.recordNestedFling(uptimeNanos(), velocityX, velocityY, consumed);
         }
-        mNestedScrolled = false;
+        float sheetVelocity = -mGeometry.getDirection() * velocityX;
+        if (target != mNestedScrollingChildRef.get() || mState != STATE_EXPANDED
+                || sheetVelocity <= 0 || mAnimatingOut) {
+            return false;
+        }
+        if (consumed && ViewCompat.canScrollHorizontally(target, -mGeometry.getDirection())) {
+            return false;
+        }
+        // The content is at its start, so the fling carries on into the sheet
+        settleNestedFling(child, sheetVelocity);
+        return true;
     }
 
+    /**
+     * Settles the sheet with the velocity of a fling of the nested scrolling child. A fling
+     * that arrives at expanded with velocity to spare hands the rest back to the child.
+     *
+     * @param xVel velocity of the sheet in pixels per second
+     */
+    private void settleNestedFling(V child, float xVel) {
+        int left = getSheetLeft(child);
+        @State int targetState = mGeometry.resolveReleaseState(left, xVel);
+        startSettling(child, targetState, resolvedDetent(targetState), xVel);
+        mNestedFlung = true;
+        float overshoot = targetState == STATE_EXPANDED
+                ? mGeometry.getExpandedOvershootVelocity(left, xVel) : 0;
+        if (overshoot != 0) {
+            if (mSettleDriver.mRunning) {
+                mSettleDriver.mHandOffVelocity = overshoot;
+            } else if (mState == STATE_EXPANDED) {
+                handOffFling(overshoot);
+            }
+        }
+    }
 
-    @Override
-    public boolean onNestedPreFling(CoordinatorLayout coordinatorLayout, V child, View target, float velocityX, float velocityY) {
-        return target == mNestedScrollingChildRef.get() &&
-                (mState != STATE_EXPANDED ||
-                        super.onNestedPreFling(coordinatorLayout, child, target, velocityX, velocityY));
+    /**
+     * Passes what is left of a sheet fling on to the nested scrolling child, which scrolls on in
+     * the direction the sheet moved.
+     */
+    private void handOffFling(float xVel) {
+        View scroll = mNestedScrollingChildRef != null ? mNestedScrollingChildRef.get() : null;
+        if (scroll instanceof RecyclerView) {
+            ((RecyclerView) scroll).fling(Math.round(-mGeometry.getDirection() * xVel), 0);
+        }
     }
 
     public final int getPeekWidth() {
@@ -432,12 +869,16 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
         if (peekWidth == PEEK_WIDTH_AUTO) {
             if (!mPeekWidthAuto) {
                 mPeekWidthAuto = true;
+                mAutoPeekValid = false;
                 layout = true;
             }
         } else if (mPeekWidthAuto || mPeekWidth != peekWidth) {
             mPeekWidthAuto = false;
             mPeekWidth = Math.max(0, peekWidth);
-            mMaxOffset = mParentWidth - peekWidth;
+            mGeometry.setPeekWidth(mPeekWidth);
+            // A peek wider than the sheet collapses to the expanded offset, as layout() does
+            mGeometry.setMaxOffset(Math.max(mGeometry.getParentWidth() - mPeekWidth,
+                    mGeometry.getMinOffset()));
             layout = true;
         }
 
@@ -449,200 +890,1591 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
         }
     }
 
+    /**
+     * With {@link #PEEK_WIDTH_AUTO}, makes the collapsed sheet show the descendant with id
+     * {@code id} up to its far edge, its right edge for a sheet at the right of the parent.
+     * Takes precedence over {@link #setPeekRatio(float)}.
+     */
+    public void setPeekRegionId(@IdRes int id) {
+        if (mPeekRegionId != id) {
+            mPeekRegionId = id;
+            invalidateAutoPeekWidth();
+        }
+    }
+
+    @IdRes
+    public int getPeekRegionId() {
+        return mPeekRegionId;
+    }
+
+    /**
+     * With {@link #PEEK_WIDTH_AUTO} and no peek region, makes the collapsed sheet show
+     * {@code ratio} of its width. With neither, the sheet peeks by the minimum auto peek width.
+     */
+    public void setPeekRatio(float ratio) {
+        if (mPeekRatio != ratio) {
+            mPeekRatio = ratio;
+            invalidateAutoPeekWidth();
+        }
+    }
+
+    public float getPeekRatio() {
+        return mPeekRatio;
+    }
+
+    /**
+     * Measures the automatic peek width again on the next layout, for content whose peek region
+     * moved without the sheet or its parent changing width.
+     */
+    public void invalidateAutoPeekWidth() {
+        mAutoPeekValid = false;
+        if (mPeekWidthAuto && mViewRef != null) {
+            V view = mViewRef.get();
+            if (view != null) {
+                view.requestLayout();
+            }
+        }
+    }
+
+    /**
+     * The automatic peek width, never less than the minimum auto peek width or more than the
+     * sheet is wide. It is only measured again when the parent or the sheet changes width.
+     */
+    private int resolveAutoPeekWidth(View child, int parentWidth, boolean fromLeft) {
+        int childWidth = child.getWidth();
+        if (mAutoPeekValid && mAutoPeekParentWidth == parentWidth
+                && mAutoPeekChildWidth == childWidth && mAutoPeekFromLeft == fromLeft) {
+            return mAutoPeekWidth;
+        }
+        View region = mPeekRegionId != View.NO_ID ? child.findViewById(mPeekRegionId) : null;
+        int peekWidth;
+        if (region != null) {
+            int regionLeft = 0;
+            for (View view = region; view != child; view = (View) view.getParent()) {
+                regionLeft += view.getLeft();
+            }
+            // A sheet at the left edge peeks with its right side
+            peekWidth = fromLeft ? childWidth - regionLeft : regionLeft + region.getWidth();
+        } else if (mPeekRatio > 0) {
+            peekWidth = Math.round(childWidth * mPeekRatio);
+        } else {
+            peekWidth = mPeekWidthMin;
+        }
+        mAutoPeekWidth = MathUtils.constrain(peekWidth, Math.min(mPeekWidthMin, childWidth),
+                childWidth);
+        mAutoPeekParentWidth = parentWidth;
+        mAutoPeekChildWidth = childWidth;
+        mAutoPeekFromLeft = fromLeft;
+        mAutoPeekValid = true;
+        return mAutoPeekWidth;
+    }
+
     public boolean isHideable() {
-        return mHideable;
+        return mGeometry.isHideable();
     }
 
     public void setHideable(boolean hideable) {
-        mHideable = hideable;
+        mGeometry.setHideable(hideable);
     }
 
     public boolean getSkipCollapsed() {
-        return mSkipCollapsed;
+        return mGeometry.getSkipCollapsed();
     }
 
     private void setSkipCollapsed(boolean skipCollapsed) {
-        mSkipCollapsed = skipCollapsed;
+        mGeometry.setSkipCollapsed(skipCollapsed);
     }
 
+    /**
+     * Replaces the callback set by the previous call; callbacks added with
+     * {@link #addSideSheetCallback(SideSheetCallback)} are kept.
+     *
+     * @deprecated use {@link #addSideSheetCallback(SideSheetCallback)}, which doesn't replace
+     * callbacks registered by others.
+     */
+    @Deprecated
     public void setSideSheetCallback(SideSheetCallback callback) {
+        if (mCallback != null) {
+            removeSideSheetCallback(mCallback);
+        }
         mCallback = callback;
+        if (callback != null) {
+            addSideSheetCallback(callback);
+        }
     }
 
-    public final void setState(final @State int state) {
-        if (state == mState) {
-            return;
+    /**
+     * Adds a callback. Adding and removing copy the callback array so that dispatching, which
+     * happens far more often, iterates a stable array without allocating.
+     */
+    public void addSideSheetCallback(@NonNull SideSheetCallback callback) {
+        for (SideSheetCallback existing : mCallbacks) {
+            if (existing == callback) {
+                return;
+            }
         }
+        SideSheetCallback[] callbacks = new SideSheetCallback[mCallbacks.length + 1];
+        System.arraycopy(mCallbacks, 0, callbacks, 0, mCallbacks.length);
+        callbacks[mCallbacks.length] = callback;
+        mCallbacks = callbacks;
+    }
 
-        if (mViewRef == null) {
-            if (state == STATE_COLLAPSED || state == STATE_EXPANDED ||
-                    (mHideable && state == STATE_HIDDEN)) {
-                mState = state;
+    public void removeSideSheetCallback(@NonNull SideSheetCallback callback) {
+        int index = -1;
+        for (int i = 0; i < mCallbacks.length; i++) {
+            if (mCallbacks[i] == callback) {
+                index = i;
+                break;
             }
-            return;
         }
-
-        final View child = mViewRef.get();
-        if (child == null) {
+        if (index < 0) {
             return;
         }
-
-        ViewParent parent = child.getParent();
-        if (parent != null && parent.isLayoutRequested() &&
-                ViewCompat.isAttachedToWindow(child)) {
-            child.post(new Runnable() {
-                @Override
-                public void run() {
-                    startSettlingAnimation(child, state);
-                }
-            });
-        } else {
-            startSettlingAnimation(child, state);
+        if (mCallbacks.length == 1) {
+            mCallbacks = NO_CALLBACKS;
+            return;
         }
+        SideSheetCallback[] callbacks = new SideSheetCallback[mCallbacks.length - 1];
+        System.arraycopy(mCallbacks, 0, callbacks, 0, index);
+        System.arraycopy(mCallbacks, index + 1, callbacks, index, callbacks.length - index);
+        mCallbacks = callbacks;
+    }
 
-
+    void clearSideSheetCallbacks() {
+        mCallbacks = NO_CALLBACKS;
+        mCallback = null;
     }
 
-    private void startSettlingAnimation(View child, int state) {
-        int left;
-        if (state == STATE_COLLAPSED) {
-            left = mMaxOffset;
-        } else if (state == STATE_EXPANDED) {
-            left = mMinOffset;
-        } else if (mHideable && state == STATE_HIDDEN) {
-            left = mParentWidth;
-        } else {
-            throw new IllegalArgumentException("Illegal state argument " + state);
-        }
-        setStateInternal(STATE_SETTLING);
-        if (mViewDragHelper.smoothSlideViewTo(child, child.getTop(), left)) {
-            ViewCompat.postOnAnimation(child, new SettleRunnable(child, state));
+    /**
+     * When true, {@link SideSheetCallback#onSlide} is called at most once per frame with the
+     * latest offset, instead of once for every position change. A pending slide is always
+     * delivered before the next {@link SideSheetCallback#onStateChanged}.
+     */
+    public void setCoalesceSlideEvents(boolean coalesce) {
+        if (!coalesce) {
+            cancelSlideFrame();
+            flushPendingSlide();
         }
+        mCoalesceSlide = coalesce;
     }
 
-    private float getXVelocity() {
-        mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
-        return VelocityTrackerCompat.getXVelocity(mVelocityTracker, mActivePointerId);
+    public boolean getCoalesceSlideEvents() {
+        return mCoalesceSlide;
     }
 
-    private void reset() {
-        mActivePointerId = ViewDragHelper.INVALID_POINTER;
-        if (mVelocityTracker != null) {
-            mVelocityTracker.recycle();
-            mVelocityTracker = null;
+    /**
+     * Sets a listener that receives the frame timing of every drag and settle phase. Nothing is
+     * measured while no listener is set.
+     */
+    public void setMetricsListener(@Nullable MetricsListener listener) {
+        mMetricsListener = listener;
+        if (listener != null && mFrameStats == null) {
+            mFrameStats = new FrameStats();
+        } else if (listener == null && mFrameStats != null) {
+            mFrameStats.finish();
         }
     }
 
-    private View findScrollingChild(View view) {
-        if (view instanceof NestedScrollingChild) {
-            return view;
-        }
-        if (view instanceof ViewGroup) {
-            ViewGroup group = (ViewGroup) view;
-            for (int i = 0, count = group.getChildCount(); i < count; i++) {
-                View scrollingChild = findScrollingChild(group.getChildAt(i));
-                if (scrollingChild != null) {
-                    return scrollingChild;
-                }
-            }
+    /**
+     * Sets a recorder that receives the touch events and nested scrolling the sheet consumes, to
+     * be played back with {@link SideSheetGestureReplayer}. The trace takes its size from the
+     * first layout before anything is recorded. Nothing is recorded while no recorder is set.
+     */
+    public void setGestureRecorder(@Nullable GestureRecorder recorder) {
+        mGestureRecorder = recorder;
+        if (recorder != null && mRecordPointerIds == null) {
+            mRecordPointerIds = new int[GestureRecorder.MAX_POINTERS];
+            mRecordXs = new float[GestureRecorder.MAX_POINTERS];
+            mRecordYs = new float[GestureRecorder.MAX_POINTERS];
         }
-        return null;
     }
 
-    boolean shouldHide(View child, float xVel) {
-        if (mSkipCollapsed) {
-            return true;
-        }
-        if (child.getLeft() < mMaxOffset) {
-            return false;
-        }
-
-        final float newLeft = child.getLeft() + xVel * HIDE_FRICTION;
-        return Math.abs(newLeft - mMaxOffset) / (float) mPeekWidth > HIDE_THRESHOLD;
+    @Nullable
+    public GestureRecorder getGestureRecorder() {
+        return mGestureRecorder;
     }
 
-    void setStateInternal(int state) {
-        if (mState == state) {
+    /**
+     * Chooses how the sheet is moved, see {@link #MOVEMENT_OFFSET} and
+     * {@link #MOVEMENT_TRANSLATION}.
+     */
+    public void setMovementMode(@MovementMode int movementMode) {
+        if (mMovementMode == movementMode) {
             return;
         }
-        mState = state;
-        View sideSheet = mViewRef.get();
-        if (sideSheet != null && mCallback != null) {
-            mCallback.onStateChanged(sideSheet, state);
-        }
-    }
-
-    void dispatchOnSlide(int left) {
-        View sideSheet = mViewRef.get();
-        if (sideSheet != null && mCallback != null) {
-            if (left > mMaxOffset) {
-                mCallback.onSlide(sideSheet, (float) (mMaxOffset - left) / (mParentWidth - mMaxOffset));
-            } else {
-                mCallback.onSlide(sideSheet, (float) (mMaxOffset - left) / (mMaxOffset - mMinOffset));
+        stopSettling();
+        mMovementMode = movementMode;
+        if (mViewRef != null) {
+            V view = mViewRef.get();
+            if (view != null) {
+                ViewCompat.setTranslationX(view, 0);
+                view.requestLayout();
             }
         }
     }
 
-    @IntDef({STATE_EXPANDED, STATE_COLLAPSED, STATE_DRAGGING, STATE_SETTLING, STATE_HIDDEN})
-    @Retention(RetentionPolicy.SOURCE)
-    public @interface State {
+    @MovementMode
+    public int getMovementMode() {
+        return mMovementMode;
     }
 
-    public abstract static class SideSheetCallback {
-
-        public abstract void onStateChanged(@NonNull View sideSheet, @State int newState);
-
-        public abstract void onSlide(@NonNull View sideSheet, float slideOffset);
+    /**
+     * Position of the sheet as an offset of {@link #mGeometry}, including its translation in
+     * {@link #MOVEMENT_TRANSLATION} mode. For a sheet at the right edge it is the sheet's left
+     * edge in parent coordinates.
+     */
+    int getSheetLeft(View child) {
+        if (mMovementMode == MOVEMENT_TRANSLATION) {
+            return mGeometry.toOffset(
+                    child.getLeft() + Math.round(ViewCompat.getTranslationX(child)));
+        }
+        return mGeometry.toOffset(child.getLeft());
     }
 
-    protected static class SavedState extends AbsSavedState {
-        public static final Creator<SavedState> CREATOR = ParcelableCompat.newCreator(
-                new ParcelableCompatCreatorCallbacks<SavedState>() {
-                    @Override
-                    public SavedState createFromParcel(Parcel in, ClassLoader loader) {
-                        return new SavedState(in, loader);
-                    }
-
-                    @Override
-                    public SavedState[] newArray(int size) {
-                        return new SavedState[size];
-                    }
-                });
-        @BottomSheetBehavior.State
-        final int state;
-
-        public SavedState(Parcel source) {
-            this(source, null);
+    /**
+     * Moves the sheet to offset {@code left}.
+     */
+    void moveSheetTo(View child, int left) {
+        if (mMovementMode == MOVEMENT_TRANSLATION) {
+            ViewCompat.setTranslationX(child, mGeometry.toLeft(left) - child.getLeft());
+        } else {
+            ViewCompat.offsetLeftAndRight(child, mGeometry.toLeft(left) - child.getLeft());
         }
+    }
 
-        public SavedState(Parcel source, ClassLoader loader) {
-            super(source, loader);
-            //noinspection ResourceType
-            state = source.readInt();
+    /**
+     * Positions the sheet after its parent laid it out. In translation mode the layout bounds
+     * stay anchored at the expanded position.
+     */
+    private void placeSheet(View child, int left) {
+        if (mMovementMode == MOVEMENT_TRANSLATION) {
+            ViewCompat.offsetLeftAndRight(child,
+                    mGeometry.toLeft(mGeometry.getMinOffset()) - child.getLeft());
         }
+        moveSheetTo(child, left);
+    }
 
-        public SavedState(Parcelable superState, @BottomSheetBehavior.State int state) {
-            super(superState);
-            this.state = state;
+    /**
+     * Sets the edge of the parent the sheet slides in from: {@link GravityCompat#END}, the
+     * default, {@link GravityCompat#START}, {@link Gravity#LEFT} or {@link Gravity#RIGHT}.
+     * Relative gravities follow the parent's layout direction, so by default the sheet enters
+     * from the left in right-to-left layouts.
+     */
+    public void setSheetGravity(int gravity) {
+        int horizontal = gravity & GravityCompat.RELATIVE_HORIZONTAL_GRAVITY_MASK;
+        if (horizontal != GravityCompat.START && horizontal != GravityCompat.END
+                && horizontal != Gravity.LEFT && horizontal != Gravity.RIGHT) {
+            throw new IllegalArgumentException("Illegal sheet gravity " + gravity);
         }
-
-        @Override
-        public void writeToParcel(Parcel out, int flags) {
-            super.writeToParcel(out, flags);
-            out.writeInt(state);
+        if (mSheetGravity == horizontal) {
+            return;
+        }
+        mSheetGravity = horizontal;
+        mAutoPeekValid = false;
+        if (mViewRef != null) {
+            V view = mViewRef.get();
+            if (view != null) {
+                view.requestLayout();
+            }
         }
     }
 
-    private static class MathUtils {
+    public int getSheetGravity() {
+        return mSheetGravity;
+    }
 
-        static int constrain(int amount, int low, int high) {
-            return amount < low ? low : (amount > high ? high : amount);
+    /**
+     * Chooses which views get a hardware layer while the sheet is moving. Layers are dropped as
+     * soon as the sheet comes to rest, which also releases their memory while it is hidden.
+     */
+    public void setLayerPolicy(@LayerPolicy int layerPolicy) {
+        if (mLayerPolicy == layerPolicy) {
+            return;
         }
-
-        static float constrain(float amount, float low, float high) {
-            return amount < low ? low : (amount > high ? high : amount);
+        demoteLayers();
+        mLayerPolicy = layerPolicy;
+        if (SheetStates.isMoving(mState)) {
+            promoteLayers();
         }
+    }
 
+    @LayerPolicy
+    public int getLayerPolicy() {
+        return mLayerPolicy;
+    }
+
+    /**
+     * Lets a swipe that starts within {@code edgeSwipeWidth} pixels of the parent's edge pull
+     * out the hidden sheet; 0 turns it off. The sheet is measured and laid out as soon as the
+     * finger goes down in the zone and follows it from the first move towards the content.
+     */
+    public void setEdgeSwipeWidth(int edgeSwipeWidth) {
+        mEdgeSwipeWidth = Math.max(0, edgeSwipeWidth);
+    }
+
+    public int getEdgeSwipeWidth() {
+        return mEdgeSwipeWidth;
+    }
+
+    private boolean isInEdgeSwipeZone(CoordinatorLayout parent, int x) {
+        return mEdgeSwipeWidth > 0 && mGeometry.isHideable()
+                && mGeometry.toOffsetX(x) >= parent.getWidth() - mEdgeSwipeWidth;
+    }
+
+    /**
+     * Measures and lays out the sheet now if a layout is pending, instead of on the next frame.
+     */
+    private void prelayoutSheet(CoordinatorLayout parent, V child) {
+        if (!child.isLayoutRequested() && child.getWidth() > 0) {
+            return;
+        }
+        parent.onMeasureChild(child,
+                View.MeasureSpec.makeMeasureSpec(parent.getWidth(), View.MeasureSpec.EXACTLY), 0,
+                View.MeasureSpec.makeMeasureSpec(parent.getHeight(), View.MeasureSpec.EXACTLY), 0);
+        onLayoutChild(parent, child, ViewCompat.getLayoutDirection(parent));
+    }
+
+    /**
+     * Captures the sheet on the first move of an edge swipe that heads into the parent, or gives
+     * up the swipe when the move is mostly vertical.
+     */
+    private boolean tryEdgeSwipe(V child, MotionEvent event) {
+        float dx = mGeometry.getDirection() * (event.getX() - mInitialX);
+        float dy = event.getY() - mInitialY;
+        if (dx == 0 && dy == 0) {
+            return false;
+        }
+        mEdgeSwiping = false;
+        if (dx >= 0 || Math.abs(dy) > Math.abs(dx)) {
+            mIgnoreEvents = true;
+            return false;
+        }
+        mViewDragHelper.captureChildView(child, event.getPointerId(event.getActionIndex()));
+        int left = mGeometry.clampLeft(getSheetLeft(child) + (int) dx);
+        moveSheetTo(child, left);
+        dispatchOnSlide(left);
+        return true;
+    }
+
+    /**
+     * Sets the color the parent dims the content behind the sheet with. The parent draws it in a
+     * single rect, with its alpha scaled by how much of the sheet is on screen, and skips it
+     * entirely while that is zero. A scrim also blocks touches to the views below the sheet. In
+     * {@link #MOVEMENT_TRANSLATION} mode the behavior draws the scrim in the parent's overlay
+     * from API 18, around the translated sheet; a covered sheet draws none there.
+     */
+    public void setScrimColor(@ColorInt int scrimColor) {
+        mScrimColor = scrimColor;
+        View view = mViewRef != null ? mViewRef.get() : null;
+        if (view != null && view.getParent() instanceof ViewGroup) {
+            updateTranslatedScrim((ViewGroup) view.getParent());
+        }
+        invalidateScrim();
+    }
+
+    @ColorInt
+    public int getScrimColor() {
+        return mScrimColor;
+    }
+
+    @Override
+    public int getScrimColor(CoordinatorLayout parent, V child) {
+        return mScrimColor;
+    }
+
+    /**
+     * The parent leaves the sheet's layout bounds out of its scrim, which a translated sheet
+     * moves away from, so the parent draws nothing while {@link TranslatedScrim} draws it.
+     */
+    @Override
+    public float getScrimOpacity(CoordinatorLayout parent, V child) {
+        return mTranslatedScrimParent != null ? 0 : getScrimFraction(child);
+    }
+
+    @Override
+    public boolean blocksInteractionBelow(CoordinatorLayout parent, V child) {
+        return getScrimFraction(child) > 0;
+    }
+
+    private float getScrimFraction(V child) {
+        int alpha = Color.alpha(mScrimColor);
+        if (alpha == 0 || mViewRef == null) {
+            return 0;
+        }
+        int range = mGeometry.getHiddenOffset() - mGeometry.getMinOffset();
+        if (range <= 0) {
+            return 0;
+        }
+        float visible = (mGeometry.getHiddenOffset() - getSheetLeft(child)) / (float) range;
+        return MathUtils.constrain(visible, 0f, 1f) * alpha / 255f;
+    }
+
+    /**
+     * Puts the scrim of a translated sheet in the overlay of {@code parent}, or takes it out of
+     * the overlay it is in when the parent can draw the scrim itself.
+     */
+    private void updateTranslatedScrim(@Nullable ViewGroup parent) {
+        if (Build.VERSION.SDK_INT < 18) {
+            return;
+        }
+        boolean translated = parent != null && mMovementMode == MOVEMENT_TRANSLATION
+                && Color.alpha(mScrimColor) != 0;
+        if (mTranslatedScrimParent != null && (!translated || mTranslatedScrimParent != parent)) {
+            mTranslatedScrimParent.getOverlay().remove(mTranslatedScrim);
+            mTranslatedScrimParent = null;
+        }
+        if (!translated) {
+            return;
+        }
+        if (mTranslatedScrim == null) {
+            mTranslatedScrim = new TranslatedScrim();
+        }
+        mTranslatedScrim.setBounds(parent.getPaddingLeft(), parent.getPaddingTop(),
+                parent.getWidth() - parent.getPaddingRight(),
+                parent.getHeight() - parent.getPaddingBottom());
+        if (mTranslatedScrimParent == null) {
+            parent.getOverlay().add(mTranslatedScrim);
+            mTranslatedScrimParent = parent;
+        }
+    }
+
+    /**
+     * Alpha the overlay scrim of a translated sheet is drawn with, 0 while there is none.
+     */
+    int getTranslatedScrimAlpha(V child) {
+        if (mTranslatedScrimParent == null || mCovered) {
+            return 0;
+        }
+        return MathUtils.constrain(Math.round(255 * getScrimFraction(child)), 0, 255);
+    }
+
+    /**
+     * Sets a listener for taps outside the sheet, found with a hit test on the parent rather
+     * than a view laid over the content.
+     */
+    public void setOnOutsideTapListener(@Nullable OnOutsideTapListener listener) {
+        mOutsideTapListener = listener;
+        if (listener == null) {
+            mOutsideTapping = false;
+        }
+    }
+
+    /**
+     * Covers the sheet with another sheet of a {@link SideSheetStack}. A covered sheet takes no
+     * gestures and holds no layers: touches on it are swallowed, and a tap on it goes to its
+     * {@link OnOutsideTapListener} as if it were the content behind the sheet on top.
+     */
+    void setCovered(boolean covered) {
+        if (mCovered == covered) {
+            return;
+        }
+        mCovered = covered;
+        mOutsideTapping = false;
+        if (covered) {
+            if (mDragResources != null) {
+                mDragResources.release(mDragCallback);
+            }
+            demoteLayers();
+        } else if (SheetStates.isMoving(mState)) {
+            promoteLayers();
+        }
+    }
+
+    boolean isCovered() {
+        return mCovered;
+    }
+
+    private boolean interceptCoveredTouch(CoordinatorLayout parent, V child, MotionEvent event,
+                                          int action) {
+        if (action != MotionEvent.ACTION_DOWN) {
+            return false;
+        }
+        mInitialX = (int) event.getX();
+        mInitialY = (int) event.getY();
+        boolean inSheet = parent.isPointInChildBounds(child, mInitialX, mInitialY);
+        mOutsideTapping = inSheet && mOutsideTapListener != null;
+        return inSheet;
+    }
+
+    /**
+     * Shares a drag helper and velocity estimator with the other sheets of a
+     * {@link SideSheetStack}, or gives the sheet its own again for null.
+     */
+    void setDragResources(@Nullable SideSheetDragResources resources) {
+        if (mDragResources == resources) {
+            return;
+        }
+        if (mDragResources != null) {
+            mDragResources.release(mDragCallback);
+        }
+        mDragResources = resources;
+        mVelocityEstimator = null;
+        View child = mViewRef != null ? mViewRef.get() : null;
+        mViewDragHelper = child != null && child.getParent() instanceof CoordinatorLayout
+                ? createDragHelper((CoordinatorLayout) child.getParent()) : null;
+    }
+
+    private ViewDragHelper obtainDragHelper(CoordinatorLayout parent) {
+        if (mViewDragHelper == null) {
+            mViewDragHelper = createDragHelper(parent);
+        }
+        return mViewDragHelper;
+    }
+
+    private ViewDragHelper createDragHelper(CoordinatorLayout parent) {
+        return mDragResources != null ? mDragResources.getDragHelper(parent)
+                : ViewDragHelper.create(parent, mDragCallback);
+    }
+
+    private void trackOutsideTap(V child, MotionEvent event, int action) {
+        switch (action) {
+            case MotionEvent.ACTION_MOVE:
+                int slop = mViewDragHelper.getTouchSlop();
+                if (Math.abs(event.getX() - mInitialX) > slop
+                        || Math.abs(event.getY() - mInitialY) > slop) {
+                    mOutsideTapping = false;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                mOutsideTapping = false;
+                if (mOutsideTapListener != null) {
+                    mOutsideTapListener.onOutsideTap(child);
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                mOutsideTapping = false;
+                break;
+        }
+    }
+
+    private void invalidateScrim() {
+        if (mViewRef == null) {
+            return;
+        }
+        V view = mViewRef.get();
+        if (view != null && view.getParent() instanceof View) {
+            ((View) view.getParent()).invalidate();
+        }
+    }
+
+    private void promoteLayers() {
+        if (mLayersPromoted || mLayerPolicy == LAYER_POLICY_NONE || mCovered
+                || mViewRef == null) {
+            return;
+        }
+        View sheet = mViewRef.get();
+        if (sheet == null) {
+            return;
+        }
+        mLayersPromoted = true;
+        mSheetLayerType = ViewCompat.getLayerType(sheet);
+        ViewCompat.setLayerType(sheet, ViewCompat.LAYER_TYPE_HARDWARE, null);
+    }
+
+    private void demoteLayers() {
+        if (!mLayersPromoted) {
+            return;
+        }
+        mLayersPromoted = false;
+        View sheet = mViewRef != null ? mViewRef.get() : null;
+        if (sheet != null) {
+            ViewCompat.setLayerType(sheet, mSheetLayerType, null);
+        }
+    }
+
+    /**
+     * Sets the engine that moves the sheet to its resting position after a release or a call to
+     * {@link #setState(int)}. A null engine falls back to the {@link ViewDragHelper} scroller,
+     * which ignores the release velocity and can't be caught mid-flight. In
+     * {@link #MOVEMENT_TRANSLATION} mode a null engine, like the default one, settles with a
+     * property animation.
+     */
+    public void setSettleEngine(@Nullable SettleEngine settleEngine) {
+        stopSettling();
+        mSettleEngine = settleEngine;
+        mSettleEngineSet = settleEngine != null;
+    }
+
+    @Nullable
+    public SettleEngine getSettleEngine() {
+        return mSettleEngine;
+    }
+
+    /**
+     * Sets the clock that steps the settle engine; null restores the display's frame clock.
+     */
+    public void setFrameClock(@Nullable FrameClock frameClock) {
+        stopSettling();
+        cancelSlideFrame();
+        flushPendingSlide();
+        cancelIdleWorkFrame();
+        mFrameClock = frameClock;
+        scheduleIdleWork();
+    }
+
+    FrameClock getFrameClock() {
+        if (mFrameClock == null) {
+            mFrameClock = ChoreographerFrameClock.getInstance();
+        }
+        return mFrameClock;
+    }
+
+    /**
+     * Sets the intermediate resting positions of the sheet, or removes them with null. Releases
+     * pick among expanded, the detents and collapsed by projecting the release velocity.
+     */
+    public void setDetents(@Nullable DetentSpec detents) {
+        mGeometry.setDetents(detents);
+        if (mViewRef != null) {
+            V view = mViewRef.get();
+            if (view != null) {
+                view.requestLayout();
+            }
+        }
+    }
+
+    /**
+     * The detent the sheet rests at or settles to, or {@link #NO_DETENT}.
+     */
+    public int getDetent() {
+        return mDetent;
+    }
+
+    /**
+     * Moves the sheet to detent {@code detent}, an index into the current {@link DetentSpec}.
+     */
+    public final void setDetent(int detent) {
+        if (detent < 0 || detent >= mGeometry.getDetentCount()) {
+            throw new IllegalArgumentException("Illegal detent " + detent);
+        }
+        setStateAndDetent(STATE_DETENT, detent);
+    }
+
+    /**
+     * Moves the sheet to {@code state}. {@link #STATE_DETENT} moves it to the current detent, or
+     * the first one if it isn't at a detent.
+     */
+    public final void setState(final @State int state) {
+        if (state == STATE_DETENT) {
+            setDetent(mDetent != NO_DETENT ? mDetent : 0);
+        } else {
+            setStateAndDetent(state, NO_DETENT);
+        }
+    }
+
+    private void setStateAndDetent(final @State int state, final int detent) {
+        if (state == mState && detent == mDetent) {
+            return;
+        }
+
+        if (mViewRef == null) {
+            if (state == STATE_COLLAPSED || state == STATE_EXPANDED || state == STATE_DETENT ||
+                    (mGeometry.isHideable() && state == STATE_HIDDEN)) {
+                mState = state;
+                mDetent = detent;
+            }
+            return;
+        }
+
+        final View child = mViewRef.get();
+        if (child == null) {
+            return;
+        }
+
+        ViewParent parent = child.getParent();
+        if (parent != null && parent.isLayoutRequested() &&
+                ViewCompat.isAttachedToWindow(child)) {
+            child.post(new Runnable() {
+                @Override
+                public void run() {
+                    startSettling(child, state, detent, 0);
+                }
+            });
+        } else {
+            startSettling(child, state, detent, 0);
+        }
+    }
+
+    /**
+     * Scrolls the nested scrolling child back to its saved position. Views with an id save and
+     * restore their own scroll position, so only views without one are scrolled.
+     */
+    private void restoreNestedScroll() {
+        if (!mRestoreScroll) {
+            return;
+        }
+        mRestoreScroll = false;
+        View scroll = mNestedScrollingChildRef != null ? mNestedScrollingChildRef.get() : null;
+        if (scroll != null && scroll.getId() == View.NO_ID) {
+            scroll.scrollTo(mRestoredScrollX, mRestoredScrollY);
+        }
+    }
+
+    /**
+     * Places the sheet at its hidden position and settles it to {@code state}, as soon as it has
+     * been laid out if it has not been yet. This is the enter transition of
+     * {@link SideSheetDialog} and {@link SideSheetOverlay}: it works whether or not the sheet is
+     * hideable, and callbacks do not see the sheet become hidden first.
+     *
+     * @param state {@link #STATE_COLLAPSED} or {@link #STATE_EXPANDED}
+     */
+    public void animateIn(@State int state) {
+        if (state != STATE_COLLAPSED && state != STATE_EXPANDED) {
+            throw new IllegalArgumentException("Illegal enter state " + state);
+        }
+        stopSettling();
+        mAnimatingOut = false;
+        mExitAction = null;
+        mState = STATE_HIDDEN;
+        mDetent = NO_DETENT;
+        mEnterState = state;
+        View child = mViewRef != null ? mViewRef.get() : null;
+        if (child == null) {
+            return;
+        }
+        if (ViewCompat.isLaidOut(child) && !child.isLayoutRequested()) {
+            moveSheetTo(child, mGeometry.getHiddenOffset());
+            startEnter(child);
+        } else {
+            child.requestLayout();
+        }
+    }
+
+    private void startEnter(View child) {
+        int state = mEnterState;
+        mEnterState = NO_STATE;
+        startSettling(child, state, NO_DETENT, 0);
+    }
+
+    /**
+     * Settles the sheet to its hidden position, whether or not it is hideable, and runs
+     * {@code endAction} once it is there. The sheet cannot be caught while it leaves. When there
+     * is nothing on screen to move, {@code endAction} runs right away.
+     */
+    public void animateOut(@Nullable Runnable endAction) {
+        mEnterState = NO_STATE;
+        View child = mViewRef != null ? mViewRef.get() : null;
+        if (child == null || !ViewCompat.isLaidOut(child) || mState == STATE_HIDDEN) {
+            if (endAction != null) {
+                endAction.run();
+            }
+            return;
+        }
+        stopSettling();
+        if (mViewDragHelper != null
+                && (mDragResources == null || mDragResources.isOwner(mDragCallback))) {
+            mViewDragHelper.abort();
+        }
+        mAnimatingOut = true;
+        mExitAction = endAction;
+        startSettling(child, STATE_HIDDEN, NO_DETENT, 0);
+    }
+
+    /**
+     * Whether {@link #animateOut} is moving the sheet out.
+     */
+    boolean isAnimatingOut() {
+        return mAnimatingOut;
+    }
+
+    private int resolvedDetent(@State int targetState) {
+        return targetState == STATE_DETENT ? mGeometry.getResolvedDetent() : NO_DETENT;
+    }
+
+    /**
+     * Resting offset of {@code targetState}. {@link #animateIn} and {@link #animateOut} move
+     * sheets that are not hideable through the hidden offset too, so it skips the hideable check.
+     */
+    private int getSettleOffset(@State int targetState, int detent) {
+        return targetState == STATE_HIDDEN
+                ? mGeometry.getHiddenOffset()
+                : mGeometry.getOffsetForState(targetState, detent);
+    }
+
+    /**
+     * Moves the sheet to the resting position of {@code targetState}.
+     *
+     * @param velocity current horizontal velocity of the sheet in pixels per second
+     */
+    void startSettling(View child, @State int targetState, int detent, float velocity) {
+        int left = getSettleOffset(targetState, detent);
+        if (mMovementMode == MOVEMENT_TRANSLATION && !mSettleEngineSet) {
+            animateTranslation(child, targetState, detent, left);
+            return;
+        }
+        if (mSettleEngine == null) {
+            if (!(child.getParent() instanceof CoordinatorLayout)) {
+                moveSheetTo(child, left);
+                setStateInternal(targetState, detent);
+                return;
+            }
+            ViewDragHelper helper = obtainDragHelper((CoordinatorLayout) child.getParent());
+            if (mDragResources != null) {
+                mDragResources.claim(mDragCallback);
+            }
+            int finalLeft = mGeometry.toLeft(left);
+            boolean settling = helper.getCapturedView() == child
+                    ? helper.settleCapturedViewAt(finalLeft, child.getTop())
+                    : helper.smoothSlideViewTo(child, finalLeft, child.getTop());
+            if (settling) {
+                setStateInternal(STATE_SETTLING);
+                if (mSettleRunnable != null) {
+                    child.removeCallbacks(mSettleRunnable);
+                }
+                mSettleRunnable = new SettleRunnable(child, targetState, detent);
+                ViewCompat.postOnAnimation(child, mSettleRunnable);
+            } else {
+                setStateInternal(targetState, detent);
+            }
+            return;
+        }
+        mSettleDriver.stop();
+        mSettleEngine.start(getSheetLeft(child), left, velocity);
+        if (!mSettleEngine.isRunning()) {
+            moveSheetTo(child, left);
+            setStateInternal(targetState, detent);
+            return;
+        }
+        setStateInternal(STATE_SETTLING);
+        mSettleDriver.start(targetState, detent,
+                targetState == STATE_HIDDEN || getSheetLeft(child) > mGeometry.getMaxOffset());
+    }
+
+    /**
+     * Settles a translated sheet with a property animation when no settle engine is set. Only
+     * callbacks and frame metrics need an update listener; without them the animation runs
+     * without the UI thread and the slide is reported once it ends.
+     */
+    private void animateTranslation(View child, @State int targetState, int detent, int left) {
+        float translation = mGeometry.toLeft(left) - child.getLeft();
+        if (ViewCompat.getTranslationX(child) == translation) {
+            setStateInternal(targetState, detent);
+            return;
+        }
+        mTranslationTargetState = targetState;
+        mTranslationTargetDetent = detent;
+        mTranslationSettling = true;
+        mTranslationSlides = mCallbacks.length > 0 || mMetricsListener != null
+                || Color.alpha(mScrimColor) != 0;
+        setStateInternal(STATE_SETTLING);
+        ViewCompat.animate(child)
+                .translationX(translation)
+                .setDuration(TRANSLATION_SETTLE_DURATION)
+                .setUpdateListener(mTranslationSlides ? mTranslationUpdateListener : null)
+                .setListener(mTranslationListener)
+                .start();
+    }
+
+    boolean isSettling() {
+        return mSettleDriver.mRunning || mTranslationSettling;
+    }
+
+    void stopSettling() {
+        if (mSettleDriver.mRunning) {
+            mSettleDriver.stop();
+            mSettleEngine.cancel();
+        }
+        if (mTranslationSettling) {
+            mTranslationSettling = false;
+            V view = mViewRef != null ? mViewRef.get() : null;
+            if (view != null) {
+                ViewCompat.animate(view).cancel();
+            }
+        }
+    }
+
+    /**
+     * Puts a settling sheet where it is headed right away, for a sheet that leaves its window.
+     */
+    private void finishSettling(View child) {
+        @State int targetState;
+        int detent;
+        if (mSettleDriver.mRunning) {
+            targetState = mSettleDriver.mTargetState;
+            detent = mSettleDriver.mTargetDetent;
+        } else if (mTranslationSettling) {
+            targetState = mTranslationTargetState;
+            detent = mTranslationTargetDetent;
+        } else if (mSettleRunnable != null) {
+            targetState = mSettleRunnable.mTargetState;
+            detent = mSettleRunnable.mTargetDetent;
+            child.removeCallbacks(mSettleRunnable);
+            mSettleRunnable = null;
+            if (mViewDragHelper != null) {
+                mViewDragHelper.abort();
+            }
+        } else {
+            return;
+        }
+        stopSettling();
+        moveSheetTo(child, getSettleOffset(targetState, detent));
+        setStateInternal(targetState, detent);
+    }
+
+    /**
+     * Gives back memory the sheet can rebuild. Hosts call it from
+     * {@link ComponentCallbacks2#onTrimMemory}: from {@code TRIM_MEMORY_RUNNING_LOW} up the
+     * sheet drops its hardware layers, even while it moves, and a sheet at rest drops its drag
+     * helper and velocity history until the next touch.
+     */
+    public void onTrimMemory(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return;
+        }
+        demoteLayers();
+        if (!SheetStates.isMoving(mState) && (mViewDragHelper == null
+                || mViewDragHelper.getViewDragState() == ViewDragHelper.STATE_IDLE)) {
+            releaseGestureState();
+        }
+    }
+
+    private void scheduleGestureStateRelease() {
+        if (!mGestureStateReleasePosted) {
+            mGestureStateReleasePosted = true;
+            getFrameClock().postFrameCallback(mReleaseGestureStateCallback);
+        }
+    }
+
+    private void cancelGestureStateRelease() {
+        if (mGestureStateReleasePosted) {
+            mGestureStateReleasePosted = false;
+            getFrameClock().removeFrameCallback(mReleaseGestureStateCallback);
+        }
+    }
+
+    /**
+     * Drops the drag helper and velocity history, which only a gesture needs. Runs on a frame
+     * rather than from a state change, so it never pulls them from under a touch event.
+     */
+    private void releaseGestureState() {
+        if (mDragResources != null) {
+            mDragResources.release(mDragCallback);
+        }
+        mViewDragHelper = null;
+        mVelocityEstimator = null;
+        mActivePointerId = MotionEvent.INVALID_POINTER_ID;
+    }
+
+    /**
+     * Runs {@code task} on a frame at which the sheet is at rest: tasks wait while the sheet is
+     * dragged or settles and then run in batches of at most {@link #setIdleWorkBudget} per frame,
+     * highest priority first. Use it for content work that would otherwise cost frames of the
+     * sheet's motion.
+     *
+     * @param priority one of {@link DeferredWorkQueue#PRIORITY_LOW},
+     *                 {@link DeferredWorkQueue#PRIORITY_DEFAULT} and
+     *                 {@link DeferredWorkQueue#PRIORITY_HIGH}, or any other int
+     * @return the queued task, for {@link #cancelIdleWork}
+     */
+    @NonNull
+    public DeferredWorkQueue.Task runWhenIdle(@NonNull Runnable task, int priority) {
+        DeferredWorkQueue.Task queued = mIdleWork.enqueue(task, priority);
+        scheduleIdleWork();
+        return queued;
+    }
+
+    @NonNull
+    public DeferredWorkQueue.Task runWhenIdle(@NonNull Runnable task) {
+        return runWhenIdle(task, DeferredWorkQueue.PRIORITY_DEFAULT);
+    }
+
+    /**
+     * @return false if {@code task} already ran or was cancelled
+     */
+    public boolean cancelIdleWork(@NonNull DeferredWorkQueue.Task task) {
+        boolean cancelled = mIdleWork.cancel(task);
+        if (mIdleWork.isEmpty()) {
+            cancelIdleWorkFrame();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Sets how long deferred work may run per frame. A task that takes longer still runs, but
+     * alone.
+     */
+    public void setIdleWorkBudget(long budget, TimeUnit unit) {
+        mIdleWorkBudgetNanos = unit.toNanos(budget);
+    }
+
+    public long getIdleWorkBudget(TimeUnit unit) {
+        return unit.convert(mIdleWorkBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Drops all deferred work, for a sheet that is handed on to other content.
+     */
+    void clearIdleWork() {
+        mIdleWork.clear();
+        cancelIdleWorkFrame();
+    }
+
+    private void scheduleIdleWork() {
+        if (!mIdleWorkPosted && !mIdleWork.isEmpty() && !mIdleWork.isHeld()) {
+            mIdleWorkPosted = true;
+            getFrameClock().postFrameCallback(mIdleWorkCallback);
+        }
+    }
+
+    private void cancelIdleWorkFrame() {
+        if (mIdleWorkPosted) {
+            mIdleWorkPosted = false;
+            getFrameClock().removeFrameCallback(mIdleWorkCallback);
+        }
+    }
+
+    /**
+     * Chooses how release velocities are estimated, one of
+     * {@link VelocityEstimator#STRATEGY_LSQ2} and {@link VelocityEstimator#STRATEGY_IMPULSE}.
+     */
+    public void setVelocityStrategy(int strategy) {
+        obtainVelocityEstimator().setStrategy(strategy);
+        mVelocityStrategy = strategy;
+    }
+
+    public int getVelocityStrategy() {
+        return mVelocityStrategy;
+    }
+
+    private VelocityEstimator obtainVelocityEstimator() {
+        if (mVelocityEstimator == null) {
+            mVelocityEstimator = mDragResources != null
+                    ? mDragResources.getVelocityEstimator() : new VelocityEstimator();
+            mVelocityEstimator.setStrategy(mVelocityStrategy);
+        }
+        return mVelocityEstimator;
+    }
+
+    private void addMovement(MotionEvent event) {
+        VelocityEstimator estimator = obtainVelocityEstimator();
+        int action = MotionEventCompat.getActionMasked(event);
+        int historySize = event.getHistorySize();
+        for (int p = 0, pointerCount = event.getPointerCount(); p < pointerCount; p++) {
+            int pointerId = event.getPointerId(p);
+            for (int h = 0; h < historySize; h++) {
+                estimator.addMovement(pointerId, event.getHistoricalEventTime(h),
+                        event.getHistoricalX(p, h));
+            }
+            estimator.addMovement(pointerId, event.getEventTime(), event.getX(p));
+        }
+        if (action == MotionEvent.ACTION_POINTER_UP) {
+            // The remaining pointers keep their own history
+            estimator.clearPointer(event.getPointerId(event.getActionIndex()));
+        }
+    }
+
+    /**
+     * Velocity of the pointer holding the sheet or, once it is up, of the last one that moved,
+     * along the offsets.
+     */
+    private float getXVelocity() {
+        VelocityEstimator estimator = obtainVelocityEstimator();
+        int pointerId = mActivePointerId != MotionEvent.INVALID_POINTER_ID
+                ? mActivePointerId : estimator.getLastPointerId();
+        return mGeometry.getDirection() * estimator.getVelocity(pointerId, mMaximumVelocity);
+    }
+
+    /**
+     * Records {@code event} with its batched history, each historical sample as a move of its
+     * own, so that a replay sees every position the velocity was estimated from.
+     */
+    private void recordTouch(int type, MotionEvent event) {
+        int pointerCount = Math.min(event.getPointerCount(), GestureRecorder.MAX_POINTERS);
+        for (int p = 0; p < pointerCount; p++) {
+            mRecordPointerIds[p] = event.getPointerId(p);
+        }
+        for (int h = 0, historySize = event.getHistorySize(); h < historySize; h++) {
+            for (int p = 0; p < pointerCount; p++) {
+                mRecordXs[p] = event.getHistoricalX(p, h);
+                mRecordYs[p] = event.getHistoricalY(p, h);
+            }
+            mGestureRecorder.recordTouch(type,
+                    TimeUnit.MILLISECONDS.toNanos(event.getHistoricalEventTime(h)),
+                    MotionEvent.ACTION_MOVE, pointerCount, mRecordPointerIds, mRecordXs, mRecordYs);
+        }
+        for (int p = 0; p < pointerCount; p++) {
+            mRecordXs[p] = event.getX(p);
+            mRecordYs[p] = event.getY(p);
+        }
+        mGestureRecorder.recordTouch(type, TimeUnit.MILLISECONDS.toNanos(event.getEventTime()),
+                event.getAction(), pointerCount, mRecordPointerIds, mRecordXs, mRecordYs);
+    }
+
+    /**
+     * Now in the time base of {@link MotionEvent#getEventTime()}, for nested scroll events that
+     * carry no time of their own.
+     */
+    private static long uptimeNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(SystemClock.uptimeMillis());
+    }
+
+    private void reset() {
+        mActivePointerId = ViewDragHelper.INVALID_POINTER;
+        if (mVelocityEstimator != null) {
+            mVelocityEstimator.clear();
+        }
+    }
+
+    /**
+     * Uses {@code scrollingChild} for nested scrolling instead of looking for the first
+     * {@link NestedScrollingChild} inside the sheet. Pass null to go back to the lookup.
+     */
+    public void setNestedScrollingChild(@Nullable View scrollingChild) {
+        mNestedScrollingChildExplicit = scrollingChild != null;
+        mNestedScrollingChildValid = mNestedScrollingChildExplicit;
+        updateNestedScrollingChild(scrollingChild);
+    }
+
+    /**
+     * Makes the next layout look for the nested scrolling child again. The lookup is cached and
+     * only redone when the direct children of the sheet change, the found view is detached or
+     * the sheet is, so call this after swapping scrolling views deeper inside the sheet.
+     */
+    public void invalidateNestedScrollingChild() {
+        if (!mNestedScrollingChildExplicit) {
+            mNestedScrollingChildValid = false;
+        }
+    }
+
+    private void resolveNestedScrollingChild(View sheet) {
+        if (mNestedScrollingChildExplicit) {
+            return;
+        }
+        ViewGroup group = sheet instanceof ViewGroup ? (ViewGroup) sheet : null;
+        if (mNestedScrollingChildValid && isSameLookupChildren(group)) {
+            return;
+        }
+        updateNestedScrollingChild(findScrollingChild(sheet));
+        int childCount = group != null ? group.getChildCount() : 0;
+        if (mNestedScrollingLookupChildren.length < childCount) {
+            mNestedScrollingLookupChildren = new View[childCount];
+        }
+        for (int i = 0; i < childCount; i++) {
+            mNestedScrollingLookupChildren[i] = group.getChildAt(i);
+        }
+        Arrays.fill(mNestedScrollingLookupChildren, childCount,
+                mNestedScrollingLookupChildren.length, null);
+        mNestedScrollingLookupChildCount = childCount;
+        mNestedScrollingChildValid = true;
+    }
+
+    /**
+     * Whether the sheet has the same direct children, by identity, as when the lookup ran.
+     */
+    private boolean isSameLookupChildren(@Nullable ViewGroup sheet) {
+        int childCount = sheet != null ? sheet.getChildCount() : 0;
+        if (childCount != mNestedScrollingLookupChildCount) {
+            return false;
+        }
+        for (int i = 0; i < childCount; i++) {
+            if (sheet.getChildAt(i) != mNestedScrollingLookupChildren[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clearNestedScrollingLookup() {
+        Arrays.fill(mNestedScrollingLookupChildren, null);
+        mNestedScrollingLookupChildCount = 0;
+        if (!mNestedScrollingChildExplicit) {
+            mNestedScrollingChildValid = false;
+        }
+    }
+
+    private void updateNestedScrollingChild(View scrollingChild) {
+        View current = mNestedScrollingChildRef != null ? mNestedScrollingChildRef.get() : null;
+        if (mNestedScrollingChildRef != null && current == scrollingChild) {
+            return;
+        }
+        if (current != null) {
+            current.removeOnAttachStateChangeListener(mScrollingChildAttachListener);
+        }
+        if (scrollingChild != null) {
+            scrollingChild.addOnAttachStateChangeListener(mScrollingChildAttachListener);
+        }
+        mNestedScrollingChildRef = new WeakReference<>(scrollingChild);
+    }
+
+    private View findScrollingChild(View view) {
+        if (view instanceof NestedScrollingChild) {
+            return view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0, count = group.getChildCount(); i < count; i++) {
+                View scrollingChild = findScrollingChild(group.getChildAt(i));
+                if (scrollingChild != null) {
+                    return scrollingChild;
+                }
+            }
+        }
+        return null;
+    }
+
+    void setStateInternal(int state) {
+        setStateInternal(state, NO_DETENT);
+    }
+
+    void setStateInternal(int state, int detent) {
+        if (mState == state && mDetent == detent) {
+            return;
+        }
+        mState = state;
+        mDetent = detent;
+        if (SheetStates.isMoving(state)) {
+            promoteLayers();
+        } else {
+            demoteLayers();
+        }
+        // Deferred work waits out drags and settles, and resumes on the next frame at rest
+        mIdleWork.setHeld(SheetStates.isMoving(state));
+        scheduleIdleWork();
+        if (state == STATE_HIDDEN) {
+            scheduleGestureStateRelease();
+        } else {
+            cancelGestureStateRelease();
+        }
+        View sideSheet = mViewRef != null ? mViewRef.get() : null;
+        if (sideSheet != null && mMetricsListener != null) {
+            trackPhase(sideSheet, state);
+        }
+        flushPendingSlide();
+        if (sideSheet != null) {
+            SideSheetCallback[] callbacks = mCallbacks;
+            for (SideSheetCallback callback : callbacks) {
+                callback.onStateChanged(sideSheet, state);
+            }
+        }
+        if (mAnimatingOut && !SheetStates.isMoving(state)) {
+            // Reaching any other resting state abandons the exit
+            Runnable exitAction = state == STATE_HIDDEN ? mExitAction : null;
+            mAnimatingOut = false;
+            mExitAction = null;
+            if (exitAction != null) {
+                exitAction.run();
+            }
+        }
+    }
+
+    void dispatchOnSlide(int left) {
+        if (Color.alpha(mScrimColor) != 0) {
+            // The scrim covers the whole parent, not just the area the sheet moved over
+            invalidateScrim();
+        }
+        if (mMetricsListener != null && !mSettleDriver.mRunning) {
+            // The settle driver reports its frames itself, at the frame time
+            mFrameStats.onFrame(getFrameClock().nanoTime(), left);
+        }
+        if (mCoalesceSlide) {
+            mPendingSlideLeft = left;
+            mSlidePending = true;
+            if (!mSlideFramePosted) {
+                mSlideFramePosted = true;
+                getFrameClock().postFrameCallback(mSlideFrameCallback);
+            }
+        } else {
+            deliverSlide(left);
+        }
+    }
+
+    private void flushPendingSlide() {
+        if (mSlidePending) {
+            mSlidePending = false;
+            deliverSlide(mPendingSlideLeft);
+        }
+    }
+
+    private void cancelSlideFrame() {
+        if (mSlideFramePosted) {
+            mSlideFramePosted = false;
+            getFrameClock().removeFrameCallback(mSlideFrameCallback);
+        }
+    }
+
+    private void deliverSlide(int left) {
+        View sideSheet = mViewRef != null ? mViewRef.get() : null;
+        if (sideSheet == null) {
+            return;
+        }
+        SideSheetCallback[] callbacks = mCallbacks;
+        if (callbacks.length == 0) {
+            return;
+        }
+        float slideOffset = mGeometry.getSlideOffset(left);
+        for (SideSheetCallback callback : callbacks) {
+            callback.onSlide(sideSheet, slideOffset);
+        }
+    }
+
+    private void trackPhase(View sideSheet, int newState) {
+        long now = getFrameClock().nanoTime();
+        int left = getSheetLeft(sideSheet);
+        if (mFrameStats.isRunning()) {
+            mFrameStats.end(now, left);
+            mMetricsListener.onPhaseFinished(sideSheet, mFrameStats);
+            mFrameStats.finish();
+        }
+        if (newState == STATE_DRAGGING) {
+            mFrameStats.begin(FrameStats.PHASE_DRAG, now, left, getFrameIntervalNanos(sideSheet));
+        } else if (newState == STATE_SETTLING) {
+            mFrameStats.begin(FrameStats.PHASE_SETTLE, now, left, getFrameIntervalNanos(sideSheet));
+        }
+    }
+
+    private static long getFrameIntervalNanos(View view) {
+        WindowManager windowManager = (WindowManager) view.getContext()
+                .getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+        return (long) (TimeUnit.SECONDS.toNanos(1) / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    @IntDef({MOVEMENT_OFFSET, MOVEMENT_TRANSLATION})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface MovementMode {
+    }
+
+    @IntDef({LAYER_POLICY_NONE, LAYER_POLICY_SHEET})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface LayerPolicy {
+    }
+
+    @IntDef({STATE_EXPANDED, STATE_COLLAPSED, STATE_DRAGGING, STATE_SETTLING, STATE_HIDDEN,
+            STATE_DETENT})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface State {
+    }
+
+    public abstract static class SideSheetCallback {
+
+        public abstract void onStateChanged(@NonNull View sideSheet, @State int newState);
+
+        public abstract void onSlide(@NonNull View sideSheet, float slideOffset);
+    }
+
+    public interface OnOutsideTapListener {
+
+        void onOutsideTap(@NonNull View sideSheet);
+    }
+
+    /**
+     * Receives frame timing per drag and per settle phase. The stats instance is reused and only
+     * valid for the duration of the call. Times are in the time base of the frame clock.
+     */
+    public interface MetricsListener {
+
+        void onPhaseFinished(@NonNull View sideSheet, @NonNull FrameStats stats);
+    }
+
+    /**
+     * Everything the sheet needs to come back without settling: the resting state, detent, peek
+     * width, hideable and skip collapsed flags and the nested scrolling child's scroll position.
+     * The flags and the state share one int, and the scroll position is only written when there
+     * is a nested scrolling child.
+     */
+    protected static class SavedState extends AbsSavedState {
+        public static final Creator<SavedState> CREATOR = ParcelableCompat.newCreator(
+                new ParcelableCompatCreatorCallbacks<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in, ClassLoader loader) {
+                        return new SavedState(in, loader);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                });
+
+        private static final int STATE_MASK = 0xff;
+        private static final int FLAG_HIDEABLE = 1 << 8;
+        private static final int FLAG_SKIP_COLLAPSED = 1 << 9;
+        private static final int FLAG_SCROLL = 1 << 10;
+
+        @State
+        final int state;
+        final int detent;
+        final int peekWidth;
+        final boolean hideable;
+        final boolean skipCollapsed;
+        final boolean hasScroll;
+        final int scrollX;
+        final int scrollY;
+
+        public SavedState(Parcel source) {
+            this(source, null);
+        }
+
+        public SavedState(Parcel source, ClassLoader loader) {
+            super(source, loader);
+            int packed = source.readInt();
+            //noinspection WrongConstant
+            state = packed & STATE_MASK;
+            hideable = (packed & FLAG_HIDEABLE) != 0;
+            skipCollapsed = (packed & FLAG_SKIP_COLLAPSED) != 0;
+            hasScroll = (packed & FLAG_SCROLL) != 0;
+            detent = source.readInt();
+            peekWidth = source.readInt();
+            scrollX = hasScroll ? source.readInt() : 0;
+            scrollY = hasScroll ? source.readInt() : 0;
+        }
+
+        SavedState(Parcelable superState, @State int state, int detent, int peekWidth,
+                   boolean hideable, boolean skipCollapsed, @Nullable View scroll) {
+            super(superState);
+            this.state = state;
+            this.detent = detent;
+            this.peekWidth = peekWidth;
+            this.hideable = hideable;
+            this.skipCollapsed = skipCollapsed;
+            hasScroll = scroll != null;
+            scrollX = hasScroll ? scroll.getScrollX() : 0;
+            scrollY = hasScroll ? scroll.getScrollY() : 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            int packed = state & STATE_MASK;
+            if (hideable) {
+                packed |= FLAG_HIDEABLE;
+            }
+            if (skipCollapsed) {
+                packed |= FLAG_SKIP_COLLAPSED;
+            }
+            if (hasScroll) {
+                packed |= FLAG_SCROLL;
+            }
+            out.writeInt(packed);
+            out.writeInt(detent);
+            out.writeInt(peekWidth);
+            if (hasScroll) {
+                out.writeInt(scrollX);
+                out.writeInt(scrollY);
+            }
+        }
+    }
+
+    /**
+     * Steps the settle engine once per frame and moves the sheet along its trajectory.
+     */
+    private class SettleDriver implements FrameClock.Callback {
+
+        boolean mRunning;
+
+        @State
+        private int mTargetState;
+
+        private int mTargetDetent;
+
+        private long mLastFrameTimeNanos;
+
+        /**
+         * Whether the sheet may pass the hidden side of its resting range, as it does on enter
+         * and exit whether or not it is hideable.
+         */
+        private boolean mThroughHidden;
+
+        /**
+         * Velocity handed to the nested scrolling child once the sheet is expanded, or 0.
+         */
+        float mHandOffVelocity;
+
+        void start(@State int targetState, int targetDetent, boolean throughHidden) {
+            FrameClock clock = getFrameClock();
+            mTargetState = targetState;
+            mTargetDetent = targetDetent;
+            mThroughHidden = throughHidden;
+            mHandOffVelocity = 0;
+            mLastFrameTimeNanos = clock.nanoTime();
+            mRunning = true;
+            clock.postFrameCallback(this);
+        }
+
+        void stop() {
+            mHandOffVelocity = 0;
+            if (mRunning) {
+                mRunning = false;
+                getFrameClock().removeFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            View child = mViewRef != null ? mViewRef.get() : null;
+            if (child == null) {
+                mRunning = false;
+                mSettleEngine.cancel();
+                return;
+            }
+            boolean running = mSettleEngine.step(frameTimeNanos - mLastFrameTimeNanos);
+            mLastFrameTimeNanos = frameTimeNanos;
+            int left = Math.round(mSettleEngine.getPosition());
+            left = mThroughHidden
+                    ? MathUtils.constrain(left, mGeometry.getMinOffset(),
+                            mGeometry.getHiddenOffset())
+                    : mGeometry.clampLeft(left);
+            if (mMetricsListener != null) {
+                mFrameStats.onFrame(frameTimeNanos, left);
+            }
+            if (left != getSheetLeft(child)) {
+                moveSheetTo(child, left);
+                dispatchOnSlide(left);
+            }
+            if (running) {
+                getFrameClock().postFrameCallback(this);
+            } else {
+                mRunning = false;
+                float handOffVelocity = mHandOffVelocity;
+                mHandOffVelocity = 0;
+                setStateInternal(mTargetState, mTargetDetent);
+                if (handOffVelocity != 0 && mState == STATE_EXPANDED) {
+                    handOffFling(handOffVelocity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scrim of a translated sheet, drawn in the parent's overlay over everything but the sheet
+     * where it is translated to.
+     */
+    private final class TranslatedScrim extends Drawable {
+
+        private final Paint mPaint = new Paint();
+
+        @Override
+        public void draw(@NonNull Canvas canvas) {
+            V child = mViewRef != null ? mViewRef.get() : null;
+            int alpha = child != null ? getTranslatedScrimAlpha(child) : 0;
+            if (alpha == 0) {
+                return;
+            }
+            int left = child.getLeft() + Math.round(ViewCompat.getTranslationX(child));
+            int saved = canvas.save();
+            canvas.clipRect(left, child.getTop(), left + child.getWidth(), child.getBottom(),
+                    Region.Op.DIFFERENCE);
+            mPaint.setColor(mScrimColor);
+            mPaint.setAlpha(alpha);
+            canvas.drawRect(getBounds(), mPaint);
+            canvas.restoreToCount(saved);
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+        }
+
+        @Override
+        public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
     }
 
     private class SettleRunnable implements Runnable {
@@ -652,18 +2484,27 @@ public class SideSheetBehavior<V extends View> extends CoordinatorLayout.Behavio
         @State
         private final int mTargetState;
 
-        private SettleRunnable(View view, @State int targetState) {
+        private final int mTargetDetent;
+
+        private SettleRunnable(View view, @State int targetState, int targetDetent) {
             mView = view;
             mTargetState = targetState;
+            mTargetDetent = targetDetent;
         }
 
 
         @Override
         public void run() {
+            if (mMetricsListener != null) {
+                mFrameStats.onFrame(getFrameClock().nanoTime(), getSheetLeft(mView));
+            }
             if (mViewDragHelper != null && mViewDragHelper.continueSettling(true)) {
                 ViewCompat.postOnAnimation(mView, this);
             } else {
-                setStateInternal(mTargetState);
+                if (mSettleRunnable == this) {
+                    mSettleRunnable = null;
+                }
+                setStateInternal(mTargetState, mTargetDetent);
             }
         }
     }
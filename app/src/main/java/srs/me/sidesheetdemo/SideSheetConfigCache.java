@@ -0,0 +1,227 @@
+package srs.me.sidesheetdemo;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.support.annotation.Nullable;
+import android.support.annotation.StyleRes;
+import android.support.v4.view.GravityCompat;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import java.util.WeakHashMap;
+
+import srs.me.sidesheet.core.DetentSpec;
+
+/**
+ * Process-wide cache of what side sheets resolve from their theme: the dialog theme of a host
+ * theme, and per host and dialog theme the behavior attributes of {@code sideSheetStyle}, the
+ * fling velocity and whether the window closes on touch outside. The dialog theme is applied on
+ * top of the host's, so attributes it leaves out come from the host and the same dialog theme
+ * can resolve differently under another host. Entries remember the configuration
+ * they were resolved in and are resolved again once it changes, so opening a sheet again does no
+ * resource lookups.
+ */
+final class SideSheetConfigCache {
+
+    /**
+     * The values {@link SideSheetBehavior} reads from its attributes.
+     */
+    static final class BehaviorConfig {
+
+        final int peekWidth;
+        final int peekWidthMin;
+        final int peekRegionId;
+        final float peekRatio;
+        final boolean hideable;
+        final boolean skipCollapsed;
+        @Nullable
+        final DetentSpec detents;
+        final int movementMode;
+        final int layerPolicy;
+        final int edgeSwipeWidth;
+        final int gravity;
+        final int scrimColor;
+        final float maximumVelocity;
+
+        private BehaviorConfig(Context context, TypedArray ta) {
+            TypedValue value = ta.peekValue(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_peek_width);
+            if (value != null && value.data == SideSheetBehavior.PEEK_WIDTH_AUTO) {
+                peekWidth = SideSheetBehavior.PEEK_WIDTH_AUTO;
+            } else {
+                peekWidth = ta.getDimensionPixelSize(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_peek_width, SideSheetBehavior.PEEK_WIDTH_AUTO);
+            }
+            peekWidthMin = peekWidth == SideSheetBehavior.PEEK_WIDTH_AUTO
+                    ? context.getResources().getDimensionPixelSize(R.dimen.side_sheet_peek_width_min)
+                    : 0;
+            peekRegionId = ta.getResourceId(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_peek_region, View.NO_ID);
+            peekRatio = ta.getFloat(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_peek_ratio, 0f);
+            hideable = ta.getBoolean(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_layout_behavior_hideable, false);
+            skipCollapsed = ta.getBoolean(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_layout_behavior_skip_collapsed, false);
+            String detentSpec = ta.getString(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_detents);
+            detents = detentSpec != null
+                    ? DetentSpec.parse(detentSpec, context.getResources().getDisplayMetrics().density)
+                    : null;
+            movementMode = ta.getInt(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_movement_mode, SideSheetBehavior.MOVEMENT_OFFSET);
+            layerPolicy = ta.getInt(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_layer_policy, SideSheetBehavior.LAYER_POLICY_NONE);
+            edgeSwipeWidth = ta.getDimensionPixelSize(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_edge_swipe_width, 0);
+            gravity = ta.getInt(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_gravity, GravityCompat.END);
+            scrimColor = ta.getColor(R.styleable.side_sheet_behaviour_layout_side_sheet_behavior_scrim_color, Color.TRANSPARENT);
+            maximumVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
+        }
+
+        /**
+         * Reads the attributes of a behavior declared in a layout, without caching.
+         */
+        static BehaviorConfig read(Context context, @Nullable AttributeSet attrs,
+                                   int defStyleAttr) {
+            TypedArray ta = context.obtainStyledAttributes(attrs,
+                    R.styleable.side_sheet_behaviour_layout, defStyleAttr, 0);
+            try {
+                return new BehaviorConfig(context, ta);
+            } finally {
+                ta.recycle();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final Configuration configuration;
+        final BehaviorConfig behavior;
+        final boolean closeOnTouchOutside;
+
+        Entry(Context context, Configuration configuration) {
+            this.configuration = configuration;
+            behavior = BehaviorConfig.read(context, null, R.attr.sideSheetStyle);
+            closeOnTouchOutside = readCloseOnTouchOutside(context);
+        }
+    }
+
+    private static final class DialogTheme {
+
+        final Configuration configuration;
+        @StyleRes
+        final int resId;
+
+        DialogTheme(Configuration configuration, int resId) {
+            this.configuration = configuration;
+            this.resId = resId;
+        }
+    }
+
+    // Both keyed by the host's theme, which lives as long as the activity it belongs to
+    private static final WeakHashMap<Resources.Theme, SparseArray<Entry>> sEntries =
+            new WeakHashMap<>();
+    private static final WeakHashMap<Resources.Theme, DialogTheme> sDialogThemes =
+            new WeakHashMap<>();
+
+    private SideSheetConfigCache() {
+    }
+
+    /**
+     * The {@code sideSheetDialogTheme} of {@code context}'s theme, or the light side sheet dialog
+     * theme if it has none.
+     */
+    @StyleRes
+    static synchronized int getDialogTheme(Context context) {
+        Resources.Theme theme = context.getTheme();
+        Configuration configuration = context.getResources().getConfiguration();
+        DialogTheme dialogTheme = sDialogThemes.get(theme);
+        if (dialogTheme == null || !dialogTheme.configuration.equals(configuration)) {
+            TypedValue outValue = new TypedValue();
+            int resId = theme.resolveAttribute(R.attr.sideSheetDialogTheme, outValue, true)
+                    ? outValue.resourceId : R.style.Theme_Me_Light_SideSheetDialog;
+            dialogTheme = new DialogTheme(new Configuration(configuration), resId);
+            sDialogThemes.put(theme, dialogTheme);
+        }
+        return dialogTheme.resId;
+    }
+
+    /**
+     * The behavior attributes of {@code sideSheetStyle} in {@code context}, which must wrap the
+     * host's context with {@code themeResId}. A theme of 0 stands for the context's own theme
+     * and is not cached.
+     */
+    static BehaviorConfig getBehaviorConfig(Context context, @StyleRes int themeResId) {
+        if (themeResId == 0) {
+            return BehaviorConfig.read(context, null, R.attr.sideSheetStyle);
+        }
+        return getEntry(context, themeResId).behavior;
+    }
+
+    /**
+     * {@code android:windowCloseOnTouchOutside} of {@code context}, which must wrap the host's
+     * context with {@code themeResId}.
+     */
+    static boolean getCloseOnTouchOutside(Context context, @StyleRes int themeResId) {
+        if (themeResId == 0) {
+            return readCloseOnTouchOutside(context);
+        }
+        return getEntry(context, themeResId).closeOnTouchOutside;
+    }
+
+    /**
+     * Drops every entry from {@code TRIM_MEMORY_RUNNING_LOW} up; they are resolved again on the
+     * next use.
+     */
+    static void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            clear();
+        }
+    }
+
+    /**
+     * Drops every entry.
+     */
+    static synchronized void clear() {
+        sEntries.clear();
+        sDialogThemes.clear();
+    }
+
+    private static boolean readCloseOnTouchOutside(Context context) {
+        TypedArray a = context.obtainStyledAttributes(
+                new int[]{android.R.attr.windowCloseOnTouchOutside});
+        boolean closeOnTouchOutside = a.getBoolean(0, true);
+        a.recycle();
+        return closeOnTouchOutside;
+    }
+
+    private static synchronized Entry getEntry(Context context, int themeResId) {
+        Resources.Theme hostTheme = getHostTheme(context);
+        SparseArray<Entry> entries = sEntries.get(hostTheme);
+        if (entries == null) {
+            entries = new SparseArray<>();
+            sEntries.put(hostTheme, entries);
+        }
+        Configuration configuration = context.getResources().getConfiguration();
+        Entry entry = entries.get(themeResId);
+        if (entry == null || !entry.configuration.equals(configuration)) {
+            entry = new Entry(context, new Configuration(configuration));
+            entries.put(themeResId, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * The theme of the context {@code context} wraps with the dialog theme, or its own theme
+     * when it is the host itself.
+     */
+    private static Resources.Theme getHostTheme(Context context) {
+        if (context instanceof ContextWrapper && !(context instanceof Activity)) {
+            Context base = ((ContextWrapper) context).getBaseContext();
+            if (base != null) {
+                return base.getTheme();
+            }
+        }
+        return context.getTheme();
+    }
+}
@@ -0,0 +1,63 @@
+package srs.me.sidesheetdemo;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.support.design.widget.CoordinatorLayout;
+import android.util.AttributeSet;
+import android.view.KeyEvent;
+
+/**
+ * The {@link CoordinatorLayout} side sheets are shown in. Hosts that live in the activity's
+ * content view get the back presses the views inside leave unhandled, whichever of them has
+ * focus, the way a dialog window gets them before the activity does.
+ */
+final class SideSheetCoordinatorLayout extends CoordinatorLayout {
+
+    interface OnBackPressedListener {
+
+        void onBackPressed();
+    }
+
+    private OnBackPressedListener mOnBackPressedListener;
+    private boolean mBackDown;
+
+    public SideSheetCoordinatorLayout(Context context) {
+        this(context, null);
+    }
+
+    public SideSheetCoordinatorLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Sets the listener that takes back presses, or removes it with null. While a listener is
+     * set, back never reaches the activity.
+     */
+    void setOnBackPressedListener(@Nullable OnBackPressedListener listener) {
+        mOnBackPressedListener = listener;
+        mBackDown = false;
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (super.dispatchKeyEvent(event)) {
+            return true;
+        }
+        if (mOnBackPressedListener == null || event.getKeyCode() != KeyEvent.KEYCODE_BACK) {
+            return false;
+        }
+        if (event.getAction() == KeyEvent.ACTION_DOWN) {
+            if (event.getRepeatCount() == 0) {
+                mBackDown = true;
+            }
+        } else if (event.getAction() == KeyEvent.ACTION_UP) {
+            // Like a dialog, only a press that went down here and was not canceled counts
+            boolean pressed = mBackDown && !event.isCanceled();
+            mBackDown = false;
+            if (pressed) {
+                mOnBackPressedListener.onBackPressed();
+            }
+        }
+        return true;
+    }
+}
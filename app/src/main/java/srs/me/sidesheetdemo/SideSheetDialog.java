@@ -1,17 +1,17 @@
 package srs.me.sidesheetdemo;
 
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.LayoutRes;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.design.widget.CoordinatorLayout;
-import android.support.v4.view.AccessibilityDelegateCompat;
-import android.support.v4.view.ViewCompat;
-import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
 import android.support.v7.app.AppCompatDialog;
-import android.util.TypedValue;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.Window;
@@ -29,20 +29,54 @@ public class SideSheetDialog extends AppCompatDialog {
     boolean mCancelable;
     private boolean mCancelledOnTouchOutSide = true;
     private boolean mCancelledOnTouchOutSideSet;
-    private SideSheetBehavior.SideSheetCallback mCallback =
-            new SideSheetBehavior.SideSheetCallback() {
-                @Override
-                public void onStateChanged(@NonNull View sideSheet, @SideSheetBehavior.State int newState) {
-                    if (newState == SideSheetBehavior.STATE_HIDDEN){
-                        cancel();
-                    }
-                }
+    private final SideSheetShellPool mShellPool;
+    private final int mThemeResId;
+    private SideSheetShell mShell;
+    private View mContentView;
+    private ViewGroup.LayoutParams mContentParams;
+    private final SideSheetShell.Host mShellHost = new SideSheetShell.Host() {
+        @Override
+        public boolean isCancelable() {
+            return mCancelable;
+        }
+
+        @Override
+        public void cancel() {
+            SideSheetDialog.this.cancel();
+        }
 
-                @Override
-                public void onSlide(@NonNull View sideSheet, float slideOffset) {
+        @Override
+        public void onTouchOutside() {
+            if (mCancelable && isShowing() &&
+                    shouldWindowCloseOnTouchOutSide()){
+                SideSheetDialog.this.cancel();
+            }
+        }
+    };
+    private final Runnable mDismissAfterExit = new Runnable() {
+        @Override
+        public void run() {
+            SideSheetDialog.super.dismiss();
+        }
+    };
+    private final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
 
-                }
-            };
+        @Override
+        public void onTrimMemory(int level) {
+            SideSheetConfigCache.onTrimMemory(level);
+            if (mBehavior != null) {
+                mBehavior.onTrimMemory(level);
+            }
+        }
+    };
 
 
     public SideSheetDialog(Context context) {
@@ -52,12 +86,28 @@ public class SideSheetDialog extends AppCompatDialog {
     public SideSheetDialog(Context context, int theme) {
         super(context, getThemeResId(context, theme));
         supportRequestWindowFeature(Window.FEATURE_NO_TITLE);
+        mShellPool = null;
+        mThemeResId = getThemeResId(context, theme);
+    }
+
+    /**
+     * Creates a dialog that takes its sheet from {@code shellPool} and gives it back when
+     * dismissed. The dialog uses the pool's theme.
+     */
+    public SideSheetDialog(Context context, @NonNull SideSheetShellPool shellPool) {
+        super(context, shellPool.getThemeResId());
+        supportRequestWindowFeature(Window.FEATURE_NO_TITLE);
+        mShellPool = shellPool;
+        mThemeResId = shellPool.getThemeResId();
     }
 
     protected SideSheetDialog(Context context, boolean cancelable, OnCancelListener cancelListener) {
         super(context, cancelable, cancelListener);
         supportRequestWindowFeature(Window.FEATURE_NO_TITLE);
         mCancelable = cancelable;
+        mShellPool = null;
+        // The theme comes from AppCompat's dialogTheme here, so it is resolved uncached
+        mThemeResId = 0;
     }
 
 
@@ -91,6 +141,16 @@ public class SideSheetDialog extends AppCompatDialog {
         super.setContentView(wrapInSideSheet(0,view,params));
     }
 
+    /**
+     * The behavior of the sheet, once content has been set and until the dialog is dismissed.
+     * Add callbacks with {@link SideSheetBehavior#addSideSheetCallback} so the dialog's own
+     * stays in place.
+     */
+    @Nullable
+    public SideSheetBehavior<FrameLayout> getBehavior() {
+        return mBehavior;
+    }
+
     @Override
     public void setCancelable(boolean cancelable) {
         super.setCancelable(cancelable);
@@ -105,8 +165,49 @@ public class SideSheetDialog extends AppCompatDialog {
     @Override
     protected void onStart() {
         super.onStart();
-        if (mBehavior != null){
-            mBehavior.setState(SideSheetBehavior.STATE_COLLAPSED);
+        getContext().getApplicationContext().registerComponentCallbacks(mComponentCallbacks);
+        if (mShell == null && mContentView != null) {
+            // Shown again after a dismiss let go of the sheet
+            super.setContentView(wrapInSideSheet(0, mContentView, mContentParams));
+        }
+        if (mBehavior != null && !mBehavior.isRestoringState()){
+            // The window has no animations of its own; the sheet slides in from hidden. A
+            // restored sheet is put back where it was instead.
+            mBehavior.animateIn(SideSheetBehavior.STATE_COLLAPSED);
+        }
+    }
+
+    /**
+     * Slides the sheet out and dismisses the window once it is hidden. Calls made while the sheet
+     * is already leaving are folded into that exit. When the activity is going away or the window
+     * is already off screen the dialog dismisses right away.
+     */
+    @Override
+    public void dismiss() {
+        if (mBehavior == null || !isShowing() || isOwnerTearingDown()) {
+            super.dismiss();
+            return;
+        }
+        if (mBehavior.isAnimatingOut()) {
+            return;
+        }
+        mBehavior.animateOut(mDismissAfterExit);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        getContext().getApplicationContext().unregisterComponentCallbacks(mComponentCallbacks);
+        if (mShell != null) {
+            // The window is gone by now, so the shell can go to the next dialog, or be collected
+            // with its views while the dialog waits to be shown again
+            SideSheetShell shell = mShell;
+            mShell = null;
+            mBehavior = null;
+            shell.detach();
+            if (mShellPool != null) {
+                mShellPool.recycle(shell);
+            }
         }
     }
 
@@ -121,84 +222,56 @@ public class SideSheetDialog extends AppCompatDialog {
     }
 
     private View wrapInSideSheet(int layoutResId, View view, ViewGroup.LayoutParams params){
-        final CoordinatorLayout coordinatorLayout = (CoordinatorLayout)View.inflate(getContext(),
-                R.layout.side_sheet_dialog,null);
+        mShell = mShellPool != null ? mShellPool.acquire()
+                : new SideSheetShell(getContext(), mThemeResId);
+        mShell.attach(mShellHost, mCancelable);
+        CoordinatorLayout coordinatorLayout = mShell.getCoordinator();
 
         if (layoutResId != 0 && view == null){
             view = getLayoutInflater().inflate(layoutResId,coordinatorLayout,false);
         }
 
-        FrameLayout sideSheet = (FrameLayout) coordinatorLayout.findViewById(R.id.side_sheet);
-        mBehavior = SideSheetBehavior.from(sideSheet);
-        mBehavior.setSideSheetCallback(mCallback);
-        mBehavior.setHideable(mCancelable);
+        FrameLayout sideSheet = mShell.getSideSheet();
+        mBehavior = mShell.getBehavior();
         if (params == null){
             sideSheet.addView(view);
         } else {
             sideSheet.addView(view,params);
         }
-        coordinatorLayout.findViewById(R.id.side_sheet_touch_out_side)
-                .setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        if (mCancelable && isShowing() &&
-                                shouldWindowCloseOnTouchOutSide()){
-                            cancel();
-                        }
-                    }
-                });
-
-        ViewCompat.setAccessibilityDelegate(sideSheet, new AccessibilityDelegateCompat(){
-            @Override
-            public void onInitializeAccessibilityNodeInfo(View host,
-                                                          AccessibilityNodeInfoCompat info) {
-                super.onInitializeAccessibilityNodeInfo(host, info);
-                if (mCancelable) {
-                    info.addAction(AccessibilityNodeInfoCompat.ACTION_DISMISS);
-                    info.setDismissable(true);
-                } else {
-                    info.setDismissable(false);
-                }
-            }
-
-            @Override
-            public boolean performAccessibilityAction(View host, int action, Bundle args) {
-                if (action == AccessibilityNodeInfoCompat.ACTION_DISMISS && mCancelable) {
-                    cancel();
-                    return true;
-                }
-                return super.performAccessibilityAction(host, action, args);
-            }
-        });
-
+        mContentView = view;
+        mContentParams = params;
 
         return coordinatorLayout;
     }
 
+    private boolean isOwnerTearingDown() {
+        Activity owner = null;
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                owner = (Activity) context;
+                break;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return SideSheetShell.isHostTearingDown(owner, getWindow().getDecorView());
+    }
+
     boolean shouldWindowCloseOnTouchOutSide(){
         if(!mCancelledOnTouchOutSideSet){
-            TypedArray a = getContext().obtainStyledAttributes(
-                    new int[]{android.R.attr.windowCloseOnTouchOutside}
-            );
-            mCancelledOnTouchOutSide = a.getBoolean(0,true);
-            a.recycle();
+            mCancelledOnTouchOutSide = SideSheetConfigCache.getCloseOnTouchOutside(getContext(),
+                    mThemeResId);
             mCancelledOnTouchOutSideSet = true;
         }
         return mCancelledOnTouchOutSide;
     }
 
 
-    private static int getThemeResId(Context context, int themeId) {
+    static int getThemeResId(Context context, int themeId) {
         if (themeId == 0) {
-            // If the provided theme is 0, then retrieve the dialogTheme from our theme
-            TypedValue outValue = new TypedValue();
-            if (context.getTheme().resolveAttribute(
-                    R.attr.sideSheetDialogTheme, outValue, true)) {
-                themeId = outValue.resourceId;
-            } else {
-                // bottomSheetDialogTheme is not provided; we default to our light theme
-                themeId = R.style.Theme_Me_Light_SideSheetDialog;
-            }
+            // If the provided theme is 0, then retrieve the dialogTheme from our theme, or
+            // default to our light theme
+            themeId = SideSheetConfigCache.getDialogTheme(context);
         }
         return themeId;
     }
@@ -2,7 +2,15 @@ package srs.me.sidesheetdemo;
 
 import android.app.Dialog;
 import android.os.Bundle;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.AsyncLayoutInflater;
 import android.support.v7.app.AppCompatDialogFragment;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
 
 /**
  * @author Sony Raj on 07-07-2017.
@@ -10,8 +18,121 @@ import android.support.v7.app.AppCompatDialogFragment;
 
 public class SideSheetDialogFragment extends AppCompatDialogFragment {
 
+    private ContentInflation mContentInflation;
+
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
+        SideSheetShellPool pool = getShellPool();
+        if (pool != null) {
+            return new SideSheetDialog(getContext(), pool);
+        }
         return new SideSheetDialog(getContext(), getTheme());
     }
+
+    /**
+     * The pool the dialog takes its sheet from: by default the one of an activity implementing
+     * {@link SideSheetShellPool.Owner}, and none when {@link #getTheme()} sets its own theme.
+     */
+    @Nullable
+    protected SideSheetShellPool getShellPool() {
+        if (getTheme() == 0 && getActivity() instanceof SideSheetShellPool.Owner) {
+            return ((SideSheetShellPool.Owner) getActivity()).getSideSheetShellPool();
+        }
+        return null;
+    }
+
+    /**
+     * The layout of the sheet's content. When this returns a layout and {@link #onCreateView}
+     * isn't overridden, the sheet opens right away with the view from
+     * {@link #onCreatePlaceholder} and the content is inflated off the main thread, then handed
+     * to {@link #onContentInflated}.
+     */
+    @LayoutRes
+    protected int getContentLayoutResId() {
+        return 0;
+    }
+
+    /**
+     * A cheap view shown in the sheet until the content is inflated, or null to slide the sheet
+     * in only once the content is there.
+     */
+    @Nullable
+    protected View onCreatePlaceholder(LayoutInflater inflater, ViewGroup container) {
+        return null;
+    }
+
+    /**
+     * Called once the content from {@link #getContentLayoutResId()} is in the sheet. Never called
+     * if the sheet was dismissed before inflation finished.
+     */
+    protected void onContentInflated(@NonNull View content, @Nullable Bundle savedInstanceState) {
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        int layoutResId = getContentLayoutResId();
+        if (layoutResId == 0) {
+            return super.onCreateView(inflater, container, savedInstanceState);
+        }
+        FrameLayout root = new FrameLayout(inflater.getContext());
+        root.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        if (savedInstanceState != null) {
+            // The view hierarchy state is restored right after this, so the content has to exist
+            onContentInflated(inflater.inflate(layoutResId, root, true), savedInstanceState);
+            return root;
+        }
+        View placeholder = onCreatePlaceholder(inflater, root);
+        if (placeholder != null) {
+            root.addView(placeholder);
+        }
+        mContentInflation = new ContentInflation(root, placeholder);
+        new AsyncLayoutInflater(inflater.getContext()).inflate(layoutResId, root,
+                mContentInflation);
+        return root;
+    }
+
+    @Override
+    public void onDestroyView() {
+        // AsyncLayoutInflater can't cancel a request; a stale result is dropped when it arrives
+        mContentInflation = null;
+        super.onDestroyView();
+    }
+
+    private final class ContentInflation implements AsyncLayoutInflater.OnInflateFinishedListener {
+
+        private final ViewGroup mRoot;
+        private final View mPlaceholder;
+
+        ContentInflation(ViewGroup root, View placeholder) {
+            mRoot = root;
+            mPlaceholder = placeholder;
+        }
+
+        @Override
+        public void onInflateFinished(@NonNull View view, int resid, ViewGroup parent) {
+            if (mContentInflation != this) {
+                return;
+            }
+            mContentInflation = null;
+            if (mPlaceholder != null) {
+                mRoot.removeView(mPlaceholder);
+            }
+            mRoot.addView(view);
+            Dialog dialog = getDialog();
+            SideSheetBehavior<FrameLayout> behavior = dialog instanceof SideSheetDialog
+                    ? ((SideSheetDialog) dialog).getBehavior() : null;
+            if (behavior != null) {
+                // The scrolling child was looked up in the placeholder, below the sheet's child
+                behavior.invalidateNestedScrollingChild();
+                if (mPlaceholder == null && !behavior.isAnimatingOut()) {
+                    // The empty sheet entered 0 wide; slide it in now that it has a width
+                    behavior.animateIn(SideSheetBehavior.STATE_COLLAPSED);
+                }
+            }
+            onContentInflated(view, null);
+        }
+    }
 }
@@ -0,0 +1,119 @@
+package srs.me.sidesheetdemo;
+
+import android.support.annotation.Nullable;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.widget.ViewDragHelper;
+import android.view.View;
+
+import srs.me.sidesheet.core.VelocityEstimator;
+
+/**
+ * One drag helper and velocity estimator for all sheets of a {@link SideSheetStack}. Only one
+ * sheet takes gestures at a time, so the helper forwards its callbacks to whichever behavior
+ * claimed it last instead of each sheet keeping a helper, with its pointer arrays and scroller,
+ * of its own.
+ */
+final class SideSheetDragResources {
+
+    private final VelocityEstimator mVelocityEstimator = new VelocityEstimator();
+    private ViewDragHelper mHelper;
+    private CoordinatorLayout mParent;
+    private ViewDragHelper.Callback mOwner;
+
+    private final ViewDragHelper.Callback mForwardingCallback = new ViewDragHelper.Callback() {
+        @Override
+        public boolean tryCaptureView(View child, int pointerId) {
+            return mOwner != null && mOwner.tryCaptureView(child, pointerId);
+        }
+
+        @Override
+        public void onViewCaptured(View capturedChild, int activePointerId) {
+            if (mOwner != null) {
+                mOwner.onViewCaptured(capturedChild, activePointerId);
+            }
+        }
+
+        @Override
+        public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) {
+            if (mOwner != null) {
+                mOwner.onViewPositionChanged(changedView, left, top, dx, dy);
+            }
+        }
+
+        @Override
+        public void onViewDragStateChanged(int state) {
+            if (mOwner != null) {
+                mOwner.onViewDragStateChanged(state);
+            }
+        }
+
+        @Override
+        public void onViewReleased(View releasedChild, float xvel, float yvel) {
+            if (mOwner != null) {
+                mOwner.onViewReleased(releasedChild, xvel, yvel);
+            }
+        }
+
+        @Override
+        public int clampViewPositionVertical(View child, int top, int dy) {
+            return mOwner != null ? mOwner.clampViewPositionVertical(child, top, dy)
+                    : child.getTop();
+        }
+
+        @Override
+        public int clampViewPositionHorizontal(View child, int left, int dx) {
+            return mOwner != null ? mOwner.clampViewPositionHorizontal(child, left, dx)
+                    : child.getLeft();
+        }
+
+        @Override
+        public int getViewVerticalDragRange(View child) {
+            return mOwner != null ? mOwner.getViewVerticalDragRange(child) : 0;
+        }
+    };
+
+    /**
+     * The shared helper for sheets in {@code parent}, created on first use.
+     */
+    ViewDragHelper getDragHelper(CoordinatorLayout parent) {
+        if (mHelper == null || mParent != parent) {
+            mHelper = ViewDragHelper.create(parent, mForwardingCallback);
+            mParent = parent;
+        }
+        return mHelper;
+    }
+
+    VelocityEstimator getVelocityEstimator() {
+        return mVelocityEstimator;
+    }
+
+    /**
+     * Routes the helper's callbacks to {@code owner} from now on. Any drag or settle of the
+     * previous owner is aborted.
+     */
+    void claim(ViewDragHelper.Callback owner) {
+        if (mOwner == owner) {
+            return;
+        }
+        if (mHelper != null && mOwner != null) {
+            mHelper.abort();
+        }
+        mOwner = owner;
+    }
+
+    boolean isOwner(@Nullable ViewDragHelper.Callback callback) {
+        return mOwner == callback;
+    }
+
+    /**
+     * Lets go of {@code owner}, which no longer takes gestures.
+     */
+    void release(ViewDragHelper.Callback owner) {
+        if (mOwner == owner) {
+            if (mHelper != null) {
+                mHelper.abort();
+            }
+            mOwner = null;
+        }
+    }
+}
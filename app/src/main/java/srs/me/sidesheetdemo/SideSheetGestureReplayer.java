@@ -0,0 +1,164 @@
+package srs.me.sidesheetdemo;
+
+import android.support.design.widget.CoordinatorLayout;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.concurrent.TimeUnit;
+
+import srs.me.sidesheet.core.GestureReader;
+import srs.me.sidesheet.core.GestureRecorder;
+import srs.me.sidesheet.core.ManualFrameClock;
+
+/**
+ * Plays a trace recorded with {@link SideSheetBehavior#setGestureRecorder} back into the behavior
+ * of a laid out sheet. The behavior runs on a {@link ManualFrameClock} that produces the frames
+ * between the recorded events, so a gesture from the field runs the same way every time, under
+ * Robolectric as on a device.
+ * <p>
+ * Touch events are rebuilt as {@link MotionEvent}s and go to the callback they were recorded
+ * from. Nested scroll events target the sheet's nested scrolling child, or the sheet if it has
+ * none.
+ */
+public final class SideSheetGestureReplayer<V extends View> {
+
+    public static final long DEFAULT_FRAME_INTERVAL_NANOS = 16_666_667L;
+    // Bounds the frames run after the last event, in case the sheet never comes to rest
+    private static final int MAX_SETTLE_FRAMES = 600;
+
+    private final CoordinatorLayout mParent;
+    private final V mChild;
+    private final SideSheetBehavior<V> mBehavior;
+    private final ManualFrameClock mClock;
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+    private final int[] mConsumed = new int[2];
+
+    /**
+     * @param child a sheet with a {@link SideSheetBehavior}, which is switched to {@code clock}
+     */
+    public SideSheetGestureReplayer(CoordinatorLayout parent, V child, ManualFrameClock clock) {
+        mParent = parent;
+        mChild = child;
+        mBehavior = SideSheetBehavior.from(child);
+        mClock = clock;
+        mBehavior.setFrameClock(clock);
+    }
+
+    public void setFrameInterval(long frameIntervalNanos) {
+        if (frameIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Illegal frame interval " + frameIntervalNanos);
+        }
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    public long getFrameInterval() {
+        return mFrameIntervalNanos;
+    }
+
+    /**
+     * Plays {@code trace} from the clock's current time and then runs frames until the sheet
+     * comes to rest.
+     *
+     * @return the number of events played
+     * @throws IllegalArgumentException if {@code trace} is not a gesture trace, or was recorded
+     *                                  with a parent or sheet of a different size
+     */
+    public int replay(byte[] trace) {
+        GestureReader reader = new GestureReader(trace);
+        if (reader.getParentWidth() != 0 && (reader.getParentWidth() != mParent.getWidth()
+                || reader.getParentHeight() != mParent.getHeight()
+                || reader.getSheetWidth() != mChild.getWidth())) {
+            throw new IllegalArgumentException("Trace was recorded at "
+                    + reader.getParentWidth() + "x" + reader.getParentHeight()
+                    + " with a sheet " + reader.getSheetWidth() + " wide");
+        }
+        long startNanos = mClock.nanoTime();
+        long startMillis = TimeUnit.NANOSECONDS.toMillis(startNanos);
+        long downTime = startMillis;
+        int events = 0;
+        while (reader.next()) {
+            advanceTo(startNanos + reader.getTimeNanos());
+            long eventTime = startMillis + TimeUnit.NANOSECONDS.toMillis(reader.getTimeNanos());
+            switch (reader.getType()) {
+                case GestureRecorder.EVENT_INTERCEPT_TOUCH:
+                case GestureRecorder.EVENT_TOUCH:
+                    if ((reader.getAction() & MotionEvent.ACTION_MASK)
+                            == MotionEvent.ACTION_DOWN) {
+                        downTime = eventTime;
+                    }
+                    MotionEvent event = obtainEvent(reader, downTime, eventTime);
+                    if (reader.getType() == GestureRecorder.EVENT_INTERCEPT_TOUCH) {
+                        mBehavior.onInterceptTouchEvent(mParent, mChild, event);
+                    } else {
+                        mBehavior.onTouchEvent(mParent, mChild, event);
+                    }
+                    event.recycle();
+                    break;
+                case GestureRecorder.EVENT_NESTED_SCROLL_START:
+                    View target = getNestedTarget();
+                    mBehavior.onStartNestedScroll(mParent, mChild, target, target,
+                            reader.getAxes());
+                    break;
+                case GestureRecorder.EVENT_NESTED_PRE_SCROLL:
+                    mConsumed[0] = 0;
+                    mConsumed[1] = 0;
+                    mBehavior.onNestedPreScroll(mParent, mChild, getNestedTarget(),
+                            reader.getDx(), reader.getDy(), mConsumed);
+                    break;
+                case GestureRecorder.EVENT_NESTED_SCROLL_STOP:
+                    mBehavior.onStopNestedScroll(mParent, mChild, getNestedTarget());
+                    break;
+                case GestureRecorder.EVENT_NESTED_PRE_FLING:
+                    mBehavior.onNestedPreFling(mParent, mChild, getNestedTarget(),
+                            reader.getVelocityX(), reader.getVelocityY());
+                    break;
+                case GestureRecorder.EVENT_NESTED_FLING:
+                    mBehavior.onNestedFling(mParent, mChild, getNestedTarget(),
+                            reader.getVelocityX(), reader.getVelocityY(), reader.isConsumed());
+                    break;
+            }
+            events++;
+        }
+        mClock.runUntilIdle(mFrameIntervalNanos, MAX_SETTLE_FRAMES);
+        return events;
+    }
+
+    /**
+     * Runs the frames that fall before {@code timeNanos} and moves the clock there.
+     */
+    private void advanceTo(long timeNanos) {
+        while (mClock.nanoTime() + mFrameIntervalNanos <= timeNanos) {
+            mClock.doFrame(mFrameIntervalNanos);
+        }
+        if (timeNanos > mClock.nanoTime()) {
+            mClock.advance(timeNanos - mClock.nanoTime());
+        }
+    }
+
+    private View getNestedTarget() {
+        View scroll = mBehavior.mNestedScrollingChildRef != null
+                ? mBehavior.mNestedScrollingChildRef.get() : null;
+        return scroll != null ? scroll : mChild;
+    }
+
+    private MotionEvent obtainEvent(GestureReader reader, long downTime, long eventTime) {
+        int pointerCount = reader.getPointerCount();
+        if (pointerCount == 1) {
+            return MotionEvent.obtain(downTime, eventTime, reader.getAction(),
+                    reader.getX(0), reader.getY(0), 0);
+        }
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointerCount];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointerCount];
+        for (int i = 0; i < pointerCount; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = reader.getPointerId(i);
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = reader.getX(i);
+            coords[i].y = reader.getY(i);
+        }
+        return MotionEvent.obtain(downTime, eventTime, reader.getAction(), pointerCount,
+                properties, coords, 0, 0, 1f, 1f, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+    }
+}
@@ -0,0 +1,274 @@
+package srs.me.sidesheetdemo;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.DialogInterface;
+import android.content.res.Configuration;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.StyleRes;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+/**
+ * Shows a side sheet inside the activity's content view instead of in a window of its own, which
+ * saves the window creation and WindowManager round trip of {@link SideSheetDialog}.
+ * <p>
+ * Cancelling works like the dialog: by back press, by a tap outside the sheet, by the
+ * accessibility dismiss action and by hiding the sheet, each only while the overlay is
+ * cancelable. While shown, the rest of the content is hidden from accessibility services the way
+ * a dialog window would hide it.
+ */
+public class SideSheetOverlay implements DialogInterface {
+
+    private final Activity mActivity;
+    private final SideSheetShellPool mShellPool;
+    private final int mThemeResId;
+    private SideSheetShell mShell;
+    private View mContentView;
+    private ViewGroup.LayoutParams mContentParams;
+    private ViewGroup mContainer;
+    private int[] mSiblingAccessibility;
+    private boolean mShowing;
+    private boolean mCancelable = true;
+    private boolean mCanceledOnTouchOutside = true;
+    private boolean mCanceledOnTouchOutsideSet;
+    private OnCancelListener mOnCancelListener;
+    private OnDismissListener mOnDismissListener;
+
+    private final SideSheetShell.Host mShellHost = new SideSheetShell.Host() {
+        @Override
+        public boolean isCancelable() {
+            return mCancelable;
+        }
+
+        @Override
+        public void cancel() {
+            SideSheetOverlay.this.cancel();
+        }
+
+        @Override
+        public void onTouchOutside() {
+            if (mCancelable && mShowing && shouldCloseOnTouchOutside()) {
+                SideSheetOverlay.this.cancel();
+            }
+        }
+    };
+
+    private final Runnable mDismissAfterExit = new Runnable() {
+        @Override
+        public void run() {
+            removeSheet();
+        }
+    };
+
+    private final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            SideSheetConfigCache.onTrimMemory(level);
+            if (mShell != null) {
+                mShell.getBehavior().onTrimMemory(level);
+            }
+        }
+    };
+
+    private final SideSheetCoordinatorLayout.OnBackPressedListener mBackListener =
+            new SideSheetCoordinatorLayout.OnBackPressedListener() {
+                @Override
+                public void onBackPressed() {
+                    if (mCancelable) {
+                        cancel();
+                    }
+                }
+            };
+
+    public SideSheetOverlay(@NonNull Activity activity) {
+        this(activity, 0);
+    }
+
+    /**
+     * @param theme a side sheet dialog theme, or 0 for the activity's
+     *              {@code sideSheetDialogTheme}
+     */
+    public SideSheetOverlay(@NonNull Activity activity, @StyleRes int theme) {
+        mActivity = activity;
+        mShellPool = null;
+        mThemeResId = SideSheetDialog.getThemeResId(activity, theme);
+    }
+
+    /**
+     * Creates an overlay that takes its sheet from {@code shellPool} and gives it back when
+     * dismissed.
+     */
+    public SideSheetOverlay(@NonNull Activity activity, @NonNull SideSheetShellPool shellPool) {
+        mActivity = activity;
+        mShellPool = shellPool;
+        mThemeResId = shellPool.getThemeResId();
+    }
+
+    public void setContentView(@LayoutRes int layoutResId) {
+        ensureShell();
+        setContentView(LayoutInflater.from(mShell.getCoordinator().getContext())
+                .inflate(layoutResId, mShell.getSideSheet(), false));
+    }
+
+    public void setContentView(View view) {
+        setContentView(view, null);
+    }
+
+    public void setContentView(View view, @Nullable ViewGroup.LayoutParams params) {
+        ensureShell();
+        FrameLayout sideSheet = mShell.getSideSheet();
+        sideSheet.removeAllViews();
+        if (params == null) {
+            sideSheet.addView(view);
+        } else {
+            sideSheet.addView(view, params);
+        }
+        mContentView = view;
+        mContentParams = params;
+    }
+
+    /**
+     * The behavior of the sheet, once content has been set and until the overlay is dismissed.
+     */
+    @Nullable
+    public SideSheetBehavior<FrameLayout> getBehavior() {
+        return mShell != null ? mShell.getBehavior() : null;
+    }
+
+    public void setCancelable(boolean cancelable) {
+        mCancelable = cancelable;
+        if (mShell != null) {
+            mShell.getBehavior().setHideable(cancelable);
+        }
+    }
+
+    public void setCanceledOnTouchOutside(boolean cancel) {
+        if (cancel && !mCancelable) {
+            mCancelable = true;
+        }
+        mCanceledOnTouchOutside = cancel;
+        mCanceledOnTouchOutsideSet = true;
+    }
+
+    public void setOnCancelListener(@Nullable OnCancelListener listener) {
+        mOnCancelListener = listener;
+    }
+
+    public void setOnDismissListener(@Nullable OnDismissListener listener) {
+        mOnDismissListener = listener;
+    }
+
+    public boolean isShowing() {
+        return mShowing;
+    }
+
+    /**
+     * Adds the sheet on top of the activity's content.
+     */
+    public void show() {
+        if (mShowing) {
+            return;
+        }
+        if (mShell == null && mContentView != null) {
+            // Shown again after a dismiss let go of the sheet
+            setContentView(mContentView, mContentParams);
+        }
+        ensureShell();
+        mContainer = (ViewGroup) mActivity.findViewById(android.R.id.content);
+        SideSheetCoordinatorLayout coordinator = mShell.getCoordinator();
+        mSiblingAccessibility = SideSheetShell.hideFromAccessibility(mContainer);
+        mContainer.addView(coordinator, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        SideSheetShell.takeBackPresses(coordinator, mBackListener);
+        mActivity.getApplicationContext().registerComponentCallbacks(mComponentCallbacks);
+        mShowing = true;
+        mShell.getBehavior().animateIn(SideSheetBehavior.STATE_COLLAPSED);
+    }
+
+    @Override
+    public void cancel() {
+        if (!mShowing || mShell.getBehavior().isAnimatingOut()) {
+            return;
+        }
+        if (mOnCancelListener != null) {
+            mOnCancelListener.onCancel(this);
+        }
+        dismiss();
+    }
+
+    /**
+     * Slides the sheet out and removes it once it is hidden. The overlay counts as showing until
+     * then. When the activity is going away or its window is off screen the sheet is removed
+     * right away.
+     */
+    @Override
+    public void dismiss() {
+        if (!mShowing) {
+            return;
+        }
+        SideSheetBehavior<FrameLayout> behavior = mShell.getBehavior();
+        if (SideSheetShell.isHostTearingDown(mActivity, mActivity.getWindow().getDecorView())) {
+            behavior.stopSettling();
+            removeSheet();
+        } else if (!behavior.isAnimatingOut()) {
+            behavior.animateOut(mDismissAfterExit);
+        }
+    }
+
+    private void removeSheet() {
+        if (!mShowing) {
+            return;
+        }
+        mShowing = false;
+        mActivity.getApplicationContext().unregisterComponentCallbacks(mComponentCallbacks);
+        SideSheetCoordinatorLayout coordinator = mShell.getCoordinator();
+        SideSheetShell.releaseBackPresses(coordinator);
+        mContainer.removeView(coordinator);
+        SideSheetShell.restoreAccessibility(mContainer, mSiblingAccessibility);
+        mSiblingAccessibility = null;
+        mContainer = null;
+        // The shell goes back to the pool, or is left to be collected with its views
+        SideSheetShell shell = mShell;
+        mShell = null;
+        shell.detach();
+        if (mShellPool != null) {
+            mShellPool.recycle(shell);
+        }
+        if (mOnDismissListener != null) {
+            mOnDismissListener.onDismiss(this);
+        }
+    }
+
+    private void ensureShell() {
+        if (mShell != null) {
+            return;
+        }
+        mShell = mShellPool != null ? mShellPool.acquire()
+                : new SideSheetShell(new ContextThemeWrapper(mActivity, mThemeResId), mThemeResId);
+        mShell.attach(mShellHost, mCancelable);
+    }
+
+    private boolean shouldCloseOnTouchOutside() {
+        if (!mCanceledOnTouchOutsideSet) {
+            mCanceledOnTouchOutside = SideSheetConfigCache.getCloseOnTouchOutside(
+                    mShell.getCoordinator().getContext(), mThemeResId);
+            mCanceledOnTouchOutsideSet = true;
+        }
+        return mCanceledOnTouchOutside;
+    }
+}
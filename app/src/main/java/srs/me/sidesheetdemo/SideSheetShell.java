@@ -0,0 +1,206 @@
+package srs.me.sidesheetdemo;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.StyleRes;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.AccessibilityDelegateCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+/**
+ * The inflated {@link CoordinatorLayout}, sheet and behavior a {@link SideSheetDialog} wraps its
+ * content in. Listeners are installed once and forward to whichever dialog currently hosts the
+ * shell, so a shell can be handed from one dialog to the next by {@link SideSheetShellPool}.
+ */
+final class SideSheetShell {
+
+    /**
+     * The dialog side of a shell.
+     */
+    interface Host {
+
+        boolean isCancelable();
+
+        void cancel();
+
+        void onTouchOutside();
+    }
+
+    private final SideSheetCoordinatorLayout mCoordinator;
+    private final FrameLayout mSideSheet;
+    private final SideSheetBehavior<FrameLayout> mBehavior;
+    private final SideSheetConfigCache.BehaviorConfig mConfig;
+    int mGeneration;
+    private Host mHost;
+    private final SideSheetBehavior.SideSheetCallback mCallback =
+            new SideSheetBehavior.SideSheetCallback() {
+                @Override
+                public void onStateChanged(@NonNull View sideSheet, @SideSheetBehavior.State int newState) {
+                    // A sheet that animates out is already being dismissed
+                    if (newState == SideSheetBehavior.STATE_HIDDEN && mHost != null
+                            && !mBehavior.isAnimatingOut()) {
+                        mHost.cancel();
+                    }
+                }
+
+                @Override
+                public void onSlide(@NonNull View sideSheet, float slideOffset) {
+
+                }
+            };
+
+    /**
+     * Whether a sheet hosted by {@code activity} under {@code decor} should be removed right away
+     * instead of sliding out: the activity is finishing, being recreated or destroyed, or the
+     * decor has already left the window, where an exit would only be finished by the detach.
+     */
+    static boolean isHostTearingDown(@Nullable Activity activity, @NonNull View decor) {
+        if (!ViewCompat.isAttachedToWindow(decor)) {
+            return true;
+        }
+        if (activity == null) {
+            return false;
+        }
+        return activity.isFinishing() || activity.isChangingConfigurations()
+                || (Build.VERSION.SDK_INT >= 17 && activity.isDestroyed());
+    }
+
+    /**
+     * Hides the children {@code container} has now from accessibility, so a sheet added on top
+     * of them is all that is left to explore.
+     *
+     * @return the importance each child had, for {@link #restoreAccessibility}
+     */
+    static int[] hideFromAccessibility(@NonNull ViewGroup container) {
+        int count = container.getChildCount();
+        int[] importance = new int[count];
+        for (int i = 0; i < count; i++) {
+            View child = container.getChildAt(i);
+            importance[i] = ViewCompat.getImportantForAccessibility(child);
+            ViewCompat.setImportantForAccessibility(child,
+                    ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS);
+        }
+        return importance;
+    }
+
+    /**
+     * Gives the children of {@code container} back the importance
+     * {@link #hideFromAccessibility} returned, once the sheet has been removed.
+     */
+    static void restoreAccessibility(@NonNull ViewGroup container, @NonNull int[] importance) {
+        int count = Math.min(container.getChildCount(), importance.length);
+        for (int i = 0; i < count; i++) {
+            ViewCompat.setImportantForAccessibility(container.getChildAt(i), importance[i]);
+        }
+    }
+
+    /**
+     * Puts {@code coordinator} in front of a host that lives in the activity's content view:
+     * it takes focus from the views behind it and passes back presses nothing inside handles to
+     * {@code listener}, whichever view in it has focus.
+     */
+    static void takeBackPresses(@NonNull SideSheetCoordinatorLayout coordinator,
+            @NonNull SideSheetCoordinatorLayout.OnBackPressedListener listener) {
+        coordinator.setOnBackPressedListener(listener);
+        coordinator.setFocusableInTouchMode(true);
+        coordinator.requestFocus();
+    }
+
+    /**
+     * Undoes {@link #takeBackPresses} before {@code coordinator} is removed.
+     */
+    static void releaseBackPresses(@NonNull SideSheetCoordinatorLayout coordinator) {
+        coordinator.setOnBackPressedListener(null);
+        coordinator.clearFocus();
+    }
+
+    /**
+     * @param themeResId the theme {@code context} carries, under which the behavior's attributes
+     *                   are cached, or 0 to resolve them without caching
+     */
+    SideSheetShell(Context context, @StyleRes int themeResId) {
+        mCoordinator = (SideSheetCoordinatorLayout) View.inflate(context, R.layout.side_sheet_dialog, null);
+        mSideSheet = (FrameLayout) mCoordinator.findViewById(R.id.side_sheet);
+        mConfig = SideSheetConfigCache.getBehaviorConfig(context, themeResId);
+        mBehavior = new SideSheetBehavior<>(mConfig);
+        ((CoordinatorLayout.LayoutParams) mSideSheet.getLayoutParams()).setBehavior(mBehavior);
+        mBehavior.addSideSheetCallback(mCallback);
+
+        mBehavior.setOnOutsideTapListener(new SideSheetBehavior.OnOutsideTapListener() {
+            @Override
+            public void onOutsideTap(@NonNull View sideSheet) {
+                if (mHost != null) {
+                    mHost.onTouchOutside();
+                }
+            }
+        });
+
+        ViewCompat.setAccessibilityDelegate(mSideSheet, new AccessibilityDelegateCompat() {
+            @Override
+            public void onInitializeAccessibilityNodeInfo(View host,
+                                                          AccessibilityNodeInfoCompat info) {
+                super.onInitializeAccessibilityNodeInfo(host, info);
+                if (mHost != null && mHost.isCancelable()) {
+                    info.addAction(AccessibilityNodeInfoCompat.ACTION_DISMISS);
+                    info.setDismissable(true);
+                } else {
+                    info.setDismissable(false);
+                }
+            }
+
+            @Override
+            public boolean performAccessibilityAction(View host, int action, Bundle args) {
+                if (action == AccessibilityNodeInfoCompat.ACTION_DISMISS && mHost != null
+                        && mHost.isCancelable()) {
+                    mHost.cancel();
+                    return true;
+                }
+                return super.performAccessibilityAction(host, action, args);
+            }
+        });
+    }
+
+    SideSheetCoordinatorLayout getCoordinator() {
+        return mCoordinator;
+    }
+
+    FrameLayout getSideSheet() {
+        return mSideSheet;
+    }
+
+    SideSheetBehavior<FrameLayout> getBehavior() {
+        return mBehavior;
+    }
+
+    void attach(Host host, boolean cancelable) {
+        mHost = host;
+        mBehavior.setHideable(cancelable);
+    }
+
+    /**
+     * Takes the shell out of its window and drops the dialog's content and whatever it changed
+     * through {@link #getBehavior()}, so the next dialog starts from a collapsed, empty sheet
+     * configured by the theme.
+     */
+    void detach() {
+        mHost = null;
+        ViewGroup parent = (ViewGroup) mCoordinator.getParent();
+        if (parent != null) {
+            parent.removeView(mCoordinator);
+        }
+        mSideSheet.removeAllViews();
+        // Callbacks and work the dialog's owner added must not follow the shell to the next dialog
+        mBehavior.clearSideSheetCallbacks();
+        mBehavior.addSideSheetCallback(mCallback);
+        mBehavior.clearIdleWork();
+        mBehavior.resetToConfig(mConfig);
+    }
+}
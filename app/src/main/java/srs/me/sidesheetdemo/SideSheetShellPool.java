@@ -0,0 +1,165 @@
+package srs.me.sidesheetdemo;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.StyleRes;
+import android.view.ContextThemeWrapper;
+
+/**
+ * A bounded pool of side sheet shells for one dialog theme. Shells are inflated ahead of time
+ * while the main thread is idle and given back when a pooled {@link SideSheetDialog} is
+ * dismissed, so opening a sheet only has to add the content view.
+ * <p>
+ * The pool holds views of the context it was created with. Create it in the activity that shows
+ * the sheets and {@link #release()} it when that activity is destroyed. Pooled shells are dropped
+ * on configuration changes and on memory pressure.
+ */
+public class SideSheetShellPool {
+
+    /**
+     * Implemented by an activity that wants {@link SideSheetDialogFragment}s shown in it to draw
+     * from a pool.
+     */
+    public interface Owner {
+
+        SideSheetShellPool getSideSheetShellPool();
+    }
+
+    private final Context mContext;
+    private final Context mThemedContext;
+    private final int mThemeResId;
+    private final SideSheetShell[] mShells;
+    private int mSize;
+    private int mGeneration;
+    private int mPrewarmTarget;
+    private boolean mPrewarmScheduled;
+    private boolean mReleased;
+
+    private final MessageQueue.IdleHandler mPrewarmHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (mReleased || mSize >= mPrewarmTarget) {
+                mPrewarmScheduled = false;
+                return false;
+            }
+            // One shell per idle pass keeps each pass short enough not to delay input
+            SideSheetShell shell = new SideSheetShell(mThemedContext, mThemeResId);
+            shell.mGeneration = mGeneration;
+            mShells[mSize++] = shell;
+            mPrewarmScheduled = mSize < mPrewarmTarget;
+            return mPrewarmScheduled;
+        }
+    };
+
+    private final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            // Shells inflated for the old configuration have stale resources
+            mGeneration++;
+            clear();
+        }
+
+        @Override
+        public void onLowMemory() {
+            clear();
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                clear();
+            } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+                trimTo(mSize / 2);
+            }
+        }
+    };
+
+    /**
+     * @param context the activity the sheets are shown in
+     * @param theme the dialog theme, or 0 for the theme's {@code sideSheetDialogTheme}
+     * @param maxSize the most shells kept around
+     */
+    public SideSheetShellPool(Context context, @StyleRes int theme, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        mContext = context;
+        mThemeResId = SideSheetDialog.getThemeResId(context, theme);
+        mThemedContext = new ContextThemeWrapper(context, mThemeResId);
+        mShells = new SideSheetShell[maxSize];
+        context.getApplicationContext().registerComponentCallbacks(mComponentCallbacks);
+    }
+
+    /**
+     * Inflates shells while the main thread is idle until {@code count} are pooled.
+     */
+    public void prewarm(int count) {
+        if (mReleased) {
+            return;
+        }
+        mPrewarmTarget = Math.min(count, mShells.length);
+        if (!mPrewarmScheduled && mSize < mPrewarmTarget) {
+            mPrewarmScheduled = true;
+            Looper.myQueue().addIdleHandler(mPrewarmHandler);
+        }
+    }
+
+    /**
+     * Drops every pooled shell.
+     */
+    public void clear() {
+        trimTo(0);
+        mPrewarmTarget = 0;
+    }
+
+    /**
+     * Clears the pool for good and stops listening for configuration and memory changes.
+     */
+    public void release() {
+        if (mReleased) {
+            return;
+        }
+        mReleased = true;
+        clear();
+        mContext.getApplicationContext().unregisterComponentCallbacks(mComponentCallbacks);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getMaxSize() {
+        return mShells.length;
+    }
+
+    int getThemeResId() {
+        return mThemeResId;
+    }
+
+    SideSheetShell acquire() {
+        if (mSize > 0) {
+            SideSheetShell shell = mShells[--mSize];
+            mShells[mSize] = null;
+            return shell;
+        }
+        SideSheetShell shell = new SideSheetShell(mThemedContext, mThemeResId);
+        shell.mGeneration = mGeneration;
+        return shell;
+    }
+
+    void recycle(SideSheetShell shell) {
+        if (mReleased || shell.mGeneration != mGeneration || mSize == mShells.length) {
+            return;
+        }
+        mShells[mSize++] = shell;
+    }
+
+    private void trimTo(int size) {
+        while (mSize > size) {
+            mShells[--mSize] = null;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package srs.me.sidesheetdemo;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Parcelable;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.StyleRes;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+
+import srs.me.sidesheet.core.FrameClock;
+
+/**
+ * Shows side sheets on top of each other in one {@link CoordinatorLayout} inside the activity's
+ * content view, instead of a window, drag helper and velocity tracker per sheet.
+ * <p>
+ * Only the sheet on top takes gestures; the ones below are covered: they hold no hardware layers,
+ * are hidden from accessibility services and count as outside the top sheet, so a tap on them
+ * cancels it. At most {@link #setMaxAttached} sheets are kept as views. The ones below that are
+ * taken out of the layout with their view and sheet state saved, and inflated again when the
+ * sheets above them are popped, so a deep stack costs no more views than a shallow one. Under
+ * memory pressure every covered sheet is taken out. At most {@link #setMaxDepth} sheets are kept
+ * at all; pushing past that drops the oldest one with its saved state.
+ */
+public class SideSheetStack {
+
+    public static final int DEFAULT_MAX_ATTACHED = 2;
+    public static final int DEFAULT_MAX_DEPTH = 16;
+
+    /**
+     * Fills in a sheet's content each time it is inflated: when pushed, and again when it comes
+     * back after being taken out of the layout.
+     */
+    public interface ContentBinder {
+
+        void onContentInflated(@NonNull View content);
+    }
+
+    private final Activity mActivity;
+    private final Context mContext;
+    private final int mThemeResId;
+    private final SideSheetDragResources mDragResources = new SideSheetDragResources();
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private SideSheetCoordinatorLayout mCoordinator;
+    private ViewGroup mContainer;
+    private int[] mSiblingAccessibility;
+    private int mMaxAttached = DEFAULT_MAX_ATTACHED;
+    private int mMaxDepth = DEFAULT_MAX_DEPTH;
+    private boolean mCancelable = true;
+    private boolean mCanceledOnTouchOutside = true;
+    private FrameClock mFrameClock;
+
+    private final SideSheetBehavior.SideSheetCallback mCallback =
+            new SideSheetBehavior.SideSheetCallback() {
+                @Override
+                public void onStateChanged(@NonNull View sideSheet, @SideSheetBehavior.State int newState) {
+                    Entry top = getTop();
+                    // A sheet that animates out is already being popped
+                    if (newState == SideSheetBehavior.STATE_HIDDEN && top != null
+                            && top.mSheet == sideSheet && !top.mBehavior.isAnimatingOut()) {
+                        removeTop();
+                    }
+                }
+
+                @Override
+                public void onSlide(@NonNull View sideSheet, float slideOffset) {
+
+                }
+            };
+
+    private final SideSheetBehavior.OnOutsideTapListener mOutsideTapListener =
+            new SideSheetBehavior.OnOutsideTapListener() {
+                @Override
+                public void onOutsideTap(@NonNull View sideSheet) {
+                    if (mCancelable && mCanceledOnTouchOutside) {
+                        pop();
+                    }
+                }
+            };
+
+    private final Runnable mRemoveTop = new Runnable() {
+        @Override
+        public void run() {
+            removeTop();
+        }
+    };
+
+    private final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            SideSheetStack.this.onTrimMemory(level);
+        }
+    };
+
+    private final SideSheetCoordinatorLayout.OnBackPressedListener mBackListener =
+            new SideSheetCoordinatorLayout.OnBackPressedListener() {
+                @Override
+                public void onBackPressed() {
+                    if (mCancelable) {
+                        pop();
+                    }
+                }
+            };
+
+    public SideSheetStack(@NonNull Activity activity) {
+        this(activity, 0);
+    }
+
+    /**
+     * @param theme a side sheet dialog theme, or 0 for the activity's
+     *              {@code sideSheetDialogTheme}
+     */
+    public SideSheetStack(@NonNull Activity activity, @StyleRes int theme) {
+        mActivity = activity;
+        mThemeResId = SideSheetDialog.getThemeResId(activity, theme);
+        mContext = new ContextThemeWrapper(activity, mThemeResId);
+    }
+
+    /**
+     * Sets how many sheets from the top are kept as views, at least 1. Sheets below are taken
+     * out of the layout right away.
+     */
+    public void setMaxAttached(int maxAttached) {
+        if (maxAttached < 1) {
+            throw new IllegalArgumentException("Illegal max attached " + maxAttached);
+        }
+        mMaxAttached = maxAttached;
+        updateAttached(maxAttached);
+    }
+
+    public int getMaxAttached() {
+        return mMaxAttached;
+    }
+
+    /**
+     * Sets how many sheets the stack holds, at least 1. Sheets past that are dropped from the
+     * bottom right away, without being popped, and can't come back.
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Illegal max depth " + maxDepth);
+        }
+        mMaxDepth = maxDepth;
+        dropOldest();
+    }
+
+    public int getMaxDepth() {
+        return mMaxDepth;
+    }
+
+    /**
+     * Whether back presses, taps outside the top sheet and hiding it pop the stack.
+     */
+    public void setCancelable(boolean cancelable) {
+        mCancelable = cancelable;
+        for (int i = 0, count = mEntries.size(); i < count; i++) {
+            Entry entry = mEntries.get(i);
+            if (entry.mBehavior != null) {
+                entry.mBehavior.setHideable(cancelable);
+            }
+        }
+    }
+
+    public void setCanceledOnTouchOutside(boolean cancel) {
+        if (cancel && !mCancelable) {
+            setCancelable(true);
+        }
+        mCanceledOnTouchOutside = cancel;
+    }
+
+    /**
+     * Passes {@code level} on to the attached sheets and, from
+     * {@code TRIM_MEMORY_RUNNING_LOW} up, takes every covered sheet out of the layout.
+     */
+    void onTrimMemory(int level) {
+        SideSheetConfigCache.onTrimMemory(level);
+        if (mEntries.isEmpty()) {
+            return;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            updateAttached(1);
+        }
+        for (int i = 0, count = mEntries.size(); i < count; i++) {
+            Entry entry = mEntries.get(i);
+            if (entry.mBehavior != null) {
+                entry.mBehavior.onTrimMemory(level);
+            }
+        }
+    }
+
+    /**
+     * Drives the sheets pushed from now on with {@code frameClock}.
+     */
+    void setFrameClock(@Nullable FrameClock frameClock) {
+        mFrameClock = frameClock;
+    }
+
+    /**
+     * Inflates {@code layoutResId} into a new sheet and slides it in on top of the others.
+     *
+     * @param binder called with the content now and each time it is inflated again
+     * @return the inflated content
+     */
+    @NonNull
+    public View push(@LayoutRes int layoutResId, @Nullable ContentBinder binder) {
+        ensureShown();
+        Entry covered = getTop();
+        Entry entry = new Entry(layoutResId, binder);
+        mEntries.add(entry);
+        attach(entry, mCoordinator.getChildCount());
+        if (covered != null) {
+            cover(covered);
+        }
+        dropOldest();
+        updateAttached(mMaxAttached);
+        entry.mBehavior.animateIn(SideSheetBehavior.STATE_COLLAPSED);
+        return entry.mSheet.getChildAt(0);
+    }
+
+    /**
+     * Slides the top sheet out and removes it, uncovering the one below.
+     *
+     * @return false if the stack is empty
+     */
+    public boolean pop() {
+        Entry top = getTop();
+        if (top == null) {
+            return false;
+        }
+        if (SideSheetShell.isHostTearingDown(mActivity, mActivity.getWindow().getDecorView())) {
+            top.mBehavior.stopSettling();
+            removeTop();
+        } else if (!top.mBehavior.isAnimatingOut()) {
+            top.mBehavior.animateOut(mRemoveTop);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every sheet right away.
+     */
+    public void clear() {
+        if (mEntries.isEmpty()) {
+            return;
+        }
+        for (int i = 0, count = mEntries.size(); i < count; i++) {
+            Entry entry = mEntries.get(i);
+            if (entry.mBehavior != null) {
+                entry.mBehavior.stopSettling();
+                entry.mBehavior.clearIdleWork();
+            }
+        }
+        mEntries.clear();
+        mCoordinator.removeAllViews();
+        hide();
+    }
+
+    public int getDepth() {
+        return mEntries.size();
+    }
+
+    /**
+     * The sheet on top, or null when the stack is empty.
+     */
+    @Nullable
+    public FrameLayout getTopSheet() {
+        Entry top = getTop();
+        return top != null ? top.mSheet : null;
+    }
+
+    @Nullable
+    public SideSheetBehavior<FrameLayout> getTopBehavior() {
+        Entry top = getTop();
+        return top != null ? top.mBehavior : null;
+    }
+
+    /**
+     * The coordinator the sheets are laid out in, or null when the stack is empty.
+     */
+    @Nullable
+    SideSheetCoordinatorLayout getCoordinator() {
+        return mCoordinator;
+    }
+
+    @Nullable
+    private Entry getTop() {
+        return mEntries.isEmpty() ? null : mEntries.get(mEntries.size() - 1);
+    }
+
+    private void removeTop() {
+        Entry top = getTop();
+        if (top == null) {
+            return;
+        }
+        mEntries.remove(mEntries.size() - 1);
+        if (top.mSheet != null) {
+            top.mBehavior.clearIdleWork();
+            mCoordinator.removeView(top.mSheet);
+        }
+        if (mEntries.isEmpty()) {
+            hide();
+            return;
+        }
+        updateAttached(mMaxAttached);
+        uncover(getTop());
+    }
+
+    /**
+     * Drops the sheets below the top {@link #mMaxDepth}.
+     */
+    private void dropOldest() {
+        while (mEntries.size() > mMaxDepth) {
+            Entry oldest = mEntries.remove(0);
+            if (oldest.mSheet != null) {
+                oldest.mBehavior.stopSettling();
+                oldest.mBehavior.clearIdleWork();
+                mCoordinator.removeView(oldest.mSheet);
+            }
+        }
+    }
+
+    /**
+     * Attaches the sheets within {@code maxAttached} of the top and detaches the ones below.
+     */
+    private void updateAttached(int maxAttached) {
+        if (mEntries.isEmpty()) {
+            return;
+        }
+        int firstAttached = Math.max(0, mEntries.size() - maxAttached);
+        for (int i = 0; i < firstAttached; i++) {
+            Entry entry = mEntries.get(i);
+            if (entry.mSheet != null) {
+                detach(entry);
+            }
+        }
+        for (int i = firstAttached, index = 0, count = mEntries.size(); i < count; i++, index++) {
+            Entry entry = mEntries.get(i);
+            if (entry.mSheet == null) {
+                attach(entry, index);
+                cover(entry);
+            }
+        }
+    }
+
+    private void attach(Entry entry, int index) {
+        LayoutInflater inflater = LayoutInflater.from(mContext);
+        FrameLayout sheet = (FrameLayout) inflater.inflate(R.layout.side_sheet_stack_sheet,
+                mCoordinator, false);
+        SideSheetBehavior<FrameLayout> behavior = new SideSheetBehavior<>(
+                SideSheetConfigCache.getBehaviorConfig(mContext, mThemeResId));
+        behavior.setHideable(mCancelable);
+        behavior.setDragResources(mDragResources);
+        if (mFrameClock != null) {
+            behavior.setFrameClock(mFrameClock);
+        }
+        behavior.addSideSheetCallback(mCallback);
+        behavior.setOnOutsideTapListener(mOutsideTapListener);
+        ((CoordinatorLayout.LayoutParams) sheet.getLayoutParams()).setBehavior(behavior);
+
+        View content = inflater.inflate(entry.mLayoutResId, sheet, false);
+        sheet.addView(content);
+        if (entry.mBinder != null) {
+            entry.mBinder.onContentInflated(content);
+        }
+        if (entry.mViewState != null) {
+            sheet.restoreHierarchyState(entry.mViewState);
+            entry.mViewState = null;
+        }
+        if (entry.mSheetState != null) {
+            behavior.onRestoreInstanceState(mCoordinator, sheet, entry.mSheetState);
+            entry.mSheetState = null;
+        }
+        mCoordinator.addView(sheet, index);
+        entry.mSheet = sheet;
+        entry.mBehavior = behavior;
+    }
+
+    /**
+     * Saves the state of a covered sheet and drops its views.
+     */
+    private void detach(Entry entry) {
+        entry.mViewState = new SparseArray<>();
+        entry.mSheet.saveHierarchyState(entry.mViewState);
+        entry.mSheetState = entry.mBehavior.onSaveInstanceState(mCoordinator, entry.mSheet);
+        entry.mBehavior.stopSettling();
+        entry.mBehavior.clearIdleWork();
+        mCoordinator.removeView(entry.mSheet);
+        entry.mSheet = null;
+        entry.mBehavior = null;
+    }
+
+    private void cover(Entry entry) {
+        entry.mBehavior.setCovered(true);
+        ViewCompat.setImportantForAccessibility(entry.mSheet,
+                ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS);
+    }
+
+    private void uncover(Entry entry) {
+        entry.mBehavior.setCovered(false);
+        ViewCompat.setImportantForAccessibility(entry.mSheet,
+                ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO);
+    }
+
+    private void ensureShown() {
+        if (mCoordinator != null) {
+            return;
+        }
+        mCoordinator = new SideSheetCoordinatorLayout(mContext);
+        mContainer = (ViewGroup) mActivity.findViewById(android.R.id.content);
+        mSiblingAccessibility = SideSheetShell.hideFromAccessibility(mContainer);
+        mContainer.addView(mCoordinator, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        SideSheetShell.takeBackPresses(mCoordinator, mBackListener);
+        mActivity.getApplicationContext().registerComponentCallbacks(mComponentCallbacks);
+    }
+
+    private void hide() {
+        mActivity.getApplicationContext().unregisterComponentCallbacks(mComponentCallbacks);
+        SideSheetShell.releaseBackPresses(mCoordinator);
+        mContainer.removeView(mCoordinator);
+        SideSheetShell.restoreAccessibility(mContainer, mSiblingAccessibility);
+        mSiblingAccessibility = null;
+        mCoordinator = null;
+        mContainer = null;
+    }
+
+    private static final class Entry {
+
+        @LayoutRes
+        final int mLayoutResId;
+        final ContentBinder mBinder;
+        // Null while the sheet is out of the layout
+        FrameLayout mSheet;
+        SideSheetBehavior<FrameLayout> mBehavior;
+        SparseArray<Parcelable> mViewState;
+        Parcelable mSheetState;
+
+        Entry(@LayoutRes int layoutResId, @Nullable ContentBinder binder) {
+            mLayoutResId = layoutResId;
+            mBinder = binder;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package srs.me.sidesheetdemo;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes the current thread allocates on the heap between {@link #start()} and
+ * {@link #stop()}, minus the cost of reading the counter itself.
+ */
+final class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean mThreadMXBean;
+    private final long mThreadId;
+    private final long mOverhead;
+    private long mStart;
+
+    AllocationCounter() {
+        mThreadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 32; i++) {
+            long before = read();
+            overhead = Math.min(overhead, read() - before);
+        }
+        mOverhead = overhead;
+    }
+
+    void start() {
+        mStart = read();
+    }
+
+    long stop() {
+        return Math.max(0, read() - mStart - mOverhead);
+    }
+
+    private long read() {
+        return mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+    }
+}
@@ -0,0 +1,105 @@
+package srs.me.sidesheetdemo;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import srs.me.sidesheet.core.SheetGeometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetAutoPeekTest extends SideSheetTestFixture {
+
+    private View mRegion;
+    private int mPeekWidthMin;
+
+    @Before
+    public void setUp() {
+        createSheet();
+        mRegion = new View(mActivity);
+        mRegion.setId(View.generateViewId());
+        FrameLayout.LayoutParams regionParams = new FrameLayout.LayoutParams(300,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+        regionParams.leftMargin = 20;
+        mSheet.addView(mRegion, regionParams);
+        mBehavior.setPeekWidth(SideSheetBehavior.PEEK_WIDTH_AUTO);
+        mPeekWidthMin = mActivity.getResources().getDimensionPixelSize(
+                R.dimen.side_sheet_peek_width_min);
+    }
+
+    @Test
+    public void peekRegion_isShownUpToItsRightEdge() {
+        mBehavior.setPeekRegionId(mRegion.getId());
+        layout();
+
+        assertEquals(PARENT_WIDTH - 320, mSheet.getLeft());
+    }
+
+    @Test
+    public void peekRatio_isFractionOfSheet() {
+        mBehavior.setPeekRatio(0.25f);
+        layout();
+
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH / 4, mSheet.getLeft());
+    }
+
+    @Test
+    public void autoPeek_isClampedToMinimum() {
+        mBehavior.setPeekRatio(0.01f);
+        layout();
+
+        assertEquals(PARENT_WIDTH - mPeekWidthMin, mSheet.getLeft());
+    }
+
+    @Test
+    public void autoPeek_isMeasuredOncePerWidths() {
+        mBehavior.setPeekRegionId(mRegion.getId());
+        layout();
+        mRegion.getLayoutParams().width = 400;
+        mRegion.requestLayout();
+
+        layout();
+        assertEquals(PARENT_WIDTH - 320, mSheet.getLeft());
+
+        mBehavior.invalidateAutoPeekWidth();
+        layout();
+        assertEquals(PARENT_WIDTH - 420, mSheet.getLeft());
+    }
+
+    @Test
+    public void autoPeek_decidesWhetherReleaseHides() {
+        mBehavior.setHideable(true);
+        mBehavior.setPeekRatio(0.25f);
+        layout();
+        SheetGeometry geometry = mBehavior.mGeometry;
+        int collapsed = PARENT_WIDTH - SHEET_WIDTH / 4;
+
+        assertEquals(SHEET_WIDTH / 4, geometry.getPeekWidth());
+        assertFalse(geometry.shouldHide(collapsed + 10, 0f));
+        assertTrue(geometry.shouldHide(collapsed + SHEET_WIDTH / 8 + 10, 0f));
+    }
+
+    @Test
+    public void setPeekWidth_clampsMaxOffset() {
+        layout();
+
+        mBehavior.setPeekWidth(-50);
+
+        assertEquals(0, mBehavior.getPeekWidth());
+        assertEquals(PARENT_WIDTH, mBehavior.mGeometry.getMaxOffset());
+    }
+
+    @Test
+    public void setPeekWidth_widerThanSheet_collapsesToExpandedOffset() {
+        layout();
+
+        mBehavior.setPeekWidth(PARENT_WIDTH);
+
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, mBehavior.mGeometry.getMaxOffset());
+    }
+}
@@ -0,0 +1,114 @@
+package srs.me.sidesheetdemo;
+
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays a synthetic drag into {@link SideSheetBehavior} and fails if the per-event or the
+ * steady state layout path allocates.
+ */
+public class SideSheetBehaviorAllocationTest extends SideSheetTestFixture {
+
+    private static final int EVENT_COUNT = 500;
+    private static final int LAYOUT_COUNT = 100;
+
+    private MotionEvent[] mEvents;
+    private boolean mIntercepted;
+    private AllocationCounter mCounter;
+
+    @Before
+    public void setUp() {
+        createSheet();
+        mBehavior.setPeekWidth(PEEK_WIDTH);
+        attach();
+        layout();
+
+        mEvents = createDrag(PARENT_WIDTH - PEEK_WIDTH / 2, PARENT_HEIGHT / 2);
+        mCounter = new AllocationCounter();
+    }
+
+    @After
+    public void tearDown() {
+        for (MotionEvent event : mEvents) {
+            event.recycle();
+        }
+    }
+
+    @Test
+    public void drag_doesNotAllocatePerMoveEvent() {
+        // The first gesture lazily creates the drag helper's history and the velocity tracker
+        replay(0, mEvents.length);
+
+        dispatch(mEvents[0]);
+        mCounter.start();
+        replay(1, mEvents.length - 1);
+        long allocated = mCounter.stop();
+        dispatch(mEvents[mEvents.length - 1]);
+
+        assertEquals("Bytes allocated by " + (EVENT_COUNT - 2) + " MOVE events", 0, allocated);
+    }
+
+    @Test
+    public void layout_doesNotAllocateInSteadyState() {
+        mBehavior.onLayoutChild(mParent, mSheet, ViewCompat.LAYOUT_DIRECTION_LTR);
+
+        mCounter.start();
+        for (int i = 0; i < LAYOUT_COUNT; i++) {
+            mBehavior.onLayoutChild(mParent, mSheet, ViewCompat.LAYOUT_DIRECTION_LTR);
+        }
+        long allocated = mCounter.stop();
+
+        assertEquals("Bytes allocated by " + LAYOUT_COUNT + " layout passes", 0, allocated);
+    }
+
+    /**
+     * A DOWN on the peeking sheet, a back and forth drag and an UP: {@link #EVENT_COUNT} events.
+     */
+    private static MotionEvent[] createDrag(int startX, int y) {
+        MotionEvent[] events = new MotionEvent[EVENT_COUNT];
+        long downTime = 1000;
+        events[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, startX, y, 0);
+        int x = startX;
+        int step = -3;
+        for (int i = 1; i < EVENT_COUNT - 1; i++) {
+            x += step;
+            if (x < startX - SHEET_WIDTH || x > startX) {
+                step = -step;
+            }
+            events[i] = MotionEvent.obtain(downTime, downTime + i * 8, MotionEvent.ACTION_MOVE,
+                    x, y, 0);
+        }
+        events[EVENT_COUNT - 1] = MotionEvent.obtain(downTime, downTime + EVENT_COUNT * 8,
+                MotionEvent.ACTION_UP, x, y, 0);
+        return events;
+    }
+
+    private void replay(int from, int to) {
+        for (int i = from; i < to; i++) {
+            dispatch(mEvents[i]);
+        }
+    }
+
+    /**
+     * Routes an event the way {@link CoordinatorLayout} does: offered for interception until the
+     * behavior takes the gesture, then delivered to its touch handler.
+     */
+    private void dispatch(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            mIntercepted = false;
+        }
+        if (!mIntercepted) {
+            mIntercepted = mBehavior.onInterceptTouchEvent(mParent, mSheet, event);
+        }
+        if (mIntercepted || event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            mBehavior.onTouchEvent(mParent, mSheet, event);
+        }
+    }
+}
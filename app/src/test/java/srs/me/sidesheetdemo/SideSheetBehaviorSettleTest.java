@@ -0,0 +1,263 @@
+package srs.me.sidesheetdemo;
+
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import srs.me.sidesheet.core.DeferredWorkQueue;
+import srs.me.sidesheet.core.FrameStats;
+import srs.me.sidesheet.core.SpringSettleEngine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetBehaviorSettleTest extends SideSheetTestFixture {
+
+    @Before
+    public void setUp() {
+        createSheet();
+        mBehavior.setPeekWidth(PEEK_WIDTH);
+        mBehavior.setFrameClock(mClock);
+        attach();
+        layout();
+    }
+
+    @Test
+    public void setState_settlesOnFrameClock() {
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        assertEquals(SideSheetBehavior.STATE_SETTLING, mBehavior.mState);
+
+        int frames = settle();
+
+        assertTrue(frames > 1);
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void settleMetrics_sampleEachClockFrameOnce() {
+        final long[] settle = new long[3];
+        mBehavior.setMetricsListener(new SideSheetBehavior.MetricsListener() {
+            @Override
+            public void onPhaseFinished(@NonNull View sideSheet, @NonNull FrameStats stats) {
+                if (stats.getPhase() == FrameStats.PHASE_SETTLE) {
+                    settle[0] = stats.getFrameCount();
+                    settle[1] = stats.getMaxIntervalNanos();
+                    settle[2] = stats.getDurationNanos();
+                }
+            }
+        });
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+
+        int frames = settle();
+
+        assertEquals(frames, settle[0]);
+        assertEquals(FRAME, settle[1]);
+        assertEquals(frames * FRAME, settle[2]);
+    }
+
+    @Test
+    public void touchCatchesSettlingSheetWithoutSnap() {
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        mClock.doFrame(FRAME);
+        mClock.doFrame(FRAME);
+        int left = mSheet.getLeft();
+        assertNotEquals(PARENT_WIDTH - PEEK_WIDTH, left);
+
+        MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, left + 10,
+                PARENT_HEIGHT / 2, 0);
+        boolean intercepted = mBehavior.onInterceptTouchEvent(mParent, mSheet, down);
+        down.recycle();
+        settle();
+
+        assertTrue(intercepted);
+        assertEquals(SideSheetBehavior.STATE_DRAGGING, mBehavior.mState);
+        assertEquals(left, mSheet.getLeft());
+        assertFalse(mClock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void translationMode_keepsLayoutFixed() {
+        mBehavior.setMovementMode(SideSheetBehavior.MOVEMENT_TRANSLATION);
+        layout();
+        int minOffset = PARENT_WIDTH - SHEET_WIDTH;
+        assertEquals(minOffset, mSheet.getLeft());
+        assertEquals(PARENT_WIDTH - PEEK_WIDTH - minOffset, mSheet.getTranslationX(), 0f);
+
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        // The default settle is a property animation, which does not use the frame clock
+        assertFalse(mClock.hasPendingCallbacks());
+        runTranslationSettle();
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(minOffset, mSheet.getLeft());
+        assertEquals(0f, mSheet.getTranslationX(), 0f);
+    }
+
+    @Test
+    public void translationMode_slidesEveryFrameFromTranslation() {
+        mBehavior.setMovementMode(SideSheetBehavior.MOVEMENT_TRANSLATION);
+        layout();
+        RecordingCallback callback = new RecordingCallback();
+        mBehavior.addSideSheetCallback(callback);
+
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        assertEquals(SideSheetBehavior.STATE_SETTLING, mBehavior.mState);
+        runTranslationSettle();
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertTrue(callback.mSlides > 1);
+        assertEquals(1f, callback.mSlideOffsetAtStateChange, 0f);
+    }
+
+    @Test
+    public void translationMode_setEngine_stepsOnFrameClock() {
+        mBehavior.setMovementMode(SideSheetBehavior.MOVEMENT_TRANSLATION);
+        mBehavior.setSettleEngine(new SpringSettleEngine());
+        layout();
+
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        assertTrue(settle() > 1);
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(0f, mSheet.getTranslationX(), 0f);
+    }
+
+    @Test
+    public void nullEngineFallsBackToScroller() {
+        mBehavior.setSettleEngine(null);
+
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+
+        assertFalse(mClock.hasPendingCallbacks());
+        assertEquals(SideSheetBehavior.STATE_SETTLING, mBehavior.mState);
+    }
+
+    @Test
+    public void coalescedSlide_deliversLatestOffsetOncePerFrame() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        mBehavior.addSideSheetCallback(first);
+        mBehavior.addSideSheetCallback(second);
+        mBehavior.setCoalesceSlideEvents(true);
+
+        mBehavior.dispatchOnSlide(PARENT_WIDTH - PEEK_WIDTH - 10);
+        mBehavior.dispatchOnSlide(PARENT_WIDTH - PEEK_WIDTH - 20);
+        mBehavior.dispatchOnSlide(PARENT_WIDTH - PEEK_WIDTH - 30);
+        assertEquals(0, first.mSlides);
+
+        mClock.doFrame(FRAME);
+
+        assertEquals(1, first.mSlides);
+        assertEquals(1, second.mSlides);
+        assertEquals(mBehavior.mGeometry.getSlideOffset(PARENT_WIDTH - PEEK_WIDTH - 30),
+                first.mLastOffset, 0f);
+    }
+
+    @Test
+    public void coalescedSlide_isFlushedBeforeStateChange() {
+        RecordingCallback callback = new RecordingCallback();
+        mBehavior.addSideSheetCallback(callback);
+        mBehavior.setCoalesceSlideEvents(true);
+
+        mBehavior.dispatchOnSlide(PARENT_WIDTH - SHEET_WIDTH);
+        mBehavior.setStateInternal(SideSheetBehavior.STATE_EXPANDED);
+
+        assertEquals(1, callback.mSlides);
+        assertEquals(1f, callback.mSlideOffsetAtStateChange, 0f);
+    }
+
+    @Test
+    public void removedCallback_isNotCalled() {
+        RecordingCallback kept = new RecordingCallback();
+        RecordingCallback removed = new RecordingCallback();
+        mBehavior.addSideSheetCallback(kept);
+        mBehavior.addSideSheetCallback(removed);
+        mBehavior.removeSideSheetCallback(removed);
+
+        mBehavior.dispatchOnSlide(PARENT_WIDTH - SHEET_WIDTH);
+
+        assertEquals(1, kept.mSlides);
+        assertEquals(0, removed.mSlides);
+    }
+
+    @Test
+    public void idleWork_waitsForSettleToEnd() {
+        final int[] ran = new int[1];
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        mBehavior.runWhenIdle(new Runnable() {
+            @Override
+            public void run() {
+                ran[0]++;
+                assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+            }
+        });
+
+        mClock.doFrame(FRAME);
+        mClock.doFrame(FRAME);
+        assertEquals(0, ran[0]);
+
+        settle();
+        assertEquals(1, ran[0]);
+    }
+
+    @Test
+    public void idleWork_runsInBudgetedBatches() {
+        final int[] ran = new int[1];
+        mBehavior.setIdleWorkBudget(5, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 6; i++) {
+            mBehavior.runWhenIdle(new Runnable() {
+                @Override
+                public void run() {
+                    ran[0]++;
+                    mClock.advance(TimeUnit.MILLISECONDS.toNanos(2));
+                }
+            });
+        }
+        DeferredWorkQueue.Task cancelled = mBehavior.runWhenIdle(new Runnable() {
+            @Override
+            public void run() {
+                ran[0] += 100;
+            }
+        }, DeferredWorkQueue.PRIORITY_HIGH);
+        assertTrue(mBehavior.cancelIdleWork(cancelled));
+
+        mClock.doFrame(FRAME);
+        assertEquals(3, ran[0]);
+
+        assertEquals(1, settle());
+        assertEquals(6, ran[0]);
+    }
+
+    private void runTranslationSettle() {
+        // The property animation runs on the main looper rather than on the manual clock
+        for (int i = 0; i < 100 && mBehavior.isSettling(); i++) {
+            ShadowLooper.idleMainLooper(16);
+        }
+    }
+
+    private static class RecordingCallback extends SideSheetBehavior.SideSheetCallback {
+        int mSlides;
+        float mLastOffset = Float.NaN;
+        float mSlideOffsetAtStateChange = Float.NaN;
+
+        @Override
+        public void onStateChanged(@NonNull View sideSheet, int newState) {
+            mSlideOffsetAtStateChange = mLastOffset;
+        }
+
+        @Override
+        public void onSlide(@NonNull View sideSheet, float slideOffset) {
+            mSlides++;
+            mLastOffset = slideOffset;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package srs.me.sidesheetdemo;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.support.v4.content.ContextCompat;
+import android.view.ContextThemeWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SideSheetConfigCacheTest extends SideSheetTestFixture {
+
+    private int mTheme;
+    private Context mThemedContext;
+
+    @Before
+    public void setUp() {
+        SideSheetConfigCache.clear();
+        mTheme = SideSheetDialog.getThemeResId(mActivity, 0);
+        mThemedContext = new ContextThemeWrapper(mActivity, mTheme);
+    }
+
+    @After
+    public void tearDown() {
+        SideSheetConfigCache.clear();
+    }
+
+    @Test
+    public void repeatedLookups_shareOneEntry() {
+        SideSheetConfigCache.BehaviorConfig config =
+                SideSheetConfigCache.getBehaviorConfig(mThemedContext, mTheme);
+
+        assertSame(config, SideSheetConfigCache.getBehaviorConfig(
+                new ContextThemeWrapper(mActivity, mTheme), mTheme));
+        assertEquals(mTheme, SideSheetConfigCache.getDialogTheme(mActivity));
+    }
+
+    @Test
+    public void otherHostTheme_resolvesAgain() {
+        SideSheetConfigCache.BehaviorConfig config =
+                SideSheetConfigCache.getBehaviorConfig(mThemedContext, mTheme);
+        Context otherHost = new ContextThemeWrapper(mActivity, R.style.AppTheme);
+
+        SideSheetConfigCache.BehaviorConfig otherConfig = SideSheetConfigCache.getBehaviorConfig(
+                new ContextThemeWrapper(otherHost, mTheme), mTheme);
+
+        assertNotSame(config, otherConfig);
+        assertSame(otherConfig, SideSheetConfigCache.getBehaviorConfig(
+                new ContextThemeWrapper(otherHost, mTheme), mTheme));
+    }
+
+    @Test
+    public void shellBehavior_usesSideSheetStyle() {
+        SideSheetShell shell = new SideSheetShell(mThemedContext, mTheme);
+
+        assertEquals(ContextCompat.getColor(mActivity, R.color.side_sheet_scrim),
+                shell.getBehavior().getScrimColor());
+    }
+
+    @Test
+    public void configurationChange_resolvesAgain() {
+        SideSheetConfigCache.BehaviorConfig config =
+                SideSheetConfigCache.getBehaviorConfig(mThemedContext, mTheme);
+
+        Resources resources = mThemedContext.getResources();
+        Configuration changed = new Configuration(resources.getConfiguration());
+        changed.orientation = changed.orientation == Configuration.ORIENTATION_LANDSCAPE
+                ? Configuration.ORIENTATION_PORTRAIT : Configuration.ORIENTATION_LANDSCAPE;
+        resources.updateConfiguration(changed, resources.getDisplayMetrics());
+
+        assertNotSame(config, SideSheetConfigCache.getBehaviorConfig(mThemedContext, mTheme));
+    }
+}
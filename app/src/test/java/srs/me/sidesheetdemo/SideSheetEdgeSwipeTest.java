@@ -0,0 +1,90 @@
+package srs.me.sidesheetdemo;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetEdgeSwipeTest extends SideSheetTestFixture {
+
+    private static final int EDGE_WIDTH = 48;
+
+    private long mTime;
+
+    @Before
+    public void setUp() {
+        createSheet();
+        mBehavior.setHideable(true);
+        mBehavior.setState(SideSheetBehavior.STATE_HIDDEN);
+        mBehavior.setEdgeSwipeWidth(EDGE_WIDTH);
+        attach();
+        layout();
+    }
+
+    @Test
+    public void edgeSwipe_sheetFollowsFirstMove() {
+        int x = PARENT_WIDTH - EDGE_WIDTH / 2;
+        assertEquals(PARENT_WIDTH, mSheet.getLeft());
+
+        assertFalse(intercept(MotionEvent.ACTION_DOWN, x, 0));
+        assertTrue(intercept(MotionEvent.ACTION_MOVE, x - 4, 0));
+
+        assertEquals(SideSheetBehavior.STATE_DRAGGING, mBehavior.mState);
+        assertEquals(PARENT_WIDTH - 4, mSheet.getLeft());
+
+        touch(MotionEvent.ACTION_MOVE, x - 100, 0);
+        assertEquals(PARENT_WIDTH - 100, mSheet.getLeft());
+    }
+
+    @Test
+    public void edgeSwipe_layoutIsDoneOnDown() {
+        mSheet.addView(new View(mSheet.getContext()));
+        assertTrue(mSheet.isLayoutRequested());
+
+        intercept(MotionEvent.ACTION_DOWN, PARENT_WIDTH - 1, 0);
+
+        assertFalse(mSheet.isLayoutRequested());
+        assertEquals(PARENT_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void verticalMove_abandonsEdgeSwipe() {
+        int x = PARENT_WIDTH - EDGE_WIDTH / 2;
+        intercept(MotionEvent.ACTION_DOWN, x, 0);
+
+        assertFalse(intercept(MotionEvent.ACTION_MOVE, x - 2, 40));
+        assertFalse(intercept(MotionEvent.ACTION_MOVE, x - 100, 60));
+
+        assertEquals(SideSheetBehavior.STATE_HIDDEN, mBehavior.mState);
+        assertEquals(PARENT_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void downOutsideZone_isIgnored() {
+        int x = PARENT_WIDTH - EDGE_WIDTH * 2;
+        intercept(MotionEvent.ACTION_DOWN, x, 0);
+
+        assertFalse(intercept(MotionEvent.ACTION_MOVE, x - 100, 0));
+        assertEquals(SideSheetBehavior.STATE_HIDDEN, mBehavior.mState);
+    }
+
+    private boolean intercept(int action, int x, int dy) {
+        mTime += 8;
+        MotionEvent event = MotionEvent.obtain(0, mTime, action, x, PARENT_HEIGHT / 2 + dy, 0);
+        boolean intercepted = mBehavior.onInterceptTouchEvent(mParent, mSheet, event);
+        event.recycle();
+        return intercepted;
+    }
+
+    private void touch(int action, int x, int dy) {
+        mTime += 8;
+        MotionEvent event = MotionEvent.obtain(0, mTime, action, x, PARENT_HEIGHT / 2 + dy, 0);
+        mBehavior.onTouchEvent(mParent, mSheet, event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,116 @@
+package srs.me.sidesheetdemo;
+
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.NestedScrollView;
+import android.view.MotionEvent;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import srs.me.sidesheet.core.GestureRecorder;
+import srs.me.sidesheet.core.ManualFrameClock;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetGestureReplayTest extends SideSheetTestFixture {
+
+    @Test
+    public void replayedFling_endsWhereTheRecordingDid() {
+        GestureRecorder recorder = new GestureRecorder();
+        ManualFrameClock clock = new ManualFrameClock();
+        FrameLayout sheet = createSheet(SHEET_WIDTH, recorder, clock);
+        CoordinatorLayout parent = (CoordinatorLayout) sheet.getParent();
+        SideSheetBehavior<FrameLayout> behavior = SideSheetBehavior.from(sheet);
+
+        // A quick drag from the peek towards expanded, released mid-way
+        int x = PARENT_WIDTH - PEEK_WIDTH + 10;
+        boolean intercepted = false;
+        for (int i = 0; i <= 8; i++) {
+            int action = i == 0 ? MotionEvent.ACTION_DOWN
+                    : i == 8 ? MotionEvent.ACTION_UP : MotionEvent.ACTION_MOVE;
+            long time = TimeUnit.NANOSECONDS.toMillis(clock.nanoTime());
+            MotionEvent event = MotionEvent.obtain(0, time, action, x - i * 60,
+                    PARENT_HEIGHT / 2, 0);
+            if (!intercepted) {
+                intercepted = behavior.onInterceptTouchEvent(parent, sheet, event);
+            }
+            if (intercepted) {
+                behavior.onTouchEvent(parent, sheet, event);
+            }
+            event.recycle();
+            clock.doFrame(FRAME);
+        }
+        clock.runUntilIdle(FRAME, 600);
+        byte[] trace = recorder.toByteArray();
+        int recordedState = behavior.mState;
+        int recordedLeft = sheet.getLeft();
+
+        GestureRecorder rerecorder = new GestureRecorder();
+        ManualFrameClock replayClock = new ManualFrameClock();
+        FrameLayout replayed = createSheet(SHEET_WIDTH, rerecorder, replayClock);
+        int events = new SideSheetGestureReplayer<>((CoordinatorLayout) replayed.getParent(),
+                replayed, replayClock).replay(trace);
+
+        assertEquals(recorder.getEventCount(), events);
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, recordedState);
+        assertEquals(recordedState, SideSheetBehavior.from(replayed).mState);
+        assertEquals(recordedLeft, replayed.getLeft());
+        // The replay fed the behavior exactly what was recorded
+        assertArrayEquals(trace, rerecorder.toByteArray());
+    }
+
+    @Test
+    public void replayedNestedScroll_movesTheSheet() {
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.setSize(PARENT_WIDTH, PARENT_HEIGHT, SHEET_WIDTH);
+        long time = 0;
+        recorder.recordNestedScrollStart(time, ViewCompat.SCROLL_AXIS_HORIZONTAL);
+        for (int i = 0; i < 5; i++) {
+            time += FRAME;
+            recorder.recordNestedPreScroll(time, 40, 0);
+        }
+        recorder.recordNestedScrollStop(time + FRAME);
+
+        ManualFrameClock clock = new ManualFrameClock();
+        FrameLayout sheet = createSheet(SHEET_WIDTH, null, clock);
+        sheet.addView(new NestedScrollView(mActivity));
+        layout();
+        new SideSheetGestureReplayer<>((CoordinatorLayout) sheet.getParent(), sheet, clock)
+                .replay(recorder.toByteArray());
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, SideSheetBehavior.from(sheet).mState);
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, sheet.getLeft());
+    }
+
+    @Test
+    public void traceOfAnotherSize_isRejected() {
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.setSize(PARENT_WIDTH, PARENT_HEIGHT, SHEET_WIDTH);
+        ManualFrameClock clock = new ManualFrameClock();
+        FrameLayout sheet = createSheet(SHEET_WIDTH / 2, null, clock);
+
+        try {
+            new SideSheetGestureReplayer<>((CoordinatorLayout) sheet.getParent(), sheet, clock)
+                    .replay(recorder.toByteArray());
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(String.valueOf(SHEET_WIDTH)));
+            return;
+        }
+        throw new AssertionError("A trace of another size was replayed");
+    }
+
+    private FrameLayout createSheet(int width, GestureRecorder recorder, ManualFrameClock clock) {
+        createSheet(width);
+        mBehavior.setPeekWidth(PEEK_WIDTH);
+        mBehavior.setFrameClock(clock);
+        mBehavior.setGestureRecorder(recorder);
+        attach();
+        layout();
+        return mSheet;
+    }
+}
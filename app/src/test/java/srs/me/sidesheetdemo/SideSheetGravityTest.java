@@ -0,0 +1,142 @@
+package srs.me.sidesheetdemo;
+
+import android.support.v4.view.GravityCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.NestedScrollView;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetGravityTest extends SideSheetTestFixture {
+
+    private static final int EDGE_WIDTH = 48;
+
+    private long mTime;
+
+    @Before
+    public void setUp() {
+        createSheet();
+        mBehavior.setPeekWidth(PEEK_WIDTH);
+        mBehavior.setFrameClock(mClock);
+        attach();
+    }
+
+    @Test
+    public void startGravity_mirrorsRestingPositions() {
+        mBehavior.setSheetGravity(GravityCompat.START);
+        mBehavior.setHideable(true);
+        layout();
+        assertEquals(PEEK_WIDTH - SHEET_WIDTH, mSheet.getLeft());
+
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        settle();
+        assertEquals(0, mSheet.getLeft());
+
+        mBehavior.setState(SideSheetBehavior.STATE_HIDDEN);
+        settle();
+        assertEquals(-SHEET_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void endGravity_entersFromLeftInRtl() {
+        layout();
+        assertEquals(PARENT_WIDTH - PEEK_WIDTH, mSheet.getLeft());
+
+        mBehavior.onLayoutChild(mParent, mSheet, ViewCompat.LAYOUT_DIRECTION_RTL);
+
+        assertEquals(PEEK_WIDTH - SHEET_WIDTH, mSheet.getLeft());
+        assertEquals(0f, mBehavior.mGeometry.getSlideOffset(mBehavior.getSheetLeft(mSheet)), 0f);
+    }
+
+    @Test
+    public void dragTowardsContent_expandsLeftSheet() {
+        mBehavior.setSheetGravity(GravityCompat.START);
+        layout();
+        int x = PEEK_WIDTH - 10;
+
+        intercept(MotionEvent.ACTION_DOWN, x);
+        for (int i = 1; i <= 6; i++) {
+            if (intercept(MotionEvent.ACTION_MOVE, x + i * 60)) {
+                break;
+            }
+        }
+        touch(MotionEvent.ACTION_MOVE, x + 420);
+        assertTrue(mSheet.getLeft() > PEEK_WIDTH - SHEET_WIDTH);
+        touch(MotionEvent.ACTION_UP, x + 480);
+        settle();
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(0, mSheet.getLeft());
+    }
+
+    @Test
+    public void edgeSwipe_startsAtLeftEdge() {
+        mBehavior.setSheetGravity(GravityCompat.START);
+        mBehavior.setHideable(true);
+        mBehavior.setState(SideSheetBehavior.STATE_HIDDEN);
+        mBehavior.setEdgeSwipeWidth(EDGE_WIDTH);
+        layout();
+        int x = EDGE_WIDTH / 2;
+
+        intercept(MotionEvent.ACTION_DOWN, x);
+        assertTrue(intercept(MotionEvent.ACTION_MOVE, x + 4));
+
+        assertEquals(SideSheetBehavior.STATE_DRAGGING, mBehavior.mState);
+        assertEquals(4 - SHEET_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void nestedScroll_movesLeftSheetWithContent() {
+        mBehavior.setSheetGravity(GravityCompat.START);
+        NestedScrollView content = new NestedScrollView(mActivity);
+        mSheet.addView(content);
+        layout();
+        int[] consumed = new int[2];
+
+        mBehavior.onStartNestedScroll(mParent, mSheet, content, content,
+                ViewCompat.SCROLL_AXIS_HORIZONTAL);
+        // The finger moves right, towards the content behind a left sheet
+        mBehavior.onNestedPreScroll(mParent, mSheet, content, -40, 0, consumed);
+
+        assertEquals(-40, consumed[0]);
+        assertEquals(PEEK_WIDTH - SHEET_WIDTH + 40, mSheet.getLeft());
+    }
+
+    @Test
+    public void peekRegion_isMeasuredFromTheRightOfLeftSheet() {
+        View region = new View(mActivity);
+        region.setId(View.generateViewId());
+        FrameLayout.LayoutParams regionParams = new FrameLayout.LayoutParams(300,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+        regionParams.leftMargin = 420;
+        mSheet.addView(region, regionParams);
+        mBehavior.setSheetGravity(GravityCompat.START);
+        mBehavior.setPeekWidth(SideSheetBehavior.PEEK_WIDTH_AUTO);
+        mBehavior.setPeekRegionId(region.getId());
+        layout();
+
+        assertEquals(-420, mSheet.getLeft());
+    }
+
+    private boolean intercept(int action, int x) {
+        mTime += 8;
+        MotionEvent event = MotionEvent.obtain(0, mTime, action, x, PARENT_HEIGHT / 2, 0);
+        boolean intercepted = mBehavior.onInterceptTouchEvent(mParent, mSheet, event);
+        event.recycle();
+        return intercepted;
+    }
+
+    private void touch(int action, int x) {
+        mTime += 8;
+        MotionEvent event = MotionEvent.obtain(0, mTime, action, x, PARENT_HEIGHT / 2, 0);
+        mBehavior.onTouchEvent(mParent, mSheet, event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,126 @@
+package srs.me.sidesheetdemo;
+
+import android.content.ComponentCallbacks2;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SideSheetMemoryTest extends SideSheetTestFixture {
+
+    @Test
+    public void dismissedOverlay_leavesNoSheetReachable() {
+        SideSheetOverlay overlay = new SideSheetOverlay(mActivity);
+        overlay.setContentView(new View(mActivity));
+        overlay.getBehavior().setFrameClock(mClock);
+        overlay.show();
+        ViewGroup container = (ViewGroup) mActivity.findViewById(android.R.id.content);
+        WeakReference<View> sheet = new WeakReference<>(
+                layoutAndSettle(container.getChildAt(1)));
+        assertNotNull(sheet.get());
+
+        overlay.dismiss();
+        settle();
+
+        assertFalse(overlay.isShowing());
+        assertCollected(sheet);
+    }
+
+    @Test
+    public void dismissedDialog_leavesNoSheetReachable() {
+        SideSheetDialog dialog = new SideSheetDialog(mActivity);
+        dialog.setContentView(new View(mActivity));
+        dialog.getBehavior().setFrameClock(mClock);
+        dialog.show();
+        WeakReference<View> sheet = new WeakReference<>(
+                layoutAndSettle(dialog.getWindow().getDecorView()));
+        assertNotNull(sheet.get());
+
+        dialog.dismiss();
+        settle();
+
+        assertFalse(dialog.isShowing());
+        assertNull(dialog.getBehavior());
+        assertCollected(sheet);
+    }
+
+    @Test
+    public void hiddenSheet_releasesDragHelperUntilNextTouch() {
+        createHideableSheet();
+        assertNotNull(mBehavior.mViewDragHelper);
+
+        mBehavior.setState(SideSheetBehavior.STATE_HIDDEN);
+        settle();
+        assertNull(mBehavior.mViewDragHelper);
+
+        MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, PARENT_WIDTH - 10,
+                PARENT_HEIGHT / 2, 0);
+        mBehavior.onInterceptTouchEvent(mParent, mSheet, down);
+        down.recycle();
+        assertNotNull(mBehavior.mViewDragHelper);
+    }
+
+    @Test
+    public void detachWhileSettling_cancelsSettleAndPutsSheetAtTarget() {
+        createHideableSheet();
+        mBehavior.setSettleEngine(null);
+
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        assertEquals(SideSheetBehavior.STATE_SETTLING, mBehavior.mState);
+        ((ViewGroup) mParent.getParent()).removeView(mParent);
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void trimMemory_detachesCoveredStackSheets() {
+        SideSheetStack stack = new SideSheetStack(mActivity);
+        stack.setFrameClock(mClock);
+        stack.setMaxAttached(3);
+        for (int i = 0; i < 3; i++) {
+            stack.push(R.layout.demo_side_sheet, null);
+            layoutAndSettle(stack.getCoordinator());
+        }
+        assertEquals(3, stack.getCoordinator().getChildCount());
+
+        stack.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(3, stack.getDepth());
+        assertEquals(1, stack.getCoordinator().getChildCount());
+    }
+
+    private void createHideableSheet() {
+        createSheet();
+        mBehavior.setHideable(true);
+        mBehavior.setFrameClock(mClock);
+        attach();
+        layout();
+        settle();
+    }
+
+    private View layoutAndSettle(View root) {
+        layout(root);
+        settle();
+        return root.findViewById(R.id.side_sheet);
+    }
+
+    private static void assertCollected(WeakReference<View> sheet) {
+        // Runnables the views posted are dropped once they ran
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        for (int i = 0; i < 20 && sheet.get() != null; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        assertNull("A dismissed sheet is still reachable", sheet.get());
+    }
+}
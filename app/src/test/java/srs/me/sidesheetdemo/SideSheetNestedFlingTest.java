@@ -0,0 +1,155 @@
+package srs.me.sidesheetdemo;
+
+import android.content.Context;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetNestedFlingTest extends SideSheetTestFixture {
+
+    private FlingRecordingRecyclerView mContent;
+    private final int[] mConsumed = new int[2];
+
+    @Before
+    public void setUp() {
+        createSheet();
+        // Without a layout manager the content can't scroll, so it sits at both of its edges
+        mContent = new FlingRecordingRecyclerView(mActivity);
+        mSheet.addView(mContent);
+        mBehavior.setPeekWidth(PEEK_WIDTH);
+        mBehavior.setFrameClock(mClock);
+        attach();
+        layout();
+    }
+
+    @Test
+    public void preScroll_consumesHorizontalDelta() {
+        startNestedScroll();
+        preScroll(40);
+
+        assertEquals(40, mConsumed[0]);
+        assertEquals(0, mConsumed[1]);
+        assertEquals(PARENT_WIDTH - PEEK_WIDTH - 40, mSheet.getLeft());
+    }
+
+    @Test
+    public void fling_overridesLastScrollDirection() {
+        startNestedScroll();
+        preScroll(40);
+        preScroll(40);
+        // A last nudge back would collapse the sheet on its own
+        preScroll(-5);
+
+        assertTrue(mBehavior.onNestedPreFling(mParent, mSheet, mContent, 4000f, 0f));
+        mBehavior.onStopNestedScroll(mParent, mSheet, mContent);
+        settle();
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void fastFling_handsRemainderToContentAtExpanded() {
+        startNestedScroll();
+        preScroll(40);
+
+        mBehavior.onNestedPreFling(mParent, mSheet, mContent, 8000f, 0f);
+        mBehavior.onStopNestedScroll(mParent, mSheet, mContent);
+        assertEquals(0, mContent.mFlingVelocityX);
+        settle();
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        // 480px from expanded, the fling gives up 6 * 480px/s on the way
+        assertEquals(8000 - 6 * 480, mContent.mFlingVelocityX);
+    }
+
+    @Test
+    public void slowFling_keepsItsVelocity() {
+        startNestedScroll();
+        preScroll(40);
+
+        mBehavior.onNestedPreFling(mParent, mSheet, mContent, 2000f, 0f);
+        settle();
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(0, mContent.mFlingVelocityX);
+    }
+
+    @Test
+    public void backwardsFling_staysWithContentThatCanScrollBack() {
+        mBehavior.setHideable(true);
+        mContent.mCanScrollBack = true;
+        startNestedScroll();
+        preScroll(-40);
+        assertEquals(0, mConsumed[0]);
+
+        assertFalse(mBehavior.onNestedPreFling(mParent, mSheet, mContent, -4000f, 0f));
+        mBehavior.onStopNestedScroll(mParent, mSheet, mContent);
+        settle();
+
+        assertEquals(SideSheetBehavior.STATE_COLLAPSED, mBehavior.mState);
+        assertEquals(PARENT_WIDTH - PEEK_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void contentAtStart_passesFlingToExpandedSheet() {
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        settle();
+        startNestedScroll();
+
+        assertFalse(mBehavior.onNestedPreFling(mParent, mSheet, mContent, -3000f, 0f));
+        assertTrue(mBehavior.onNestedFling(mParent, mSheet, mContent, -3000f, 0f, true));
+        mBehavior.onStopNestedScroll(mParent, mSheet, mContent);
+        settle();
+
+        assertEquals(SideSheetBehavior.STATE_COLLAPSED, mBehavior.mState);
+    }
+
+    @Test
+    public void flingTowardsContentEnd_staysWithExpandedContent() {
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        settle();
+        startNestedScroll();
+
+        assertFalse(mBehavior.onNestedFling(mParent, mSheet, mContent, 3000f, 0f, true));
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+    }
+
+    private void startNestedScroll() {
+        assertTrue(mBehavior.onStartNestedScroll(mParent, mSheet, mSheet, mContent,
+                ViewCompat.SCROLL_AXIS_HORIZONTAL));
+    }
+
+    private void preScroll(int dx) {
+        mConsumed[0] = 0;
+        mConsumed[1] = 0;
+        mBehavior.onNestedPreScroll(mParent, mSheet, mContent, dx, 0, mConsumed);
+    }
+
+    private static class FlingRecordingRecyclerView extends RecyclerView {
+
+        int mFlingVelocityX;
+        boolean mCanScrollBack;
+
+        FlingRecordingRecyclerView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean canScrollHorizontally(int direction) {
+            return direction < 0 ? mCanScrollBack : super.canScrollHorizontally(direction);
+        }
+
+        @Override
+        public boolean fling(int velocityX, int velocityY) {
+            mFlingVelocityX = velocityX;
+            return true;
+        }
+    }
+}
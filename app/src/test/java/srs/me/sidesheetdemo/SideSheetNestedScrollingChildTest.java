@@ -0,0 +1,116 @@
+package srs.me.sidesheetdemo;
+
+import android.content.Context;
+import android.support.v4.widget.NestedScrollView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks when the nested scrolling child lookup is redone.
+ */
+public class SideSheetNestedScrollingChildTest extends SideSheetTestFixture {
+
+    private static final int DEPTH = 12;
+    private static final int BREADTH = 8;
+
+    private NestedScrollView mScrollingChild;
+
+    @Before
+    public void setUp() {
+        createSheet();
+        // The scrolling child sits last, at the bottom of the tree, so the lookup visits it all
+        ViewGroup deepest = addTree(mSheet, DEPTH);
+        mScrollingChild = new NestedScrollView(mActivity);
+        deepest.addView(mScrollingChild);
+        attach();
+        layout();
+    }
+
+    @Test
+    public void lookup_isCachedUntilInvalidated() {
+        assertSame(mScrollingChild, mBehavior.mNestedScrollingChildRef.get());
+
+        NestedScrollView replacement = new NestedScrollView(mActivity);
+        ((ViewGroup) mSheet.getChildAt(0)).addView(replacement, 0);
+        layout();
+        assertSame(mScrollingChild, mBehavior.mNestedScrollingChildRef.get());
+
+        mBehavior.invalidateNestedScrollingChild();
+        layout();
+        assertSame(replacement, mBehavior.mNestedScrollingChildRef.get());
+    }
+
+    @Test
+    public void lookup_isRedoneWhenScrollingChildIsRemoved() {
+        NestedScrollView other = new NestedScrollView(mActivity);
+        ((ViewGroup) mSheet.getChildAt(0)).addView(other);
+        ((ViewGroup) mScrollingChild.getParent()).removeView(mScrollingChild);
+        layout();
+
+        assertSame(other, mBehavior.mNestedScrollingChildRef.get());
+    }
+
+    @Test
+    public void lookup_isRedoneWhenSheetChildrenChange() {
+        NestedScrollView first = new NestedScrollView(mActivity);
+        mSheet.addView(first, 0);
+        layout();
+
+        assertSame(first, mBehavior.mNestedScrollingChildRef.get());
+    }
+
+    @Test
+    public void explicitScrollingChild_skipsLookup() {
+        NestedScrollView explicit = new NestedScrollView(mActivity);
+        mBehavior.setNestedScrollingChild(explicit);
+        mSheet.addView(new NestedScrollView(mActivity), 0);
+        layout();
+        assertSame(explicit, mBehavior.mNestedScrollingChildRef.get());
+
+        mBehavior.setNestedScrollingChild(null);
+        layout();
+        assertSame(mSheet.getChildAt(0), mBehavior.mNestedScrollingChildRef.get());
+    }
+
+    @Test
+    public void lookup_isRedoneWhenSheetChildIsSwapped() {
+        NestedScrollView replacement = new NestedScrollView(mActivity);
+        mSheet.removeViewAt(0);
+        mSheet.addView(replacement, 0);
+        layout();
+
+        assertSame(replacement, mBehavior.mNestedScrollingChildRef.get());
+    }
+
+    /**
+     * Nests {@code depth} levels of {@link #BREADTH} frames and returns the last one.
+     */
+    private ViewGroup addTree(ViewGroup root, int depth) {
+        Context context = root.getContext();
+        ViewGroup last = root;
+        for (int level = 0; level < depth; level++) {
+            ViewGroup next = null;
+            for (int i = 0; i < BREADTH; i++) {
+                FrameLayout frame = new FrameLayout(context);
+                frame.addView(new View(context));
+                last.addView(frame);
+                next = frame;
+            }
+            last = next;
+        }
+        return last;
+    }
+
+    @Override
+    void layout() {
+        // Every pass runs onLayoutChild, even when nothing else asked for a layout
+        mParent.requestLayout();
+        super.layout();
+    }
+}
@@ -0,0 +1,159 @@
+package srs.me.sidesheetdemo;
+
+import android.app.Activity;
+import android.content.DialogInterface;
+import android.support.v4.view.ViewCompat;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetOverlayTest extends SideSheetTestFixture {
+
+    private ViewGroup mContainer;
+    private View mActivityContent;
+    private SideSheetOverlay mOverlay;
+    private View mSheetContent;
+    private int mCancels;
+    private int mDismisses;
+
+    @Before
+    public void setUp() {
+        mContainer = (ViewGroup) mActivity.findViewById(android.R.id.content);
+        mActivityContent = mContainer.getChildAt(0);
+        mOverlay = new SideSheetOverlay(mActivity);
+        mSheetContent = new View(mActivity);
+        mOverlay.setContentView(mSheetContent);
+        mOverlay.getBehavior().setFrameClock(mClock);
+        mOverlay.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+                mCancels++;
+            }
+        });
+        mOverlay.setOnDismissListener(new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialog) {
+                mDismisses++;
+            }
+        });
+    }
+
+    @Test
+    public void show_addsSheetOverContentAndHidesContentFromAccessibility() {
+        mOverlay.show();
+
+        assertTrue(mOverlay.isShowing());
+        assertEquals(2, mContainer.getChildCount());
+        assertEquals(ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS,
+                ViewCompat.getImportantForAccessibility(mActivityContent));
+    }
+
+    @Test
+    public void dismiss_removesSheetAndRestoresAccessibility() {
+        int importance = ViewCompat.getImportantForAccessibility(mActivityContent);
+        mOverlay.show();
+        layoutAndSettle(mContainer.getChildAt(1));
+
+        mOverlay.dismiss();
+        assertTrue(mOverlay.isShowing());
+        assertTrue(mOverlay.getBehavior().isAnimatingOut());
+
+        settle();
+        assertFalse(mOverlay.isShowing());
+        assertEquals(1, mContainer.getChildCount());
+        assertEquals(importance, ViewCompat.getImportantForAccessibility(mActivityContent));
+        assertEquals(0, mCancels);
+        assertEquals(1, mDismisses);
+    }
+
+    @Test
+    public void back_cancelsOnlyWhenCancelable() {
+        mOverlay.setCancelable(false);
+        mOverlay.show();
+        View coordinator = mContainer.getChildAt(1);
+        layoutAndSettle(coordinator);
+
+        pressBack(coordinator);
+        assertTrue(mOverlay.isShowing());
+
+        mOverlay.setCancelable(true);
+        pressBack(coordinator);
+        pressBack(coordinator);
+        settle();
+        assertFalse(mOverlay.isShowing());
+        assertEquals(1, mCancels);
+        assertEquals(1, mDismisses);
+    }
+
+    @Test
+    public void back_cancelsWhileContentHasFocus() {
+        mOverlay.show();
+        layoutAndSettle(mContainer.getChildAt(1));
+        mSheetContent.setFocusableInTouchMode(true);
+        assertTrue(mSheetContent.requestFocus());
+
+        // Through the window, the way the system delivers it
+        pressBack(mActivity);
+        settle();
+
+        assertFalse(mOverlay.isShowing());
+        assertEquals(1, mCancels);
+        assertFalse(mActivity.isFinishing());
+    }
+
+    @Test
+    public void dismissBeforeLayout_removesSheet() {
+        // Without traversals the sheet is never laid out
+        ShadowLooper.pauseMainLooper();
+        mOverlay.show();
+        assertFalse(ViewCompat.isLaidOut(mContainer.getChildAt(1)));
+
+        mOverlay.dismiss();
+
+        assertFalse(mOverlay.isShowing());
+        assertEquals(1, mContainer.getChildCount());
+        assertEquals(1, mDismisses);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void pooledOverlay_returnsShellOnDismiss() {
+        SideSheetShellPool pool = new SideSheetShellPool(mActivity, 0, 1);
+        SideSheetOverlay overlay = new SideSheetOverlay(mActivity, pool);
+        overlay.setContentView(new View(mActivity));
+        overlay.getBehavior().setFrameClock(mClock);
+        overlay.show();
+        layoutAndSettle(mContainer.getChildAt(1));
+
+        overlay.dismiss();
+        settle();
+
+        assertEquals(1, pool.size());
+        assertNull(overlay.getBehavior());
+        pool.release();
+    }
+
+    private void layoutAndSettle(View coordinator) {
+        layout(coordinator);
+        settle();
+    }
+
+    private static void pressBack(View view) {
+        view.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_BACK));
+        view.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_BACK));
+    }
+
+    private static void pressBack(Activity activity) {
+        activity.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_BACK));
+        activity.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_BACK));
+    }
+}
@@ -0,0 +1,117 @@
+package srs.me.sidesheetdemo;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.widget.NestedScrollView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+
+import srs.me.sidesheet.core.ManualFrameClock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetSavedStateTest extends SideSheetTestFixture {
+
+    @Test
+    public void restore_placesSheetWithoutSettling() {
+        Sheet saved = new Sheet();
+        saved.mBehavior.setPeekWidth(240);
+        saved.mBehavior.setHideable(true);
+        saved.layout();
+        saved.mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        saved.mClock.runUntilIdle(FRAME, 600);
+
+        Sheet restored = new Sheet();
+        restored.mBehavior.onRestoreInstanceState(restored.mParent, restored.mSheet,
+                parcel(saved.mBehavior.onSaveInstanceState(saved.mParent, saved.mSheet)));
+        assertTrue(restored.mBehavior.isRestoringState());
+        restored.layout();
+
+        assertFalse(restored.mBehavior.isRestoringState());
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, restored.mBehavior.mState);
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, restored.mSheet.getLeft());
+        assertFalse(restored.mClock.hasPendingCallbacks());
+        assertEquals(240, restored.mBehavior.getPeekWidth());
+        assertTrue(restored.mBehavior.isHideable());
+    }
+
+    @Test
+    public void settlingSheet_isSavedAtItsTarget() {
+        Sheet saved = new Sheet();
+        saved.layout();
+        saved.mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        saved.mClock.doFrame(FRAME);
+        assertEquals(SideSheetBehavior.STATE_SETTLING, saved.mBehavior.mState);
+
+        Sheet restored = new Sheet();
+        restored.mBehavior.onRestoreInstanceState(restored.mParent, restored.mSheet,
+                parcel(saved.mBehavior.onSaveInstanceState(saved.mParent, saved.mSheet)));
+        restored.layout();
+
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, restored.mBehavior.mState);
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, restored.mSheet.getLeft());
+    }
+
+    @Test
+    public void restore_scrollsNestedChildWithoutId() {
+        Sheet saved = new Sheet();
+        NestedScrollView scroll = saved.addScrollingContent();
+        saved.layout();
+        scroll.scrollTo(0, 300);
+
+        Sheet restored = new Sheet();
+        NestedScrollView restoredScroll = restored.addScrollingContent();
+        restored.mBehavior.onRestoreInstanceState(restored.mParent, restored.mSheet,
+                parcel(saved.mBehavior.onSaveInstanceState(saved.mParent, saved.mSheet)));
+        restored.layout();
+
+        assertEquals(300, restoredScroll.getScrollY());
+    }
+
+    private static Parcelable parcel(Parcelable state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(state, 0);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(SideSheetBehavior.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * A sheet with its own clock, so that a saved and a restored sheet can exist side by side.
+     */
+    private class Sheet {
+        final CoordinatorLayout mParent = new CoordinatorLayout(mActivity);
+        final FrameLayout mSheet = new FrameLayout(mActivity);
+        final SideSheetBehavior<FrameLayout> mBehavior = new SideSheetBehavior<>();
+        final ManualFrameClock mClock = new ManualFrameClock();
+
+        Sheet() {
+            mBehavior.setFrameClock(mClock);
+            CoordinatorLayout.LayoutParams params = new CoordinatorLayout.LayoutParams(
+                    SHEET_WIDTH, ViewGroup.LayoutParams.MATCH_PARENT);
+            params.setBehavior(mBehavior);
+            mParent.addView(mSheet, params);
+        }
+
+        NestedScrollView addScrollingContent() {
+            NestedScrollView scroll = new NestedScrollView(mActivity);
+            scroll.addView(new View(mActivity), new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, PARENT_HEIGHT * 2));
+            mSheet.addView(scroll);
+            return scroll;
+        }
+
+        void layout() {
+            SideSheetTestFixture.layout(mParent);
+        }
+    }
+}
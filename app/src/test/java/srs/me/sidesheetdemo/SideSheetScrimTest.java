@@ -0,0 +1,125 @@
+package srs.me.sidesheetdemo;
+
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetScrimTest extends SideSheetTestFixture {
+
+    private static final int SCRIM_COLOR = 0x80000000;
+
+    private int mOutsideTaps;
+    private long mTime;
+
+    @Before
+    public void setUp() {
+        createSheet();
+        mBehavior.setPeekWidth(PEEK_WIDTH);
+        mBehavior.setHideable(true);
+        mBehavior.setScrimColor(SCRIM_COLOR);
+        mBehavior.setOnOutsideTapListener(new SideSheetBehavior.OnOutsideTapListener() {
+            @Override
+            public void onOutsideTap(@NonNull View sideSheet) {
+                mOutsideTaps++;
+            }
+        });
+        attach();
+        layout();
+    }
+
+    @Test
+    public void scrimOpacity_followsVisiblePartOfSheet() {
+        float colorAlpha = 0x80 / 255f;
+        assertEquals(colorAlpha * PEEK_WIDTH / SHEET_WIDTH,
+                mBehavior.getScrimOpacity(mParent, mSheet), 0.001f);
+
+        mBehavior.moveSheetTo(mSheet, PARENT_WIDTH - SHEET_WIDTH);
+        assertEquals(colorAlpha, mBehavior.getScrimOpacity(mParent, mSheet), 0.001f);
+
+        mBehavior.moveSheetTo(mSheet, PARENT_WIDTH);
+        assertEquals(0f, mBehavior.getScrimOpacity(mParent, mSheet), 0f);
+        assertFalse(mBehavior.blocksInteractionBelow(mParent, mSheet));
+    }
+
+    @Test
+    public void translationMode_drawsScrimAroundTranslatedSheet() {
+        mBehavior.setMovementMode(SideSheetBehavior.MOVEMENT_TRANSLATION);
+        layout();
+
+        // The overlay scrim takes over from the parent's, which would skip the layout bounds
+        assertEquals(0f, mBehavior.getScrimOpacity(mParent, mSheet), 0f);
+        assertEquals(Math.round(0x80 * PEEK_WIDTH / (float) SHEET_WIDTH),
+                mBehavior.getTranslatedScrimAlpha(mSheet));
+        assertTrue(mBehavior.blocksInteractionBelow(mParent, mSheet));
+
+        mBehavior.moveSheetTo(mSheet, PARENT_WIDTH - SHEET_WIDTH);
+        assertEquals(0x80, mBehavior.getTranslatedScrimAlpha(mSheet));
+
+        mBehavior.setMovementMode(SideSheetBehavior.MOVEMENT_OFFSET);
+        layout();
+        assertEquals(0, mBehavior.getTranslatedScrimAlpha(mSheet));
+        assertEquals(0x80 / 255f * PEEK_WIDTH / SHEET_WIDTH,
+                mBehavior.getScrimOpacity(mParent, mSheet), 0.001f);
+    }
+
+    @Test
+    public void transparentScrim_isSkipped() {
+        mBehavior.setScrimColor(0);
+
+        mBehavior.moveSheetTo(mSheet, PARENT_WIDTH - SHEET_WIDTH);
+
+        assertEquals(0f, mBehavior.getScrimOpacity(mParent, mSheet), 0f);
+    }
+
+    @Test
+    public void tapOutsideSheet_isReported() {
+        assertFalse(intercept(MotionEvent.ACTION_DOWN, 100, 100));
+        assertTrue(touch(MotionEvent.ACTION_DOWN, 100, 100));
+        touch(MotionEvent.ACTION_UP, 102, 101);
+
+        assertEquals(1, mOutsideTaps);
+    }
+
+    @Test
+    public void dragOutsideSheet_isNotATap() {
+        intercept(MotionEvent.ACTION_DOWN, 100, 100);
+        touch(MotionEvent.ACTION_DOWN, 100, 100);
+        touch(MotionEvent.ACTION_MOVE, 100, 400);
+        touch(MotionEvent.ACTION_UP, 100, 400);
+
+        assertEquals(0, mOutsideTaps);
+    }
+
+    @Test
+    public void tapOnSheet_isNotOutside() {
+        int x = PARENT_WIDTH - PEEK_WIDTH / 2;
+        intercept(MotionEvent.ACTION_DOWN, x, 100);
+        touch(MotionEvent.ACTION_DOWN, x, 100);
+        touch(MotionEvent.ACTION_UP, x, 100);
+
+        assertEquals(0, mOutsideTaps);
+    }
+
+    private boolean intercept(int action, int x, int y) {
+        mTime += 8;
+        MotionEvent event = MotionEvent.obtain(0, mTime, action, x, y, 0);
+        boolean intercepted = mBehavior.onInterceptTouchEvent(mParent, mSheet, event);
+        event.recycle();
+        return intercepted;
+    }
+
+    private boolean touch(int action, int x, int y) {
+        mTime += 8;
+        MotionEvent event = MotionEvent.obtain(0, mTime, action, x, y, 0);
+        boolean handled = mBehavior.onTouchEvent(mParent, mSheet, event);
+        event.recycle();
+        return handled;
+    }
+}
@@ -0,0 +1,142 @@
+package srs.me.sidesheetdemo;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import srs.me.sidesheet.core.DetentSpec;
+import srs.me.sidesheet.core.SpringSettleEngine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SideSheetShellPoolTest extends SideSheetTestFixture {
+
+    private SideSheetShellPool mPool;
+
+    @Before
+    public void setUp() {
+        mPool = new SideSheetShellPool(mActivity, 0, 2);
+    }
+
+    @After
+    public void tearDown() {
+        mPool.release();
+    }
+
+    @Test
+    public void recycle_isBounded() {
+        SideSheetShell first = mPool.acquire();
+        SideSheetShell second = mPool.acquire();
+        SideSheetShell third = mPool.acquire();
+
+        mPool.recycle(first);
+        mPool.recycle(second);
+        mPool.recycle(third);
+
+        assertEquals(2, mPool.size());
+        assertSame(second, mPool.acquire());
+    }
+
+    @Test
+    public void configurationChange_dropsPooledAndOutstandingShells() {
+        SideSheetShell outstanding = mPool.acquire();
+        mPool.recycle(mPool.acquire());
+
+        RuntimeEnvironment.application.onConfigurationChanged(new Configuration());
+        assertEquals(0, mPool.size());
+
+        mPool.recycle(outstanding);
+        assertEquals(0, mPool.size());
+    }
+
+    @Test
+    public void trimMemory_clearsPool() {
+        mPool.recycle(mPool.acquire());
+        mPool.recycle(mPool.acquire());
+
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(1, mPool.size());
+
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(0, mPool.size());
+    }
+
+    @Test
+    public void dismissedDialog_returnsShellForNextDialog() {
+        SideSheetDialog dialog = new SideSheetDialog(mActivity, mPool);
+        View content = new View(mActivity);
+        dialog.setContentView(content);
+        dialog.getBehavior().setFrameClock(mClock);
+        dialog.show();
+        View sheet = (View) content.getParent();
+
+        dialog.dismiss();
+        // The window goes once the sheet has slid out, if it was laid out at all
+        settle();
+
+        assertEquals(1, mPool.size());
+        assertNull(content.getParent());
+        SideSheetDialog next = new SideSheetDialog(mActivity, mPool);
+        View nextContent = new View(mActivity);
+        next.setContentView(nextContent);
+        assertSame(sheet, nextContent.getParent());
+        assertEquals(0, mPool.size());
+    }
+
+    @Test
+    public void dialogDismissedBeforeLayout_returnsCollapsedShell() {
+        // Without traversals the dialog window is never attached and the sheet never laid out
+        ShadowLooper.pauseMainLooper();
+        SideSheetDialog dialog = new SideSheetDialog(mActivity, mPool);
+        View content = new View(mActivity);
+        dialog.setContentView(content);
+        dialog.show();
+        View sheet = (View) content.getParent();
+        assertFalse(ViewCompat.isLaidOut(sheet));
+
+        dialog.dismiss();
+
+        assertFalse(dialog.isShowing());
+        assertEquals(1, mPool.size());
+        assertEquals(SideSheetBehavior.STATE_COLLAPSED, SideSheetBehavior.from(sheet).mState);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void detach_resetsWhatTheOwnerChanged() {
+        SideSheetShell shell = mPool.acquire();
+        SideSheetBehavior<FrameLayout> behavior = shell.getBehavior();
+        int peekWidth = behavior.getPeekWidth();
+        int movementMode = behavior.getMovementMode();
+        behavior.setPeekWidth(123);
+        behavior.setPeekRatio(0.5f);
+        behavior.setDetents(DetentSpec.parse("50%", 1f));
+        behavior.setSettleEngine(null);
+        behavior.setCoalesceSlideEvents(true);
+        behavior.setMovementMode(movementMode == SideSheetBehavior.MOVEMENT_OFFSET
+                ? SideSheetBehavior.MOVEMENT_TRANSLATION : SideSheetBehavior.MOVEMENT_OFFSET);
+        behavior.setNestedScrollingChild(new View(mActivity));
+
+        shell.detach();
+
+        assertEquals(peekWidth, behavior.getPeekWidth());
+        assertEquals(0f, behavior.getPeekRatio(), 0f);
+        assertEquals(0, behavior.mGeometry.getDetentCount());
+        assertTrue(behavior.getSettleEngine() instanceof SpringSettleEngine);
+        assertFalse(behavior.getCoalesceSlideEvents());
+        assertEquals(movementMode, behavior.getMovementMode());
+        assertNull(behavior.mNestedScrollingChildRef.get());
+    }
+}
@@ -0,0 +1,166 @@
+package srs.me.sidesheetdemo;
+
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetStackTest extends SideSheetTestFixture {
+
+    private ViewGroup mContainer;
+    private SideSheetStack mStack;
+    private int mBinds;
+
+    private final SideSheetStack.ContentBinder mBinder = new SideSheetStack.ContentBinder() {
+        @Override
+        public void onContentInflated(View content) {
+            mBinds++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mContainer = (ViewGroup) mActivity.findViewById(android.R.id.content);
+        mStack = new SideSheetStack(mActivity);
+        mStack.setFrameClock(mClock);
+    }
+
+    @Test
+    public void push_coversLowerSheetAndSharesDragHelper() {
+        FrameLayout lower = pushAndSettle();
+        FrameLayout upper = pushAndSettle();
+
+        assertEquals(2, mContainer.getChildCount());
+        assertEquals(2, mStack.getCoordinator().getChildCount());
+        assertTrue(SideSheetBehavior.from(lower).isCovered());
+        assertFalse(SideSheetBehavior.from(upper).isCovered());
+        assertEquals(ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS,
+                ViewCompat.getImportantForAccessibility(lower));
+        assertNotNull(SideSheetBehavior.from(upper).mViewDragHelper);
+        assertSame(SideSheetBehavior.from(lower).mViewDragHelper,
+                SideSheetBehavior.from(upper).mViewDragHelper);
+    }
+
+    @Test
+    public void tapOnCoveredSheet_popsTopSheet() {
+        FrameLayout lower = pushAndSettle();
+        pushAndSettle();
+        CoordinatorLayout coordinator = mStack.getCoordinator();
+        SideSheetBehavior<FrameLayout> behavior = SideSheetBehavior.from(lower);
+        int x = lower.getLeft() + 1;
+        int y = lower.getHeight() / 2;
+
+        MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0);
+        assertTrue(behavior.onInterceptTouchEvent(coordinator, lower, down));
+        down.recycle();
+        MotionEvent up = MotionEvent.obtain(0, 50, MotionEvent.ACTION_UP, x, y, 0);
+        behavior.onTouchEvent(coordinator, lower, up);
+        up.recycle();
+        settle();
+
+        assertEquals(1, mStack.getDepth());
+        assertSame(lower, mStack.getTopSheet());
+        assertFalse(behavior.isCovered());
+        assertEquals(ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO,
+                ViewCompat.getImportantForAccessibility(lower));
+    }
+
+    @Test
+    public void deepStack_keepsOnlyMaxAttachedSheets() {
+        mStack.setMaxAttached(2);
+        for (int i = 0; i < 5; i++) {
+            pushAndSettle();
+        }
+
+        assertEquals(5, mStack.getDepth());
+        assertEquals(2, mStack.getCoordinator().getChildCount());
+        assertEquals(5, mBinds);
+    }
+
+    @Test
+    public void pushPastMaxDepth_dropsOldestSheets() {
+        mStack.setMaxDepth(3);
+        for (int i = 0; i < 5; i++) {
+            pushAndSettle();
+        }
+        assertEquals(3, mStack.getDepth());
+        assertEquals(5, mBinds);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(mStack.pop());
+            settle();
+        }
+
+        // Only the third sheet was inflated again; the two oldest are gone for good
+        assertEquals(0, mStack.getDepth());
+        assertEquals(6, mBinds);
+        assertNull(mStack.getCoordinator());
+    }
+
+    @Test
+    public void pop_inflatesDetachedSheetAgainWithItsState() {
+        mStack.setMaxAttached(1);
+        pushAndSettle();
+        mStack.getTopBehavior().setState(SideSheetBehavior.STATE_EXPANDED);
+        settle();
+        pushAndSettle();
+        assertEquals(1, mStack.getCoordinator().getChildCount());
+
+        mStack.pop();
+        settle();
+
+        assertEquals(1, mStack.getDepth());
+        assertEquals(3, mBinds);
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mStack.getTopBehavior().mState);
+        assertFalse(mStack.getTopBehavior().isCovered());
+    }
+
+    @Test
+    public void popLastSheet_removesCoordinator() {
+        pushAndSettle();
+
+        assertTrue(mStack.pop());
+        settle();
+
+        assertEquals(0, mStack.getDepth());
+        assertEquals(1, mContainer.getChildCount());
+        assertNull(mStack.getCoordinator());
+        assertFalse(mStack.pop());
+    }
+
+    @Test
+    public void back_popsTopSheetWhileItHasFocus() {
+        FrameLayout lower = pushAndSettle();
+        FrameLayout upper = pushAndSettle();
+        upper.setFocusableInTouchMode(true);
+        assertTrue(upper.requestFocus());
+
+        mActivity.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_BACK));
+        mActivity.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_BACK));
+        settle();
+
+        assertEquals(1, mStack.getDepth());
+        assertSame(lower, mStack.getTopSheet());
+        assertFalse(mActivity.isFinishing());
+    }
+
+    private FrameLayout pushAndSettle() {
+        mStack.push(R.layout.demo_side_sheet, mBinder);
+        layout(mStack.getCoordinator());
+        settle();
+        return mStack.getTopSheet();
+    }
+}
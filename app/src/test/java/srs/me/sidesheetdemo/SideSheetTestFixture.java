@@ -0,0 +1,83 @@
+package srs.me.sidesheetdemo;
+
+import android.support.design.widget.CoordinatorLayout;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import srs.me.sidesheet.core.ManualFrameClock;
+
+/**
+ * Base of the behavior tests: a started {@link MainActivity}, a manual frame clock, and a sheet
+ * of {@link #SHEET_WIDTH} with its own behavior in a parent of {@link #PARENT_WIDTH} by
+ * {@link #PARENT_HEIGHT}. The clock is not set on the behavior, and the parent is not attached
+ * to the activity until {@link #attach()}, so tests configure the behavior first.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+abstract class SideSheetTestFixture {
+
+    static final int PARENT_WIDTH = 1080;
+    static final int PARENT_HEIGHT = 1920;
+    static final int SHEET_WIDTH = 720;
+    static final int PEEK_WIDTH = 200;
+    static final long FRAME = 16_666_667L;
+
+    MainActivity mActivity;
+    final ManualFrameClock mClock = new ManualFrameClock();
+    CoordinatorLayout mParent;
+    FrameLayout mSheet;
+    SideSheetBehavior<FrameLayout> mBehavior;
+
+    @Before
+    public void setUpActivity() {
+        mActivity = Robolectric.setupActivity(MainActivity.class);
+    }
+
+    /**
+     * Replaces the parent, sheet and behavior with new ones, the sheet {@code width} wide.
+     */
+    void createSheet(int width) {
+        mParent = new CoordinatorLayout(mActivity);
+        mSheet = new FrameLayout(mActivity);
+        mBehavior = new SideSheetBehavior<>();
+        CoordinatorLayout.LayoutParams params = new CoordinatorLayout.LayoutParams(
+                width, ViewGroup.LayoutParams.MATCH_PARENT);
+        params.setBehavior(mBehavior);
+        mParent.addView(mSheet, params);
+    }
+
+    void createSheet() {
+        createSheet(SHEET_WIDTH);
+    }
+
+    void attach() {
+        mActivity.setContentView(mParent);
+    }
+
+    void layout() {
+        layout(mParent);
+    }
+
+    /**
+     * Measures and lays out {@code root} at the parent size.
+     */
+    static void layout(View root) {
+        root.measure(View.MeasureSpec.makeMeasureSpec(PARENT_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(PARENT_HEIGHT, View.MeasureSpec.EXACTLY));
+        root.layout(0, 0, PARENT_WIDTH, PARENT_HEIGHT);
+    }
+
+    /**
+     * Runs frames until nothing is left on the clock.
+     */
+    int settle() {
+        return mClock.runUntilIdle(FRAME, 600);
+    }
+}
@@ -0,0 +1,140 @@
+package srs.me.sidesheetdemo;
+
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SideSheetTransitionTest extends SideSheetTestFixture {
+
+    private final List<Integer> mStates = new ArrayList<>();
+    private int mExits;
+    private final Runnable mExitAction = new Runnable() {
+        @Override
+        public void run() {
+            mExits++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        // Not attached to the window, so that only layout() lays the sheet out
+        createSheet();
+        mBehavior.setPeekWidth(PEEK_WIDTH);
+        mBehavior.setFrameClock(mClock);
+        mBehavior.addSideSheetCallback(new SideSheetBehavior.SideSheetCallback() {
+            @Override
+            public void onStateChanged(@NonNull View sideSheet, int newState) {
+                mStates.add(newState);
+            }
+
+            @Override
+            public void onSlide(@NonNull View sideSheet, float slideOffset) {
+            }
+        });
+    }
+
+    @Test
+    public void animateIn_beforeLayout_slidesInFromHiddenWhenNotHideable() {
+        mBehavior.animateIn(SideSheetBehavior.STATE_COLLAPSED);
+
+        layout();
+        assertEquals(PARENT_WIDTH, mSheet.getLeft());
+        assertEquals(SideSheetBehavior.STATE_SETTLING, mBehavior.mState);
+
+        // The sheet passes through the offsets between hidden and collapsed instead of jumping
+        mClock.doFrame(FRAME);
+        int left = mSheet.getLeft();
+        assertTrue(left < PARENT_WIDTH);
+        assertTrue(left > PARENT_WIDTH - PEEK_WIDTH);
+        mClock.doFrame(FRAME);
+        assertTrue(mSheet.getLeft() < left);
+
+        assertTrue(settle() > 1);
+        assertEquals(SideSheetBehavior.STATE_COLLAPSED, mBehavior.mState);
+        assertEquals(PARENT_WIDTH - PEEK_WIDTH, mSheet.getLeft());
+        assertFalse(mStates.contains(SideSheetBehavior.STATE_HIDDEN));
+    }
+
+    @Test
+    public void animateIn_afterLayout_restartsFromHidden() {
+        layout();
+        assertEquals(PARENT_WIDTH - PEEK_WIDTH, mSheet.getLeft());
+
+        mBehavior.animateIn(SideSheetBehavior.STATE_EXPANDED);
+        mClock.doFrame(FRAME);
+        assertTrue(mSheet.getLeft() > PARENT_WIDTH - PEEK_WIDTH);
+
+        settle();
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+        assertEquals(PARENT_WIDTH - SHEET_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void animateOut_runsEndActionOnlyOnceHidden() {
+        layout();
+
+        mBehavior.animateOut(mExitAction);
+        assertTrue(mBehavior.isAnimatingOut());
+        mClock.doFrame(FRAME);
+        assertEquals(0, mExits);
+
+        settle();
+        assertEquals(1, mExits);
+        assertFalse(mBehavior.isAnimatingOut());
+        assertEquals(SideSheetBehavior.STATE_HIDDEN, mBehavior.mState);
+        assertEquals(PARENT_WIDTH, mSheet.getLeft());
+    }
+
+    @Test
+    public void animateOut_sheetCannotBeCaught() {
+        layout();
+        mBehavior.animateOut(mExitAction);
+        mClock.doFrame(FRAME);
+        int x = mSheet.getLeft() + 10;
+
+        assertFalse(intercept(MotionEvent.ACTION_DOWN, x));
+        assertFalse(intercept(MotionEvent.ACTION_MOVE, x + 200));
+
+        settle();
+        assertEquals(1, mExits);
+    }
+
+    @Test
+    public void animateOut_beforeLayout_runsEndActionAtOnce() {
+        mBehavior.animateOut(mExitAction);
+
+        assertEquals(1, mExits);
+        assertFalse(mClock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void setStateDuringExit_abandonsIt() {
+        layout();
+        mBehavior.animateOut(mExitAction);
+        mClock.doFrame(FRAME);
+
+        mBehavior.setState(SideSheetBehavior.STATE_EXPANDED);
+        settle();
+
+        assertEquals(0, mExits);
+        assertFalse(mBehavior.isAnimatingOut());
+        assertEquals(SideSheetBehavior.STATE_EXPANDED, mBehavior.mState);
+    }
+
+    private boolean intercept(int action, int x) {
+        MotionEvent event = MotionEvent.obtain(0, 0, action, x, PARENT_HEIGHT / 2, 0);
+        boolean intercepted = mBehavior.onInterceptTouchEvent(mParent, mSheet, event);
+        event.recycle();
+        return intercepted;
+    }
+}
@@ -0,0 +1,99 @@
+package srs.me.sidesheet.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-event drag math and of the settle decisions made on release.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SheetGeometryBenchmark {
+
+    private static final int PARENT_WIDTH = 1440;
+    private static final int SHEET_WIDTH = 960;
+    private static final int PEEK_WIDTH = 240;
+    private static final int SAMPLES = 1024;
+
+    private final SheetGeometry mGeometry = new SheetGeometry();
+    private final SheetGeometry mDetentGeometry = new SheetGeometry();
+    private final int[] mLefts = new int[SAMPLES];
+    private final int[] mDeltas = new int[SAMPLES];
+    private final float[] mVelocities = new float[SAMPLES];
+    private int mIndex;
+    private int mLeft;
+
+    @Setup
+    public void setUp() {
+        mGeometry.layout(PARENT_WIDTH, SHEET_WIDTH, PEEK_WIDTH);
+        mGeometry.setPeekWidth(PEEK_WIDTH);
+        mGeometry.setHideable(true);
+        mDetentGeometry.setDetents(DetentSpec.ofFractions(0.2f, 0.35f, 0.5f, 0.65f, 0.8f));
+        mDetentGeometry.layout(PARENT_WIDTH, SHEET_WIDTH, PEEK_WIDTH);
+        mDetentGeometry.setPeekWidth(PEEK_WIDTH);
+        mDetentGeometry.setHideable(true);
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            mLefts[i] = random.nextInt(PARENT_WIDTH + 1);
+            mDeltas[i] = random.nextInt(81) - 40;
+            mVelocities[i] = random.nextFloat() * 16000f - 8000f;
+        }
+        mLeft = mGeometry.getMaxOffset();
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SAMPLES - 1);
+    }
+
+    /**
+     * Work done for every MOVE event of a drag: clamp the new position and report the slide.
+     */
+    @Benchmark
+    public float moveEvent() {
+        int i = next();
+        mLeft = mGeometry.clampLeft(mLeft + mDeltas[i]);
+        return mGeometry.getSlideOffset(mLeft);
+    }
+
+    @Benchmark
+    public void releaseTarget(Blackhole blackhole) {
+        int i = next();
+        int state = mGeometry.resolveReleaseState(mLefts[i], mVelocities[i]);
+        blackhole.consume(mGeometry.getOffsetForState(state));
+    }
+
+    @Benchmark
+    public void releaseTargetWithDetents(Blackhole blackhole) {
+        int i = next();
+        int state = mDetentGeometry.resolveReleaseState(mLefts[i], mVelocities[i]);
+        blackhole.consume(mDetentGeometry.getOffsetForState(state,
+                mDetentGeometry.getResolvedDetent()));
+    }
+
+    @Benchmark
+    public int nestedScrollStopTarget() {
+        int i = next();
+        return mGeometry.resolveNestedScrollStopState(mLefts[i], mDeltas[i], mVelocities[i]);
+    }
+
+    @Benchmark
+    public float slideOffset() {
+        return mGeometry.getSlideOffset(mLefts[next()]);
+    }
+}
@@ -0,0 +1,109 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Settles like a fling under friction: the velocity decays exponentially and the decay rate is
+ * chosen so that the sheet comes to rest exactly at the target.
+ * <p>
+ * A release velocity pointing away from the target, or too small to arrive in reasonable time,
+ * is replaced by the slowest velocity that still settles within the configured time constant.
+ */
+public final class DecaySettleEngine implements SettleEngine {
+
+    /**
+     * Decay rates in 1/s; the sheet covers 63% of the remaining distance per 1/rate seconds.
+     */
+    public static final float DEFAULT_MIN_DECAY_RATE = 6f;
+    public static final float DEFAULT_MAX_DECAY_RATE = 40f;
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final float REST_POSITION_THRESHOLD = 0.5f;
+
+    private final float mMinDecayRate;
+    private final float mMaxDecayRate;
+
+    private boolean mRunning;
+    private float mStart;
+    private float mTarget;
+    private double mDecayRate;
+    private long mElapsedNanos;
+    private float mPosition;
+    private float mVelocity;
+
+    public DecaySettleEngine() {
+        this(DEFAULT_MIN_DECAY_RATE, DEFAULT_MAX_DECAY_RATE);
+    }
+
+    public DecaySettleEngine(float minDecayRate, float maxDecayRate) {
+        if (minDecayRate <= 0 || maxDecayRate < minDecayRate) {
+            throw new IllegalArgumentException("Invalid decay rates " + minDecayRate + ", "
+                    + maxDecayRate);
+        }
+        mMinDecayRate = minDecayRate;
+        mMaxDecayRate = maxDecayRate;
+    }
+
+    @Override
+    public void start(float from, float to, float velocity) {
+        mStart = from;
+        mTarget = to;
+        mPosition = from;
+        mElapsedNanos = 0;
+        float distance = to - from;
+        if (Math.abs(distance) < REST_POSITION_THRESHOLD) {
+            mPosition = to;
+            mVelocity = 0;
+            mRunning = false;
+            return;
+        }
+        // Velocity towards the target, in units of the distance per second
+        double rate = velocity / distance;
+        mDecayRate = MathUtils.constrain((float) rate, mMinDecayRate, mMaxDecayRate);
+        mVelocity = (float) (mDecayRate * distance);
+        mRunning = true;
+    }
+
+    @Override
+    public boolean step(long deltaNanos) {
+        if (!mRunning) {
+            return false;
+        }
+        mElapsedNanos += Math.max(0, deltaNanos);
+        double t = mElapsedNanos / NANOS_PER_SECOND;
+        double remaining = Math.exp(-mDecayRate * t);
+        float distance = mTarget - mStart;
+        mPosition = (float) (mTarget - distance * remaining);
+        mVelocity = (float) (mDecayRate * distance * remaining);
+        if (Math.abs(mTarget - mPosition) < REST_POSITION_THRESHOLD) {
+            mPosition = mTarget;
+            mVelocity = 0;
+            mRunning = false;
+        }
+        return mRunning;
+    }
+
+    @Override
+    public void cancel() {
+        mRunning = false;
+        mVelocity = 0;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public float getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    @Override
+    public float getTarget() {
+        return mTarget;
+    }
+}
@@ -0,0 +1,181 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Work that waits for a sheet to come to rest and then runs in frame-budgeted batches.
+ * <p>
+ * Tasks run highest priority first and in the order they were added within one priority. They
+ * are kept in a binary heap, so adding and cancelling a task is logarithmic in the number of
+ * waiting tasks. While the queue is {@linkplain #setHeld(boolean) held}, {@link #drain} runs
+ * nothing; a task that starts a drag or settle can hold the queue and so stop the batch it runs
+ * in.
+ */
+public final class DeferredWorkQueue {
+
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    /**
+     * A queued task, which can be used to cancel it.
+     */
+    public static final class Task {
+
+        final Runnable mRunnable;
+        final int mPriority;
+        final long mSequence;
+        int mIndex = -1;
+
+        Task(Runnable runnable, int priority, long sequence) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        public int getPriority() {
+            return mPriority;
+        }
+
+        /**
+         * Whether the task is still waiting, i.e. has neither run nor been cancelled.
+         */
+        public boolean isPending() {
+            return mIndex >= 0;
+        }
+    }
+
+    private Task[] mHeap = new Task[8];
+    private int mSize;
+    private long mNextSequence;
+    private boolean mHeld;
+
+    public Task enqueue(Runnable runnable, int priority) {
+        if (runnable == null) {
+            throw new IllegalArgumentException("runnable == null");
+        }
+        Task task = new Task(runnable, priority, mNextSequence++);
+        if (mSize == mHeap.length) {
+            Task[] grown = new Task[mSize * 2];
+            System.arraycopy(mHeap, 0, grown, 0, mSize);
+            mHeap = grown;
+        }
+        task.mIndex = mSize;
+        mHeap[mSize++] = task;
+        siftUp(task.mIndex);
+        return task;
+    }
+
+    /**
+     * @return false if {@code task} already ran or was cancelled
+     */
+    public boolean cancel(Task task) {
+        int index = task.mIndex;
+        if (index < 0 || index >= mSize || mHeap[index] != task) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mHeap[i].mIndex = -1;
+            mHeap[i] = null;
+        }
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public void setHeld(boolean held) {
+        mHeld = held;
+    }
+
+    public boolean isHeld() {
+        return mHeld;
+    }
+
+    /**
+     * Runs tasks until the queue is empty or held, or {@code clock} has passed
+     * {@code deadlineNanos}. At least one task runs if the queue is not held, so that a task
+     * longer than the budget cannot stall the queue.
+     *
+     * @return the number of tasks that ran
+     */
+    public int drain(FrameClock clock, long deadlineNanos) {
+        int ran = 0;
+        while (mSize > 0 && !mHeld && (ran == 0 || clock.nanoTime() < deadlineNanos)) {
+            Task task = mHeap[0];
+            removeAt(0);
+            ran++;
+            task.mRunnable.run();
+        }
+        return ran;
+    }
+
+    private void removeAt(int index) {
+        Task removed = mHeap[index];
+        removed.mIndex = -1;
+        int last = --mSize;
+        if (index != last) {
+            Task moved = mHeap[last];
+            mHeap[index] = moved;
+            moved.mIndex = index;
+            mHeap[last] = null;
+            siftDown(index);
+            if (mHeap[index] == moved) {
+                siftUp(index);
+            }
+        } else {
+            mHeap[last] = null;
+        }
+    }
+
+    private void siftUp(int index) {
+        Task task = mHeap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!runsBefore(task, mHeap[parent])) {
+                break;
+            }
+            place(mHeap[parent], index);
+            index = parent;
+        }
+        place(task, index);
+    }
+
+    private void siftDown(int index) {
+        Task task = mHeap[index];
+        int half = mSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < mSize && runsBefore(mHeap[right], mHeap[child])) {
+                child = right;
+            }
+            if (!runsBefore(mHeap[child], task)) {
+                break;
+            }
+            place(mHeap[child], index);
+            index = child;
+        }
+        place(task, index);
+    }
+
+    private void place(Task task, int index) {
+        mHeap[index] = task;
+        task.mIndex = index;
+    }
+
+    private static boolean runsBefore(Task a, Task b) {
+        if (a.mPriority != b.mPriority) {
+            return a.mPriority > b.mPriority;
+        }
+        return a.mSequence < b.mSequence;
+    }
+}
@@ -0,0 +1,108 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Intermediate resting widths of a side sheet between expanded and collapsed. Each detent is
+ * either a fixed visible width in pixels or a fraction of the parent width.
+ */
+public final class DetentSpec {
+
+    private static final float NOT_A_FRACTION = -1f;
+
+    private final float[] mFractions;
+    private final int[] mWidths;
+
+    private DetentSpec(float[] fractions, int[] widths) {
+        mFractions = fractions;
+        mWidths = widths;
+    }
+
+    /**
+     * Parses a list separated by commas, '|' or whitespace. Entries ending in {@code %} and plain
+     * numbers up to 1 are fractions of the parent width, entries ending in {@code dp}/{@code dip}
+     * are scaled by {@code density}, and entries ending in {@code px} or plain numbers above 1 are
+     * pixels.
+     *
+     * @throws IllegalArgumentException if an entry can't be parsed
+     */
+    public static DetentSpec parse(String spec, float density) {
+        String[] tokens = spec.trim().split("[\\s,|]+");
+        int count = tokens.length == 1 && tokens[0].isEmpty() ? 0 : tokens.length;
+        float[] fractions = new float[count];
+        int[] widths = new int[count];
+        for (int i = 0; i < count; i++) {
+            String token = tokens[i];
+            fractions[i] = NOT_A_FRACTION;
+            try {
+                if (token.endsWith("%")) {
+                    fractions[i] = checkFraction(
+                            Float.parseFloat(token.substring(0, token.length() - 1)) / 100f, token);
+                } else if (token.endsWith("dip")) {
+                    widths[i] = Math.round(parseWidth(token, 3) * density);
+                } else if (token.endsWith("dp")) {
+                    widths[i] = Math.round(parseWidth(token, 2) * density);
+                } else if (token.endsWith("px")) {
+                    widths[i] = Math.round(parseWidth(token, 2));
+                } else {
+                    float value = Float.parseFloat(token);
+                    if (value <= 1f) {
+                        fractions[i] = checkFraction(value, token);
+                    } else {
+                        widths[i] = Math.round(value);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid detent \"" + token + "\" in " + spec, e);
+            }
+        }
+        return new DetentSpec(fractions, widths);
+    }
+
+    public static DetentSpec ofFractions(float... fractions) {
+        float[] copy = new float[fractions.length];
+        for (int i = 0; i < fractions.length; i++) {
+            copy[i] = checkFraction(fractions[i], String.valueOf(fractions[i]));
+        }
+        return new DetentSpec(copy, new int[fractions.length]);
+    }
+
+    public static DetentSpec ofWidths(int... widths) {
+        float[] fractions = new float[widths.length];
+        int[] copy = new int[widths.length];
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] < 0) {
+                throw new IllegalArgumentException("Detent width must not be negative: "
+                        + widths[i]);
+            }
+            fractions[i] = NOT_A_FRACTION;
+            copy[i] = widths[i];
+        }
+        return new DetentSpec(fractions, copy);
+    }
+
+    private static float parseWidth(String token, int suffixLength) {
+        float width = Float.parseFloat(token.substring(0, token.length() - suffixLength));
+        if (width < 0) {
+            throw new IllegalArgumentException("Detent width must not be negative: " + token);
+        }
+        return width;
+    }
+
+    private static float checkFraction(float fraction, String token) {
+        if (!(fraction >= 0f && fraction <= 1f)) {
+            throw new IllegalArgumentException("Detent fraction must be within [0, 1]: " + token);
+        }
+        return fraction;
+    }
+
+    public int size() {
+        return mFractions.length;
+    }
+
+    /**
+     * Visible width of detent {@code index} in a parent {@code parentWidth} pixels wide.
+     */
+    public int getWidth(int index, int parentWidth) {
+        float fraction = mFractions[index];
+        return fraction == NOT_A_FRACTION ? mWidths[index] : Math.round(fraction * parentWidth);
+    }
+}
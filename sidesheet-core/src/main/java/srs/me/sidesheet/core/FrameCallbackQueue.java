@@ -0,0 +1,70 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Callbacks waiting for the next frame, kept in primitive arrays so that posting and running
+ * them does not allocate once the arrays have grown to the number of concurrent callbacks.
+ */
+public final class FrameCallbackQueue {
+
+    private FrameClock.Callback[] mPending = new FrameClock.Callback[4];
+    private FrameClock.Callback[] mRunning = new FrameClock.Callback[4];
+    private int mPendingCount;
+    private int mRunningCount;
+
+    /**
+     * @return false if {@code callback} was already pending
+     */
+    public boolean add(FrameClock.Callback callback) {
+        for (int i = 0; i < mPendingCount; i++) {
+            if (mPending[i] == callback) {
+                return false;
+            }
+        }
+        if (mPendingCount == mPending.length) {
+            FrameClock.Callback[] grown = new FrameClock.Callback[mPendingCount * 2];
+            System.arraycopy(mPending, 0, grown, 0, mPendingCount);
+            mPending = grown;
+        }
+        mPending[mPendingCount++] = callback;
+        return true;
+    }
+
+    public void remove(FrameClock.Callback callback) {
+        for (int i = 0; i < mPendingCount; i++) {
+            if (mPending[i] == callback) {
+                System.arraycopy(mPending, i + 1, mPending, i, mPendingCount - i - 1);
+                mPending[--mPendingCount] = null;
+                break;
+            }
+        }
+        // A callback removed by another one of the same frame must not run anymore
+        for (int i = 0; i < mRunningCount; i++) {
+            if (mRunning[i] == callback) {
+                mRunning[i] = null;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return mPendingCount == 0;
+    }
+
+    /**
+     * Runs the pending callbacks. Callbacks added while they run wait for the next call.
+     */
+    public void dispatch(long frameTimeNanos) {
+        FrameClock.Callback[] running = mPending;
+        mPending = mRunning;
+        mRunning = running;
+        mRunningCount = mPendingCount;
+        mPendingCount = 0;
+        for (int i = 0; i < mRunningCount; i++) {
+            FrameClock.Callback callback = mRunning[i];
+            if (callback != null) {
+                mRunning[i] = null;
+                callback.doFrame(frameTimeNanos);
+            }
+        }
+        mRunningCount = 0;
+    }
+}
@@ -0,0 +1,26 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Source of frame callbacks. On a device this is backed by the display vsync; in tests a
+ * {@link ManualFrameClock} produces frames on demand.
+ */
+public interface FrameClock {
+
+    /**
+     * Current time in the time base of the frame times passed to {@link Callback#doFrame(long)}.
+     */
+    long nanoTime();
+
+    /**
+     * Runs {@code callback} once on the next frame. Posting a callback that is already pending
+     * has no effect.
+     */
+    void postFrameCallback(Callback callback);
+
+    void removeFrameCallback(Callback callback);
+
+    interface Callback {
+
+        void doFrame(long frameTimeNanos);
+    }
+}
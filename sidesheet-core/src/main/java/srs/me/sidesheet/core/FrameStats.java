@@ -0,0 +1,161 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Frame timing of one drag or settle phase of a side sheet.
+ * <p>
+ * Positions are reported with {@link #onFrame(long, int)}. Reports closer together than half a
+ * frame interval are treated as belonging to the same frame, so a phase can be fed from every
+ * slide dispatch without inflating the frame count. The instance is reused from phase to phase
+ * and never allocates after construction; intervals beyond {@link #MAX_INTERVALS} still count
+ * towards the totals but are not kept individually.
+ */
+public final class FrameStats {
+
+    public static final int PHASE_NONE = 0;
+    public static final int PHASE_DRAG = 1;
+    public static final int PHASE_SETTLE = 2;
+
+    public static final int MAX_INTERVALS = 256;
+
+    private final long[] mIntervals = new long[MAX_INTERVALS];
+    private int mPhase = PHASE_NONE;
+    private long mFrameIntervalNanos;
+    private long mStartTimeNanos;
+    private long mEndTimeNanos;
+    private long mLastFrameTimeNanos;
+    private long mMaxIntervalNanos;
+    private int mFrameCount;
+    private int mIntervalCount;
+    private int mDroppedFrames;
+    private int mStartPosition;
+    private int mLastPosition;
+    private long mDistance;
+
+    /**
+     * Starts a new phase, discarding the previous one.
+     *
+     * @param frameIntervalNanos expected time between two frames of the display
+     */
+    public void begin(int phase, long timeNanos, int position, long frameIntervalNanos) {
+        mPhase = phase;
+        mFrameIntervalNanos = frameIntervalNanos;
+        mStartTimeNanos = timeNanos;
+        mEndTimeNanos = timeNanos;
+        mLastFrameTimeNanos = timeNanos;
+        mMaxIntervalNanos = 0;
+        mFrameCount = 0;
+        mIntervalCount = 0;
+        mDroppedFrames = 0;
+        mStartPosition = position;
+        mLastPosition = position;
+        mDistance = 0;
+    }
+
+    public void onFrame(long frameTimeNanos, int position) {
+        if (mPhase == PHASE_NONE) {
+            return;
+        }
+        mDistance += Math.abs(position - mLastPosition);
+        mLastPosition = position;
+        long interval = frameTimeNanos - mLastFrameTimeNanos;
+        if (mFrameCount > 0 && interval * 2 < mFrameIntervalNanos) {
+            return;
+        }
+        if (mFrameCount > 0) {
+            if (mIntervalCount < MAX_INTERVALS) {
+                mIntervals[mIntervalCount] = interval;
+            }
+            mIntervalCount++;
+            if (interval > mMaxIntervalNanos) {
+                mMaxIntervalNanos = interval;
+            }
+            if (mFrameIntervalNanos > 0) {
+                // An interval of n frame times means n - 1 frames were skipped
+                long frames = (interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos;
+                if (frames > 1) {
+                    mDroppedFrames += (int) (frames - 1);
+                }
+            }
+        }
+        mFrameCount++;
+        mLastFrameTimeNanos = frameTimeNanos;
+    }
+
+    public void end(long timeNanos, int position) {
+        if (mPhase == PHASE_NONE) {
+            return;
+        }
+        mDistance += Math.abs(position - mLastPosition);
+        mLastPosition = position;
+        mEndTimeNanos = timeNanos;
+    }
+
+    /**
+     * Marks the stats as consumed, so that {@link #isRunning()} returns false until the next
+     * {@link #begin(int, long, int, long)}.
+     */
+    public void finish() {
+        mPhase = PHASE_NONE;
+    }
+
+    public boolean isRunning() {
+        return mPhase != PHASE_NONE;
+    }
+
+    public int getPhase() {
+        return mPhase;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Number of frame-to-frame intervals, which may exceed the number kept by
+     * {@link #getIntervalNanos(int)}.
+     */
+    public int getIntervalCount() {
+        return mIntervalCount;
+    }
+
+    public long getIntervalNanos(int index) {
+        if (index < 0 || index >= Math.min(mIntervalCount, MAX_INTERVALS)) {
+            throw new IndexOutOfBoundsException("Interval " + index + " of " + mIntervalCount);
+        }
+        return mIntervals[index];
+    }
+
+    public long getMaxIntervalNanos() {
+        return mMaxIntervalNanos;
+    }
+
+    public long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+
+    public int getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    /**
+     * Time from the start of the phase to its end, i.e. the time to settle for a settle phase.
+     */
+    public long getDurationNanos() {
+        return mEndTimeNanos - mStartTimeNanos;
+    }
+
+    /**
+     * Total distance travelled in pixels, counting both directions.
+     */
+    public long getDistance() {
+        return mDistance;
+    }
+
+    public int getStartPosition() {
+        return mStartPosition;
+    }
+
+    public int getEndPosition() {
+        return mLastPosition;
+    }
+}
@@ -0,0 +1,202 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Reads a trace written by {@link GestureRecorder} one event at a time. The accessors describe
+ * the event {@link #next()} moved to; the ones that do not apply to its type return 0.
+ */
+public final class GestureReader {
+
+    private final byte[] mData;
+    private final int mParentWidth;
+    private final int mParentHeight;
+    private final int mSheetWidth;
+    private int mPosition;
+
+    private int mType;
+    private long mTimeNanos;
+    private int mAction;
+    private int mPointerCount;
+    private final int[] mPointerIds = new int[GestureRecorder.MAX_POINTERS];
+    private final float[] mXs = new float[GestureRecorder.MAX_POINTERS];
+    private final float[] mYs = new float[GestureRecorder.MAX_POINTERS];
+    private int mAxes;
+    private int mDx;
+    private int mDy;
+    private float mVelocityX;
+    private float mVelocityY;
+    private boolean mConsumed;
+
+    /**
+     * @throws IllegalArgumentException if {@code data} is not a trace of a known version
+     */
+    public GestureReader(byte[] data) {
+        mData = data;
+        if (readInt() != GestureRecorder.MAGIC) {
+            throw new IllegalArgumentException("Not a gesture trace");
+        }
+        int version = readByte();
+        if (version != GestureRecorder.VERSION) {
+            throw new IllegalArgumentException("Unknown gesture trace version " + version);
+        }
+        mParentWidth = (int) readVarint();
+        mParentHeight = (int) readVarint();
+        mSheetWidth = (int) readVarint();
+    }
+
+    public int getParentWidth() {
+        return mParentWidth;
+    }
+
+    public int getParentHeight() {
+        return mParentHeight;
+    }
+
+    public int getSheetWidth() {
+        return mSheetWidth;
+    }
+
+    /**
+     * Moves to the next event.
+     *
+     * @return false at the end of the trace
+     * @throws IllegalArgumentException if the trace is truncated or holds an unknown event
+     */
+    public boolean next() {
+        if (mPosition >= mData.length) {
+            mType = 0;
+            return false;
+        }
+        mType = readByte();
+        mTimeNanos += readVarint() * 1000;
+        mAction = 0;
+        mPointerCount = 0;
+        mAxes = 0;
+        mDx = 0;
+        mDy = 0;
+        mVelocityX = 0;
+        mVelocityY = 0;
+        mConsumed = false;
+        switch (mType) {
+            case GestureRecorder.EVENT_INTERCEPT_TOUCH:
+            case GestureRecorder.EVENT_TOUCH:
+                mAction = (int) readVarint();
+                mPointerCount = readByte();
+                if (mPointerCount > GestureRecorder.MAX_POINTERS) {
+                    throw new IllegalArgumentException("Too many pointers: " + mPointerCount);
+                }
+                for (int i = 0; i < mPointerCount; i++) {
+                    mPointerIds[i] = readByte();
+                    mXs[i] = Float.intBitsToFloat(readInt());
+                    mYs[i] = Float.intBitsToFloat(readInt());
+                }
+                break;
+            case GestureRecorder.EVENT_NESTED_SCROLL_START:
+                mAxes = (int) readVarint();
+                break;
+            case GestureRecorder.EVENT_NESTED_PRE_SCROLL:
+                mDx = unzigzag(readVarint());
+                mDy = unzigzag(readVarint());
+                break;
+            case GestureRecorder.EVENT_NESTED_SCROLL_STOP:
+                break;
+            case GestureRecorder.EVENT_NESTED_PRE_FLING:
+                mVelocityX = Float.intBitsToFloat(readInt());
+                mVelocityY = Float.intBitsToFloat(readInt());
+                break;
+            case GestureRecorder.EVENT_NESTED_FLING:
+                mVelocityX = Float.intBitsToFloat(readInt());
+                mVelocityY = Float.intBitsToFloat(readInt());
+                mConsumed = readByte() != 0;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown gesture event " + mType);
+        }
+        return true;
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    /**
+     * Time of the event, counted from the first event of the trace, to the microsecond.
+     */
+    public long getTimeNanos() {
+        return mTimeNanos;
+    }
+
+    public int getAction() {
+        return mAction;
+    }
+
+    public int getPointerCount() {
+        return mPointerCount;
+    }
+
+    public int getPointerId(int index) {
+        return mPointerIds[index];
+    }
+
+    public float getX(int index) {
+        return mXs[index];
+    }
+
+    public float getY(int index) {
+        return mYs[index];
+    }
+
+    public int getAxes() {
+        return mAxes;
+    }
+
+    public int getDx() {
+        return mDx;
+    }
+
+    public int getDy() {
+        return mDy;
+    }
+
+    public float getVelocityX() {
+        return mVelocityX;
+    }
+
+    public float getVelocityY() {
+        return mVelocityY;
+    }
+
+    /**
+     * Whether the scrolling child consumed a nested fling.
+     */
+    public boolean isConsumed() {
+        return mConsumed;
+    }
+
+    private int readByte() {
+        if (mPosition >= mData.length) {
+            throw new IllegalArgumentException("Truncated gesture trace");
+        }
+        return mData[mPosition++] & 0xff;
+    }
+
+    private int readInt() {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in gesture trace");
+    }
+
+    private static int unzigzag(long value) {
+        int n = (int) value;
+        return (n >>> 1) ^ -(n & 1);
+    }
+}
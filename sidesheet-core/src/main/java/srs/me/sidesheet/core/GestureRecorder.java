@@ -0,0 +1,187 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Records the input a side sheet consumes, touch events and nested scrolling, into a compact
+ * binary trace that {@link GestureReader} reads back.
+ * <p>
+ * The trace starts with the magic {@link #MAGIC}, the {@link #VERSION} byte and the parent and
+ * sheet size as varints. Each event follows as its type byte, the microseconds since the
+ * previous event as a varint and a payload:
+ * <ul>
+ * <li>touch events: the action as a varint, the pointer count byte and per pointer its id byte
+ * and x and y as floats;</li>
+ * <li>nested scroll start: the scroll axes as a varint;</li>
+ * <li>nested pre-scroll: dx and dy as zigzag varints;</li>
+ * <li>nested pre-fling: the two velocities as floats;</li>
+ * <li>nested fling: the two velocities as floats and a byte telling whether the scrolling child
+ * consumed it;</li>
+ * <li>nested scroll stop: nothing.</li>
+ * </ul>
+ * Events are encoded straight into a growing byte array, so recording does not allocate once
+ * the array is large enough.
+ */
+public final class GestureRecorder {
+
+    public static final int MAGIC = 0x53534752;
+    public static final int VERSION = 1;
+
+    public static final int EVENT_INTERCEPT_TOUCH = 1;
+    public static final int EVENT_TOUCH = 2;
+    public static final int EVENT_NESTED_SCROLL_START = 3;
+    public static final int EVENT_NESTED_PRE_SCROLL = 4;
+    public static final int EVENT_NESTED_SCROLL_STOP = 5;
+    public static final int EVENT_NESTED_PRE_FLING = 6;
+    public static final int EVENT_NESTED_FLING = 7;
+
+    public static final int MAX_POINTERS = 16;
+
+    private byte[] mBuffer = new byte[256];
+    private int mLength;
+    private int mHeaderLength;
+    private long mLastTimeMicros = Long.MIN_VALUE;
+    private int mEventCount;
+
+    public GestureRecorder() {
+        setSize(0, 0, 0);
+    }
+
+    /**
+     * Starts a new trace for a parent and sheet of the given size, dropping any recorded events.
+     */
+    public void setSize(int parentWidth, int parentHeight, int sheetWidth) {
+        mLength = 0;
+        writeInt(MAGIC);
+        writeByte(VERSION);
+        writeVarint(parentWidth);
+        writeVarint(parentHeight);
+        writeVarint(sheetWidth);
+        mHeaderLength = mLength;
+        mLastTimeMicros = Long.MIN_VALUE;
+        mEventCount = 0;
+    }
+
+    /**
+     * Drops the recorded events and keeps the size.
+     */
+    public void clear() {
+        mLength = mHeaderLength;
+        mLastTimeMicros = Long.MIN_VALUE;
+        mEventCount = 0;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    /**
+     * @param type       {@link #EVENT_INTERCEPT_TOUCH} or {@link #EVENT_TOUCH}
+     * @param pointerIds ids of the first {@code pointerCount} pointers
+     * @param xs         x of each pointer
+     * @param ys         y of each pointer
+     */
+    public void recordTouch(int type, long timeNanos, int action, int pointerCount,
+                            int[] pointerIds, float[] xs, float[] ys) {
+        if (type != EVENT_INTERCEPT_TOUCH && type != EVENT_TOUCH) {
+            throw new IllegalArgumentException("Illegal touch event type " + type);
+        }
+        if (pointerCount > MAX_POINTERS) {
+            throw new IllegalArgumentException("Too many pointers: " + pointerCount);
+        }
+        writeEventHeader(type, timeNanos);
+        writeVarint(action);
+        writeByte(pointerCount);
+        for (int i = 0; i < pointerCount; i++) {
+            writeByte(pointerIds[i]);
+            writeFloat(xs[i]);
+            writeFloat(ys[i]);
+        }
+    }
+
+    public void recordNestedScrollStart(long timeNanos, int axes) {
+        writeEventHeader(EVENT_NESTED_SCROLL_START, timeNanos);
+        writeVarint(axes);
+    }
+
+    public void recordNestedPreScroll(long timeNanos, int dx, int dy) {
+        writeEventHeader(EVENT_NESTED_PRE_SCROLL, timeNanos);
+        writeVarint(zigzag(dx));
+        writeVarint(zigzag(dy));
+    }
+
+    public void recordNestedScrollStop(long timeNanos) {
+        writeEventHeader(EVENT_NESTED_SCROLL_STOP, timeNanos);
+    }
+
+    public void recordNestedPreFling(long timeNanos, float velocityX, float velocityY) {
+        writeEventHeader(EVENT_NESTED_PRE_FLING, timeNanos);
+        writeFloat(velocityX);
+        writeFloat(velocityY);
+    }
+
+    public void recordNestedFling(long timeNanos, float velocityX, float velocityY,
+                                  boolean consumed) {
+        writeEventHeader(EVENT_NESTED_FLING, timeNanos);
+        writeFloat(velocityX);
+        writeFloat(velocityY);
+        writeByte(consumed ? 1 : 0);
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[mLength];
+        System.arraycopy(mBuffer, 0, bytes, 0, mLength);
+        return bytes;
+    }
+
+    private void writeEventHeader(int type, long timeNanos) {
+        // Events can only go forward in time; an earlier time is recorded as no delay
+        long timeMicros = timeNanos / 1000;
+        long delta = 0;
+        if (mLastTimeMicros == Long.MIN_VALUE) {
+            mLastTimeMicros = timeMicros;
+        } else if (timeMicros > mLastTimeMicros) {
+            delta = timeMicros - mLastTimeMicros;
+            mLastTimeMicros = timeMicros;
+        }
+        writeByte(type);
+        writeVarint(delta);
+        mEventCount++;
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        mBuffer[mLength++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(4);
+        mBuffer[mLength++] = (byte) (value >>> 24);
+        mBuffer[mLength++] = (byte) (value >>> 16);
+        mBuffer[mLength++] = (byte) (value >>> 8);
+        mBuffer[mLength++] = (byte) value;
+    }
+
+    private void writeFloat(float value) {
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7fL) != 0) {
+            mBuffer[mLength++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        mBuffer[mLength++] = (byte) value;
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xffffffffL;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (mLength + extra > mBuffer.length) {
+            byte[] grown = new byte[Math.max(mBuffer.length * 2, mLength + extra)];
+            System.arraycopy(mBuffer, 0, grown, 0, mLength);
+            mBuffer = grown;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package srs.me.sidesheet.core;
+
+/**
+ * {@link FrameClock} driven by the caller, for deterministic tests and replays.
+ */
+public final class ManualFrameClock implements FrameClock {
+
+    private final FrameCallbackQueue mCallbacks = new FrameCallbackQueue();
+    private long mNowNanos;
+
+    public ManualFrameClock() {
+        this(0);
+    }
+
+    public ManualFrameClock(long startNanos) {
+        mNowNanos = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return mNowNanos;
+    }
+
+    @Override
+    public void postFrameCallback(Callback callback) {
+        mCallbacks.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(Callback callback) {
+        mCallbacks.remove(callback);
+    }
+
+    public boolean hasPendingCallbacks() {
+        return !mCallbacks.isEmpty();
+    }
+
+    /**
+     * Moves time forward without producing a frame.
+     */
+    public void advance(long deltaNanos) {
+        mNowNanos += deltaNanos;
+    }
+
+    /**
+     * Moves time forward by {@code frameIntervalNanos} and runs the callbacks pending until then.
+     * Callbacks posted while the frame runs wait for the next one.
+     */
+    public void doFrame(long frameIntervalNanos) {
+        mNowNanos += frameIntervalNanos;
+        mCallbacks.dispatch(mNowNanos);
+    }
+
+    /**
+     * Produces frames until no callback is pending or {@code maxFrames} frames ran.
+     *
+     * @return the number of frames produced
+     */
+    public int runUntilIdle(long frameIntervalNanos, int maxFrames) {
+        int frames = 0;
+        while (!mCallbacks.isEmpty() && frames < maxFrames) {
+            doFrame(frameIntervalNanos);
+            frames++;
+        }
+        return frames;
+    }
+}
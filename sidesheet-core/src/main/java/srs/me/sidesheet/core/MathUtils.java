@@ -0,0 +1,16 @@
+package srs.me.sidesheet.core;
+
+public final class MathUtils {
+
+    private MathUtils() {
+    }
+
+    public static int constrain(int amount, int low, int high) {
+        return amount < low ? low : (amount > high ? high : amount);
+    }
+
+    public static float constrain(float amount, float low, float high) {
+        return amount < low ? low : (amount > high ? high : amount);
+    }
+
+}
@@ -0,0 +1,43 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Computes the trajectory of a settling side sheet.
+ * <p>
+ * Engines are time-stepped: the position after a given amount of time is the same whether it
+ * is reached in one step or in many, so the sheet moves at the same speed at any frame rate and
+ * a sequence of {@link #step(long)} calls with fixed deltas is fully deterministic.
+ */
+public interface SettleEngine {
+
+    /**
+     * Starts a new trajectory, replacing the current one.
+     *
+     * @param from     current position in pixels
+     * @param to       resting position in pixels
+     * @param velocity current velocity in pixels per second
+     */
+    void start(float from, float to, float velocity);
+
+    /**
+     * Advances the trajectory.
+     *
+     * @return true while the engine has not come to rest
+     */
+    boolean step(long deltaNanos);
+
+    /**
+     * Stops the trajectory where it currently is.
+     */
+    void cancel();
+
+    boolean isRunning();
+
+    float getPosition();
+
+    /**
+     * Velocity in pixels per second.
+     */
+    float getVelocity();
+
+    float getTarget();
+}
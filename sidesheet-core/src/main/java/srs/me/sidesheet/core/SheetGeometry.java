@@ -0,0 +1,383 @@
+package srs.me.sidesheet.core;
+
+import java.util.Arrays;
+
+import static srs.me.sidesheet.core.SheetStates.NO_DETENT;
+import static srs.me.sidesheet.core.SheetStates.STATE_COLLAPSED;
+import static srs.me.sidesheet.core.SheetStates.STATE_DETENT;
+import static srs.me.sidesheet.core.SheetStates.STATE_EXPANDED;
+import static srs.me.sidesheet.core.SheetStates.STATE_HIDDEN;
+
+/**
+ * Offsets and settle decisions of a side sheet, free of any Android dependency.
+ * <p>
+ * All positions are the left edge of the sheet in parent coordinates. The sheet is fully
+ * expanded at {@link #getMinOffset()}, collapsed at {@link #getMaxOffset()} and hidden at
+ * {@link #getHiddenOffset()}. Optional detents add resting positions in between; they are
+ * resolved into a sorted array once per layout so that picking a release target is a binary
+ * search. Nothing but {@link #setDetents(DetentSpec)} allocates, so it is safe to call per touch
+ * event.
+ * <p>
+ * A sheet that slides in from the left edge is handled as its mirror image: its offsets are the
+ * left edges the mirrored sheet would have, and horizontal deltas and velocities change sign by
+ * {@link #getDirection()}. {@link #toLeft(int)} and {@link #toOffset(int)} convert with a
+ * multiply-add fixed at layout, so the decisions above do not depend on the edge.
+ */
+public final class SheetGeometry {
+
+    private static final float HIDE_THRESHOLD = 0.5f;
+    private static final float HIDE_FRICTION = 0.1f;
+    /**
+     * How far ahead a release velocity projects the sheet when choosing among detents.
+     */
+    private static final float DETENT_PROJECTION_SECONDS = 0.15f;
+    /**
+     * Rate in 1/s at which a fling handed between the sheet and its content is taken to decay.
+     */
+    private static final float FLING_DECAY_RATE = 6f;
+
+    private int mParentWidth;
+    private int mDirection = 1;
+    private int mLeftOrigin;
+    private int mPointOrigin;
+    private int mMinOffset;
+    private int mMaxOffset;
+    private int mPeekWidth;
+    private boolean mHideable;
+    private boolean mSkipCollapsed;
+    private DetentSpec mDetents;
+    // Resting offsets in ascending order: expanded, the detents, collapsed
+    private int[] mStops = new int[2];
+    // Detent index of each stop, NO_DETENT for expanded and collapsed
+    private int[] mStopDetents = new int[]{NO_DETENT, NO_DETENT};
+    private int mStopCount = 2;
+    private int[] mDetentOffsets = new int[0];
+    private int mResolvedDetent = NO_DETENT;
+
+    /**
+     * Recomputes the offsets after a layout pass.
+     *
+     * @param parentWidth width of the parent the sheet slides in
+     * @param childWidth  measured width of the sheet
+     * @param peekWidth   width that stays visible while collapsed
+     */
+    public void layout(int parentWidth, int childWidth, int peekWidth) {
+        layout(parentWidth, childWidth, peekWidth, false);
+    }
+
+    /**
+     * Recomputes the offsets after a layout pass of a sheet at the left or right edge.
+     *
+     * @param fromLeft whether the sheet slides in from the parent's left edge
+     */
+    public void layout(int parentWidth, int childWidth, int peekWidth, boolean fromLeft) {
+        mParentWidth = parentWidth;
+        mDirection = fromLeft ? -1 : 1;
+        mLeftOrigin = fromLeft ? parentWidth - childWidth : 0;
+        mPointOrigin = fromLeft ? parentWidth : 0;
+        mMinOffset = Math.max(0, parentWidth - childWidth);
+        mPeekWidth = peekWidth;
+        mMaxOffset = Math.max(parentWidth - peekWidth, mMinOffset);
+        resolveDetents();
+    }
+
+    /**
+     * Sets the intermediate resting positions, or removes them with null.
+     */
+    public void setDetents(DetentSpec detents) {
+        int count = detents == null ? 0 : detents.size();
+        mDetents = count == 0 ? null : detents;
+        mStops = new int[count + 2];
+        mStopDetents = new int[count + 2];
+        mDetentOffsets = new int[count];
+        resolveDetents();
+    }
+
+    public int getDetentCount() {
+        return mDetentOffsets.length;
+    }
+
+    /**
+     * Left edge of detent {@code detent}, clamped between the expanded and collapsed offsets.
+     */
+    public int getDetentOffset(int detent) {
+        return mDetentOffsets[detent];
+    }
+
+    /**
+     * Detent picked by the last call to {@link #resolveReleaseState(int, float)} or
+     * {@link #resolveNestedScrollStopState(int, int, float)} that returned
+     * {@link SheetStates#STATE_DETENT}.
+     */
+    public int getResolvedDetent() {
+        return mResolvedDetent;
+    }
+
+    private void resolveDetents() {
+        mStops[0] = mMinOffset;
+        mStopDetents[0] = NO_DETENT;
+        int count = 1;
+        for (int detent = 0; detent < mDetentOffsets.length; detent++) {
+            int offset = MathUtils.constrain(
+                    mParentWidth - mDetents.getWidth(detent, mParentWidth), mMinOffset, mMaxOffset);
+            mDetentOffsets[detent] = offset;
+            // Insertion sort, there are only a handful of detents
+            int i = count;
+            while (i > 1 && mStops[i - 1] > offset) {
+                mStops[i] = mStops[i - 1];
+                mStopDetents[i] = mStopDetents[i - 1];
+                i--;
+            }
+            mStops[i] = offset;
+            mStopDetents[i] = detent;
+            count++;
+        }
+        mStops[count] = mMaxOffset;
+        mStopDetents[count] = NO_DETENT;
+        mStopCount = count + 1;
+    }
+
+    public int getParentWidth() {
+        return mParentWidth;
+    }
+
+    /**
+     * 1 for a sheet at the right edge and -1 for one at the left edge: the factor that turns a
+     * horizontal delta or velocity in parent coordinates into one along the offsets.
+     */
+    public int getDirection() {
+        return mDirection;
+    }
+
+    public boolean isFromLeft() {
+        return mDirection < 0;
+    }
+
+    /**
+     * Left edge in parent coordinates of the sheet at {@code offset}.
+     */
+    public int toLeft(int offset) {
+        return mDirection * offset + mLeftOrigin;
+    }
+
+    /**
+     * Offset of the sheet whose left edge is at {@code left} in parent coordinates.
+     */
+    public int toOffset(int left) {
+        return mDirection * (left - mLeftOrigin);
+    }
+
+    /**
+     * Mirrors {@code x} in parent coordinates like the offsets, so that the sheet's edge of the
+     * parent is always at {@link #getHiddenOffset()}.
+     */
+    public int toOffsetX(int x) {
+        return mDirection * x + mPointOrigin;
+    }
+
+    public int getMinOffset() {
+        return mMinOffset;
+    }
+
+    public int getMaxOffset() {
+        return mMaxOffset;
+    }
+
+    public void setMaxOffset(int maxOffset) {
+        mMaxOffset = maxOffset;
+        resolveDetents();
+    }
+
+    public int getHiddenOffset() {
+        return mParentWidth;
+    }
+
+    public int getPeekWidth() {
+        return mPeekWidth;
+    }
+
+    public void setPeekWidth(int peekWidth) {
+        mPeekWidth = peekWidth;
+    }
+
+    public boolean isHideable() {
+        return mHideable;
+    }
+
+    public void setHideable(boolean hideable) {
+        mHideable = hideable;
+    }
+
+    public boolean getSkipCollapsed() {
+        return mSkipCollapsed;
+    }
+
+    public void setSkipCollapsed(boolean skipCollapsed) {
+        mSkipCollapsed = skipCollapsed;
+    }
+
+    /**
+     * Clamps a dragged left edge into the range the sheet may travel.
+     */
+    public int clampLeft(int left) {
+        return MathUtils.constrain(left, mMinOffset, mHideable ? mParentWidth : mMaxOffset);
+    }
+
+    public int getDragRange() {
+        return (mHideable ? mParentWidth : mMaxOffset) - mMinOffset;
+    }
+
+    /**
+     * Left edge the sheet rests at in {@code state}.
+     *
+     * @throws IllegalArgumentException if the sheet can not rest in {@code state}
+     */
+    public int getOffsetForState(int state) {
+        if (state == STATE_COLLAPSED) {
+            return mMaxOffset;
+        } else if (state == STATE_EXPANDED) {
+            return mMinOffset;
+        } else if (mHideable && state == STATE_HIDDEN) {
+            return mParentWidth;
+        }
+        throw new IllegalArgumentException("Illegal state argument " + state);
+    }
+
+    /**
+     * Like {@link #getOffsetForState(int)}, and also accepts {@link SheetStates#STATE_DETENT}.
+     */
+    public int getOffsetForState(int state, int detent) {
+        if (state == STATE_DETENT) {
+            if (detent < 0 || detent >= mDetentOffsets.length) {
+                throw new IllegalArgumentException("Illegal detent " + detent);
+            }
+            return mDetentOffsets[detent];
+        }
+        return getOffsetForState(state);
+    }
+
+    /**
+     * State a dragged sheet settles to once the pointer is released.
+     *
+     * @param left current left edge of the sheet
+     * @param xVel horizontal release velocity in pixels per second
+     */
+    public int resolveReleaseState(int left, float xVel) {
+        if (mStopCount > 2) {
+            if (xVel >= 0 && mHideable && shouldHide(left, xVel)) {
+                return STATE_HIDDEN;
+            }
+            int projected = Math.round(left + xVel * DETENT_PROJECTION_SECONDS);
+            return stateOfStop(nearestStop(projected));
+        }
+        return resolveTargetState(left, xVel, xVel);
+    }
+
+    /**
+     * Velocity a fling towards expanded still has when the sheet arrives there, taking the fling
+     * to decay exponentially: the velocity drops by {@code FLING_DECAY_RATE} per pixel covered.
+     *
+     * @param left current left edge of the sheet
+     * @param xVel horizontal velocity in pixels per second
+     * @return the remaining velocity, negative, or 0 if the fling stops short of expanded
+     */
+    public float getExpandedOvershootVelocity(int left, float xVel) {
+        if (xVel >= 0 || left < mMinOffset) {
+            return 0;
+        }
+        float remaining = xVel + FLING_DECAY_RATE * (left - mMinOffset);
+        return remaining < 0 ? remaining : 0;
+    }
+
+    /**
+     * State the sheet settles to once a nested scroll stops.
+     *
+     * @param left      current left edge of the sheet
+     * @param lastDx    the last horizontal delta the nested scrolling child reported
+     * @param hideXVel  horizontal velocity used for the hide decision
+     */
+    public int resolveNestedScrollStopState(int left, int lastDx, float hideXVel) {
+        if (mStopCount > 2) {
+            if (lastDx <= 0 && mHideable && shouldHide(left, hideXVel)) {
+                return STATE_HIDDEN;
+            }
+            int stop;
+            if (lastDx == 0) {
+                stop = nearestStop(left);
+            } else {
+                // Continue to the next stop in the direction of the scroll
+                int index = Arrays.binarySearch(mStops, 0, mStopCount, left);
+                if (index >= 0) {
+                    stop = index;
+                } else {
+                    int insertion = -index - 1;
+                    stop = lastDx > 0 ? Math.max(0, insertion - 1)
+                            : Math.min(mStopCount - 1, insertion);
+                }
+            }
+            return stateOfStop(stop);
+        }
+        return resolveTargetState(left, -lastDx, hideXVel);
+    }
+
+    private int nearestStop(int left) {
+        int index = Arrays.binarySearch(mStops, 0, mStopCount, left);
+        if (index >= 0) {
+            return index;
+        }
+        int insertion = -index - 1;
+        if (insertion == 0) {
+            return 0;
+        } else if (insertion == mStopCount) {
+            return mStopCount - 1;
+        }
+        return left - mStops[insertion - 1] <= mStops[insertion] - left
+                ? insertion - 1 : insertion;
+    }
+
+    private int stateOfStop(int stop) {
+        if (stop == 0) {
+            return STATE_EXPANDED;
+        } else if (stop == mStopCount - 1) {
+            return STATE_COLLAPSED;
+        }
+        mResolvedDetent = mStopDetents[stop];
+        return STATE_DETENT;
+    }
+
+    private int resolveTargetState(int left, float direction, float hideXVel) {
+        if (direction < 0) {
+            return STATE_EXPANDED;
+        } else if (mHideable && shouldHide(left, hideXVel)) {
+            return STATE_HIDDEN;
+        } else if (direction == 0.f) {
+            if (Math.abs(left - mMinOffset) < Math.abs(left - mMaxOffset)) {
+                return STATE_EXPANDED;
+            }
+            return STATE_COLLAPSED;
+        }
+        return STATE_COLLAPSED;
+    }
+
+    public boolean shouldHide(int left, float xVel) {
+        if (mSkipCollapsed) {
+            return true;
+        }
+        if (left < mMaxOffset) {
+            return false;
+        }
+
+        final float newLeft = left + xVel * HIDE_FRICTION;
+        return Math.abs(newLeft - mMaxOffset) / (float) mPeekWidth > HIDE_THRESHOLD;
+    }
+
+    /**
+     * Slide offset reported to callbacks: 1 when expanded, 0 when collapsed and -1 when hidden.
+     */
+    public float getSlideOffset(int left) {
+        if (left > mMaxOffset) {
+            return (float) (mMaxOffset - left) / (mParentWidth - mMaxOffset);
+        }
+        return (float) (mMaxOffset - left) / (mMaxOffset - mMinOffset);
+    }
+}
@@ -0,0 +1,26 @@
+package srs.me.sidesheet.core;
+
+/**
+ * State constants shared by the side sheet core and {@code SideSheetBehavior}.
+ */
+public final class SheetStates {
+
+    public static final int STATE_DRAGGING = 1;
+    public static final int STATE_SETTLING = 2;
+    public static final int STATE_EXPANDED = 3;
+    public static final int STATE_COLLAPSED = 4;
+    public static final int STATE_HIDDEN = 5;
+    /**
+     * Resting at one of the intermediate positions configured with a {@link DetentSpec}.
+     */
+    public static final int STATE_DETENT = 6;
+
+    public static final int NO_DETENT = -1;
+
+    private SheetStates() {
+    }
+
+    public static boolean isMoving(int state) {
+        return state == STATE_DRAGGING || state == STATE_SETTLING;
+    }
+}
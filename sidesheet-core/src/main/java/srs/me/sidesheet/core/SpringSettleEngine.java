@@ -0,0 +1,141 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Settles with a damped spring of unit mass, carrying over the release velocity.
+ * <p>
+ * The spring is evaluated in closed form from the start of the trajectory rather than
+ * integrated step by step, so the result does not depend on how time is sliced.
+ */
+public final class SpringSettleEngine implements SettleEngine {
+
+    public static final float STIFFNESS_MEDIUM = 1500f;
+    public static final float DAMPING_RATIO_NO_BOUNCY = 1f;
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final float REST_POSITION_THRESHOLD = 0.5f;
+    private static final float REST_VELOCITY_THRESHOLD = 10f;
+
+    private final double mNaturalFrequency;
+    private final double mDampingRatio;
+
+    private boolean mRunning;
+    private float mTarget;
+    private double mStartDisplacement;
+    private double mStartVelocity;
+    private long mElapsedNanos;
+    private float mPosition;
+    private float mVelocity;
+
+    public SpringSettleEngine() {
+        this(STIFFNESS_MEDIUM, DAMPING_RATIO_NO_BOUNCY);
+    }
+
+    /**
+     * @param stiffness    spring constant, must be positive
+     * @param dampingRatio 1 for a critically damped spring, below 1 to let the sheet bounce
+     */
+    public SpringSettleEngine(float stiffness, float dampingRatio) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("Spring stiffness must be positive: " + stiffness);
+        }
+        if (dampingRatio < 0) {
+            throw new IllegalArgumentException("Damping ratio must not be negative: "
+                    + dampingRatio);
+        }
+        mNaturalFrequency = Math.sqrt(stiffness);
+        mDampingRatio = dampingRatio;
+    }
+
+    @Override
+    public void start(float from, float to, float velocity) {
+        mTarget = to;
+        mStartDisplacement = from - to;
+        mStartVelocity = velocity;
+        mElapsedNanos = 0;
+        mPosition = from;
+        mVelocity = velocity;
+        mRunning = !isAtRest(from, velocity);
+        if (!mRunning) {
+            mPosition = to;
+            mVelocity = 0;
+        }
+    }
+
+    @Override
+    public boolean step(long deltaNanos) {
+        if (!mRunning) {
+            return false;
+        }
+        mElapsedNanos += Math.max(0, deltaNanos);
+        double t = mElapsedNanos / NANOS_PER_SECOND;
+        double w = mNaturalFrequency;
+        double z = mDampingRatio;
+        double x0 = mStartDisplacement;
+        double v0 = mStartVelocity;
+        double x;
+        double v;
+        if (z < 1) {
+            double wd = w * Math.sqrt(1 - z * z);
+            double decay = Math.exp(-z * w * t);
+            double b = (v0 + z * w * x0) / wd;
+            double cos = Math.cos(wd * t);
+            double sin = Math.sin(wd * t);
+            x = decay * (x0 * cos + b * sin);
+            v = -z * w * x + decay * (-x0 * wd * sin + b * wd * cos);
+        } else if (z == 1) {
+            double decay = Math.exp(-w * t);
+            double b = v0 + w * x0;
+            x = (x0 + b * t) * decay;
+            v = b * decay - w * x;
+        } else {
+            double root = w * Math.sqrt(z * z - 1);
+            double r1 = -z * w + root;
+            double r2 = -z * w - root;
+            double c2 = (r1 * x0 - v0) / (r1 - r2);
+            double c1 = x0 - c2;
+            double e1 = Math.exp(r1 * t);
+            double e2 = Math.exp(r2 * t);
+            x = c1 * e1 + c2 * e2;
+            v = c1 * r1 * e1 + c2 * r2 * e2;
+        }
+        mPosition = (float) (mTarget + x);
+        mVelocity = (float) v;
+        if (isAtRest(mPosition, mVelocity)) {
+            mPosition = mTarget;
+            mVelocity = 0;
+            mRunning = false;
+        }
+        return mRunning;
+    }
+
+    private boolean isAtRest(float position, float velocity) {
+        return Math.abs(position - mTarget) < REST_POSITION_THRESHOLD
+                && Math.abs(velocity) < REST_VELOCITY_THRESHOLD;
+    }
+
+    @Override
+    public void cancel() {
+        mRunning = false;
+        mVelocity = 0;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public float getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    @Override
+    public float getTarget() {
+        return mTarget;
+    }
+}
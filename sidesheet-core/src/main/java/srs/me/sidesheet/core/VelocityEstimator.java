@@ -0,0 +1,259 @@
+package srs.me.sidesheet.core;
+
+/**
+ * Estimates the horizontal velocity of up to {@link #MAX_POINTERS} pointers from their recent
+ * positions.
+ * <p>
+ * Every pointer keeps its last {@link #HISTORY_SIZE} samples in a ring of primitive arrays that
+ * is allocated once, so an estimator can be reused for every gesture without allocating. Only
+ * samples from the last {@link #HORIZON_MILLIS} are used, and a pause longer than
+ * {@link #STOPPED_MILLIS} between two samples discards everything before it, the way the
+ * platform's VelocityTracker does.
+ */
+public final class VelocityEstimator {
+
+    /**
+     * Fits a quadratic to the samples with least squares and takes its slope at the newest one.
+     */
+    public static final int STRATEGY_LSQ2 = 0;
+    /**
+     * Treats the samples as impulses on a unit mass and converts the resulting kinetic energy
+     * back to a velocity, following the platform's impulse strategy.
+     */
+    public static final int STRATEGY_IMPULSE = 1;
+
+    public static final int MAX_POINTERS = 10;
+    public static final int HISTORY_SIZE = 20;
+    public static final long HORIZON_MILLIS = 100;
+    public static final long STOPPED_MILLIS = 40;
+
+    private static final int NO_POINTER = -1;
+
+    private final int[] mPointerIds = new int[MAX_POINTERS];
+    private final long[] mLastUseMillis = new long[MAX_POINTERS];
+    private final int[] mHeads = new int[MAX_POINTERS];
+    private final int[] mCounts = new int[MAX_POINTERS];
+    private final long[] mTimes = new long[MAX_POINTERS * HISTORY_SIZE];
+    private final float[] mPositions = new float[MAX_POINTERS * HISTORY_SIZE];
+    // Scratch copy of one pointer's usable samples, oldest first
+    private final float[] mSampleTimes = new float[HISTORY_SIZE];
+    private final float[] mSamplePositions = new float[HISTORY_SIZE];
+    private int mStrategy = STRATEGY_LSQ2;
+    private int mLastPointerId = NO_POINTER;
+
+    public VelocityEstimator() {
+        clear();
+    }
+
+    public void setStrategy(int strategy) {
+        if (strategy != STRATEGY_LSQ2 && strategy != STRATEGY_IMPULSE) {
+            throw new IllegalArgumentException("Illegal strategy " + strategy);
+        }
+        mStrategy = strategy;
+    }
+
+    public int getStrategy() {
+        return mStrategy;
+    }
+
+    /**
+     * Forgets every pointer.
+     */
+    public void clear() {
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            mPointerIds[i] = NO_POINTER;
+            mCounts[i] = 0;
+        }
+        mLastPointerId = NO_POINTER;
+    }
+
+    /**
+     * Forgets one pointer, for when it goes up while others stay down.
+     */
+    public void clearPointer(int pointerId) {
+        int slot = findSlot(pointerId);
+        if (slot >= 0) {
+            mPointerIds[slot] = NO_POINTER;
+            mCounts[slot] = 0;
+        }
+        if (mLastPointerId == pointerId) {
+            mLastPointerId = NO_POINTER;
+        }
+    }
+
+    /**
+     * Records that {@code pointerId} was at {@code x} at {@code timeMillis}. A sample with the
+     * same time as the pointer's previous one replaces it.
+     */
+    public void addMovement(int pointerId, long timeMillis, float x) {
+        int slot = findSlot(pointerId);
+        if (slot < 0) {
+            slot = claimSlot(pointerId);
+        }
+        mLastUseMillis[slot] = timeMillis;
+        mLastPointerId = pointerId;
+        int base = slot * HISTORY_SIZE;
+        int count = mCounts[slot];
+        if (count > 0) {
+            int newest = base + (mHeads[slot] + count - 1) % HISTORY_SIZE;
+            if (mTimes[newest] == timeMillis) {
+                mPositions[newest] = x;
+                return;
+            }
+        }
+        int index;
+        if (count < HISTORY_SIZE) {
+            index = (mHeads[slot] + count) % HISTORY_SIZE;
+            mCounts[slot] = count + 1;
+        } else {
+            index = mHeads[slot];
+            mHeads[slot] = (index + 1) % HISTORY_SIZE;
+        }
+        mTimes[base + index] = timeMillis;
+        mPositions[base + index] = x;
+    }
+
+    /**
+     * The pointer of the most recent sample, or -1 if there is none.
+     */
+    public int getLastPointerId() {
+        return mLastPointerId;
+    }
+
+    /**
+     * The velocity of {@code pointerId} in pixels per second, clamped to
+     * [-{@code maxVelocity}, {@code maxVelocity}]; 0 for an unknown pointer or a single sample.
+     */
+    public float getVelocity(int pointerId, float maxVelocity) {
+        int slot = findSlot(pointerId);
+        if (slot < 0) {
+            return 0;
+        }
+        int count = collectSamples(slot);
+        if (count < 2) {
+            return 0;
+        }
+        float velocity = mStrategy == STRATEGY_IMPULSE
+                ? impulseVelocity(count) : leastSquaresVelocity(count);
+        return MathUtils.constrain(velocity * 1000f, -maxVelocity, maxVelocity);
+    }
+
+    /**
+     * Copies the samples of {@code slot} within the horizon into the scratch arrays, oldest
+     * first, with times in milliseconds relative to the newest sample.
+     */
+    private int collectSamples(int slot) {
+        int count = mCounts[slot];
+        if (count == 0) {
+            return 0;
+        }
+        int base = slot * HISTORY_SIZE;
+        int head = mHeads[slot];
+        long newestTime = mTimes[base + (head + count - 1) % HISTORY_SIZE];
+        // Walk back from the newest sample to find the oldest one still usable
+        int used = 1;
+        long laterTime = newestTime;
+        while (used < count) {
+            long time = mTimes[base + (head + count - 1 - used) % HISTORY_SIZE];
+            if (newestTime - time > HORIZON_MILLIS || laterTime - time > STOPPED_MILLIS) {
+                break;
+            }
+            laterTime = time;
+            used++;
+        }
+        for (int i = 0; i < used; i++) {
+            int index = base + (head + count - used + i) % HISTORY_SIZE;
+            mSampleTimes[i] = mTimes[index] - newestTime;
+            mSamplePositions[i] = mPositions[index];
+        }
+        return used;
+    }
+
+    /**
+     * Slope at t = 0 of the least squares fit of x = b0 + b1 t + b2 t^2, or of a line when
+     * there are too few samples for a quadratic.
+     */
+    private float leastSquaresVelocity(int count) {
+        double s0 = count;
+        double s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double sx = 0, stx = 0, st2x = 0;
+        for (int i = 0; i < count; i++) {
+            double t = mSampleTimes[i];
+            double x = mSamplePositions[i];
+            double t2 = t * t;
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            sx += x;
+            stx += t * x;
+            st2x += t2 * x;
+        }
+        if (count >= 3) {
+            // Cramer's rule on the normal equations; b1 is the slope at the newest sample
+            double det = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s2 * s3)
+                    + s2 * (s1 * s3 - s2 * s2);
+            if (Math.abs(det) > 1e-6) {
+                double det1 = s0 * (stx * s4 - s3 * st2x) - sx * (s1 * s4 - s2 * s3)
+                        + s2 * (s1 * st2x - stx * s2);
+                return (float) (det1 / det);
+            }
+        }
+        double det = s0 * s2 - s1 * s1;
+        if (Math.abs(det) < 1e-6) {
+            return 0;
+        }
+        return (float) ((s0 * stx - s1 * sx) / det);
+    }
+
+    private float impulseVelocity(int count) {
+        double work = 0;
+        for (int i = 1; i < count; i++) {
+            float dt = mSampleTimes[i] - mSampleTimes[i - 1];
+            if (dt <= 0) {
+                continue;
+            }
+            double previous = energyToVelocity(work);
+            double current = (mSamplePositions[i] - mSamplePositions[i - 1]) / dt;
+            work += (current - previous) * Math.abs(current);
+            if (i == 1) {
+                // The first impulse accelerates the mass from rest
+                work *= 0.5;
+            }
+        }
+        return (float) energyToVelocity(work);
+    }
+
+    private static double energyToVelocity(double work) {
+        return work < 0 ? -Math.sqrt(-2 * work) : Math.sqrt(2 * work);
+    }
+
+    private int findSlot(int pointerId) {
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            if (mPointerIds[i] == pointerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Takes a free slot, or the least recently used one when all are taken.
+     */
+    private int claimSlot(int pointerId) {
+        int slot = 0;
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            if (mPointerIds[i] == NO_POINTER) {
+                slot = i;
+                break;
+            }
+            if (mLastUseMillis[i] < mLastUseMillis[slot]) {
+                slot = i;
+            }
+        }
+        mPointerIds[slot] = pointerId;
+        mHeads[slot] = 0;
+        mCounts[slot] = 0;
+        return slot;
+    }
+}
@@ -0,0 +1,57 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DecaySettleEngineTest {
+
+    private static final long FRAME = 16_666_667L;
+
+    @Test
+    public void usesReleaseVelocityAndStopsAtTarget() {
+        DecaySettleEngine engine = new DecaySettleEngine();
+        engine.start(800, 400, -4000);
+
+        assertEquals(-4000f, engine.getVelocity(), 0f);
+        float last = 800;
+        while (engine.step(FRAME)) {
+            assertTrue(engine.getPosition() < last);
+            assertTrue(engine.getPosition() >= 400);
+            last = engine.getPosition();
+        }
+        assertEquals(400f, engine.getPosition(), 0f);
+    }
+
+    @Test
+    public void replacesVelocityAwayFromTarget() {
+        DecaySettleEngine engine = new DecaySettleEngine();
+        engine.start(800, 400, 2000);
+
+        assertEquals(-DecaySettleEngine.DEFAULT_MIN_DECAY_RATE * 400, engine.getVelocity(), 0.01f);
+    }
+
+    @Test
+    public void capsVelocityThatWouldOvershoot() {
+        DecaySettleEngine engine = new DecaySettleEngine();
+        engine.start(410, 400, -100000);
+
+        assertEquals(-DecaySettleEngine.DEFAULT_MAX_DECAY_RATE * 10, engine.getVelocity(), 0.01f);
+    }
+
+    @Test
+    public void sameTrajectoryAtAnyFrameRate() {
+        DecaySettleEngine at60 = new DecaySettleEngine();
+        DecaySettleEngine at120 = new DecaySettleEngine();
+        at60.start(1000, 200, -5000);
+        at120.start(1000, 200, -5000);
+
+        for (int i = 0; i < 10; i++) {
+            at60.step(2 * FRAME);
+            at120.step(FRAME);
+            at120.step(FRAME);
+            assertEquals(at60.getPosition(), at120.getPosition(), 0.01f);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredWorkQueueTest {
+
+    private final DeferredWorkQueue mQueue = new DeferredWorkQueue();
+    private final ManualFrameClock mClock = new ManualFrameClock();
+    private final List<String> mRan = new ArrayList<>();
+
+    @Test
+    public void runsByPriorityThenInOrder() {
+        mQueue.enqueue(record("low"), DeferredWorkQueue.PRIORITY_LOW);
+        mQueue.enqueue(record("a"), DeferredWorkQueue.PRIORITY_DEFAULT);
+        mQueue.enqueue(record("high"), DeferredWorkQueue.PRIORITY_HIGH);
+        mQueue.enqueue(record("b"), DeferredWorkQueue.PRIORITY_DEFAULT);
+
+        assertEquals(4, mQueue.drain(mClock, Long.MAX_VALUE));
+
+        assertEquals("[high, a, b, low]", mRan.toString());
+        assertTrue(mQueue.isEmpty());
+    }
+
+    @Test
+    public void cancelledTaskDoesNotRun() {
+        mQueue.enqueue(record("a"), DeferredWorkQueue.PRIORITY_DEFAULT);
+        DeferredWorkQueue.Task b = mQueue.enqueue(record("b"), DeferredWorkQueue.PRIORITY_HIGH);
+        mQueue.enqueue(record("c"), DeferredWorkQueue.PRIORITY_LOW);
+
+        assertTrue(mQueue.cancel(b));
+        assertFalse(b.isPending());
+        assertFalse(mQueue.cancel(b));
+        mQueue.drain(mClock, Long.MAX_VALUE);
+
+        assertEquals("[a, c]", mRan.toString());
+    }
+
+    @Test
+    public void drainStopsAtDeadlineButRunsAtLeastOneTask() {
+        for (int i = 0; i < 5; i++) {
+            mQueue.enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    mClock.advance(3);
+                }
+            }, DeferredWorkQueue.PRIORITY_DEFAULT);
+        }
+
+        assertEquals(1, mQueue.drain(mClock, mClock.nanoTime()));
+        assertEquals(2, mQueue.drain(mClock, mClock.nanoTime() + 5));
+        assertEquals(2, mQueue.size());
+    }
+
+    @Test
+    public void heldQueueRunsNothingAndTaskCanHoldIt() {
+        mQueue.setHeld(true);
+        mQueue.enqueue(record("a"), DeferredWorkQueue.PRIORITY_DEFAULT);
+        assertEquals(0, mQueue.drain(mClock, Long.MAX_VALUE));
+
+        mQueue.setHeld(false);
+        mQueue.enqueue(new Runnable() {
+            @Override
+            public void run() {
+                mQueue.setHeld(true);
+            }
+        }, DeferredWorkQueue.PRIORITY_HIGH);
+        assertEquals(1, mQueue.drain(mClock, Long.MAX_VALUE));
+        assertEquals(1, mQueue.size());
+    }
+
+    @Test
+    public void manyTasksKeepOrderAcrossCancellations() {
+        List<DeferredWorkQueue.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            tasks.add(mQueue.enqueue(record(String.valueOf(i)), i % 3));
+        }
+        for (int i = 0; i < 40; i += 4) {
+            mQueue.cancel(tasks.get(i));
+        }
+
+        mQueue.drain(mClock, Long.MAX_VALUE);
+
+        List<String> expected = new ArrayList<>();
+        for (int priority = 2; priority >= 0; priority--) {
+            for (int i = 0; i < 40; i++) {
+                if (i % 3 == priority && i % 4 != 0) {
+                    expected.add(String.valueOf(i));
+                }
+            }
+        }
+        assertEquals(expected, mRan);
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mRan.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DetentSpecTest {
+
+    @Test
+    public void parse_mixedUnits() {
+        DetentSpec spec = DetentSpec.parse("50%, 0.25 | 100dp 300px 420", 2f);
+
+        assertEquals(5, spec.size());
+        assertEquals(500, spec.getWidth(0, 1000));
+        assertEquals(250, spec.getWidth(1, 1000));
+        assertEquals(200, spec.getWidth(2, 1000));
+        assertEquals(300, spec.getWidth(3, 1000));
+        assertEquals(420, spec.getWidth(4, 1000));
+    }
+
+    @Test
+    public void parse_empty() {
+        assertEquals(0, DetentSpec.parse("  ", 1f).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsGarbage() {
+        DetentSpec.parse("half", 1f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ofFractions_rejectsOutOfRange() {
+        DetentSpec.ofFractions(1.5f);
+    }
+}
@@ -0,0 +1,82 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameStatsTest {
+
+    private static final long FRAME = 16_666_667L;
+
+    private FrameStats mStats;
+
+    @Before
+    public void setUp() {
+        mStats = new FrameStats();
+    }
+
+    @Test
+    public void countsFramesIntervalsAndDistance() {
+        mStats.begin(FrameStats.PHASE_SETTLE, 0, 100, FRAME);
+        mStats.onFrame(FRAME, 90);
+        mStats.onFrame(2 * FRAME, 80);
+        mStats.onFrame(3 * FRAME, 85);
+        mStats.end(3 * FRAME + 1000, 85);
+
+        assertTrue(mStats.isRunning());
+        assertEquals(3, mStats.getFrameCount());
+        assertEquals(2, mStats.getIntervalCount());
+        assertEquals(FRAME, mStats.getIntervalNanos(0));
+        assertEquals(0, mStats.getDroppedFrames());
+        assertEquals(25, mStats.getDistance());
+        assertEquals(100, mStats.getStartPosition());
+        assertEquals(85, mStats.getEndPosition());
+        assertEquals(3 * FRAME + 1000, mStats.getDurationNanos());
+    }
+
+    @Test
+    public void coalescesReportsWithinOneFrame() {
+        mStats.begin(FrameStats.PHASE_DRAG, 0, 0, FRAME);
+        mStats.onFrame(FRAME, 10);
+        mStats.onFrame(FRAME + 1000, 20);
+        mStats.onFrame(2 * FRAME, 30);
+
+        assertEquals(2, mStats.getFrameCount());
+        assertEquals(30, mStats.getDistance());
+    }
+
+    @Test
+    public void countsDroppedFrames() {
+        mStats.begin(FrameStats.PHASE_DRAG, 0, 0, FRAME);
+        mStats.onFrame(FRAME, 0);
+        mStats.onFrame(4 * FRAME, 0);
+
+        assertEquals(2, mStats.getDroppedFrames());
+        assertEquals(3 * FRAME, mStats.getMaxIntervalNanos());
+    }
+
+    @Test
+    public void keepsCountingPastCapacity() {
+        mStats.begin(FrameStats.PHASE_DRAG, 0, 0, FRAME);
+        int frames = FrameStats.MAX_INTERVALS + 10;
+        for (int i = 1; i <= frames; i++) {
+            mStats.onFrame(i * FRAME, i);
+        }
+
+        assertEquals(frames, mStats.getFrameCount());
+        assertEquals(frames - 1, mStats.getIntervalCount());
+    }
+
+    @Test
+    public void finishStopsRecording() {
+        mStats.begin(FrameStats.PHASE_DRAG, 0, 0, FRAME);
+        mStats.finish();
+        mStats.onFrame(FRAME, 10);
+
+        assertFalse(mStats.isRunning());
+        assertEquals(0, mStats.getFrameCount());
+    }
+}
@@ -0,0 +1,113 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GestureRecorderTest {
+
+    @Test
+    public void roundTripsEveryEventType() {
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.setSize(1080, 1920, 720);
+        recorder.recordTouch(GestureRecorder.EVENT_INTERCEPT_TOUCH, 1_000_000L, 0, 1,
+                new int[]{3}, new float[]{900.5f}, new float[]{960f});
+        recorder.recordTouch(GestureRecorder.EVENT_TOUCH, 9_000_000L, 0x105, 2,
+                new int[]{3, 7}, new float[]{880f, 100f}, new float[]{961f, 200.25f});
+        recorder.recordNestedScrollStart(10_000_000L, 1);
+        recorder.recordNestedPreScroll(12_000_000L, -42, 5);
+        recorder.recordNestedPreFling(13_000_000L, -2500.5f, 30f);
+        recorder.recordNestedFling(13_500_000L, 1200f, 0f, true);
+        recorder.recordNestedScrollStop(14_000_000L);
+
+        GestureReader reader = new GestureReader(recorder.toByteArray());
+
+        assertEquals(1080, reader.getParentWidth());
+        assertEquals(1920, reader.getParentHeight());
+        assertEquals(720, reader.getSheetWidth());
+
+        assertTrue(reader.next());
+        assertEquals(GestureRecorder.EVENT_INTERCEPT_TOUCH, reader.getType());
+        assertEquals(0, reader.getTimeNanos());
+        assertEquals(1, reader.getPointerCount());
+        assertEquals(3, reader.getPointerId(0));
+        assertEquals(900.5f, reader.getX(0), 0f);
+
+        assertTrue(reader.next());
+        assertEquals(GestureRecorder.EVENT_TOUCH, reader.getType());
+        assertEquals(8_000_000L, reader.getTimeNanos());
+        assertEquals(0x105, reader.getAction());
+        assertEquals(2, reader.getPointerCount());
+        assertEquals(7, reader.getPointerId(1));
+        assertEquals(200.25f, reader.getY(1), 0f);
+
+        assertTrue(reader.next());
+        assertEquals(GestureRecorder.EVENT_NESTED_SCROLL_START, reader.getType());
+        assertEquals(1, reader.getAxes());
+
+        assertTrue(reader.next());
+        assertEquals(GestureRecorder.EVENT_NESTED_PRE_SCROLL, reader.getType());
+        assertEquals(-42, reader.getDx());
+        assertEquals(5, reader.getDy());
+
+        assertTrue(reader.next());
+        assertEquals(GestureRecorder.EVENT_NESTED_PRE_FLING, reader.getType());
+        assertEquals(-2500.5f, reader.getVelocityX(), 0f);
+
+        assertTrue(reader.next());
+        assertEquals(GestureRecorder.EVENT_NESTED_FLING, reader.getType());
+        assertEquals(1200f, reader.getVelocityX(), 0f);
+        assertTrue(reader.isConsumed());
+
+        assertTrue(reader.next());
+        assertEquals(GestureRecorder.EVENT_NESTED_SCROLL_STOP, reader.getType());
+        assertEquals(13_000_000L, reader.getTimeNanos());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void eventsAreCompact() {
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.setSize(1080, 1920, 720);
+        int header = recorder.toByteArray().length;
+        for (int i = 0; i < 100; i++) {
+            recorder.recordNestedPreScroll(i * 8_000_000L, i - 50, 0);
+        }
+
+        // Type, a two byte time delta and two one byte deltas, with no delay before the first
+        assertEquals(header + 100 * 5 - 1, recorder.toByteArray().length);
+        assertEquals(100, recorder.getEventCount());
+    }
+
+    @Test
+    public void clear_keepsSize() {
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.setSize(400, 800, 300);
+        recorder.recordNestedScrollStop(5);
+
+        recorder.clear();
+        GestureReader reader = new GestureReader(recorder.toByteArray());
+
+        assertEquals(400, reader.getParentWidth());
+        assertFalse(reader.next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedTrace_isRejected() {
+        GestureRecorder recorder = new GestureRecorder();
+        recorder.recordNestedPreFling(0, 1f, 2f);
+        byte[] bytes = recorder.toByteArray();
+        byte[] truncated = new byte[bytes.length - 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        GestureReader reader = new GestureReader(truncated);
+        reader.next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherData_isRejected() {
+        new GestureReader(new byte[]{1, 2, 3, 4, 5});
+    }
+}
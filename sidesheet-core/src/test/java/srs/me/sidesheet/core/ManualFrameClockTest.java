@@ -0,0 +1,73 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ManualFrameClockTest {
+
+    private final ManualFrameClock mClock = new ManualFrameClock();
+
+    @Test
+    public void runsEachCallbackOncePerPost() {
+        CountingCallback callback = new CountingCallback();
+        mClock.postFrameCallback(callback);
+        mClock.postFrameCallback(callback);
+
+        mClock.doFrame(10);
+        mClock.doFrame(10);
+
+        assertEquals(1, callback.mCount);
+        assertEquals(10, callback.mLastFrameTime);
+    }
+
+    @Test
+    public void repostFromCallbackRunsNextFrame() {
+        final CountingCallback callback = new CountingCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                super.doFrame(frameTimeNanos);
+                if (mCount < 3) {
+                    mClock.postFrameCallback(this);
+                }
+            }
+        };
+        mClock.postFrameCallback(callback);
+
+        assertEquals(3, mClock.runUntilIdle(5, 100));
+        assertEquals(15, callback.mLastFrameTime);
+        assertFalse(mClock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void removedCallbackDoesNotRun() {
+        final CountingCallback removed = new CountingCallback();
+        CountingCallback remover = new CountingCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                super.doFrame(frameTimeNanos);
+                mClock.removeFrameCallback(removed);
+            }
+        };
+        mClock.postFrameCallback(remover);
+        mClock.postFrameCallback(removed);
+
+        mClock.doFrame(1);
+
+        assertEquals(1, remover.mCount);
+        assertEquals(0, removed.mCount);
+    }
+
+    private static class CountingCallback implements FrameClock.Callback {
+
+        int mCount;
+        long mLastFrameTime;
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mCount++;
+            mLastFrameTime = frameTimeNanos;
+        }
+    }
+}
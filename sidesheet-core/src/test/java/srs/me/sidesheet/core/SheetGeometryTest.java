@@ -0,0 +1,173 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static srs.me.sidesheet.core.SheetStates.STATE_COLLAPSED;
+import static srs.me.sidesheet.core.SheetStates.STATE_DETENT;
+import static srs.me.sidesheet.core.SheetStates.STATE_EXPANDED;
+import static srs.me.sidesheet.core.SheetStates.STATE_HIDDEN;
+
+public class SheetGeometryTest {
+
+    private SheetGeometry mGeometry;
+
+    @Before
+    public void setUp() {
+        mGeometry = new SheetGeometry();
+        mGeometry.setPeekWidth(200);
+        mGeometry.layout(1000, 600, 200);
+    }
+
+    @Test
+    public void layout_computesOffsets() {
+        assertEquals(400, mGeometry.getMinOffset());
+        assertEquals(800, mGeometry.getMaxOffset());
+        assertEquals(1000, mGeometry.getHiddenOffset());
+    }
+
+    @Test
+    public void layout_peekWiderThanSheetCollapsesToExpanded() {
+        mGeometry.layout(1000, 600, 1000);
+        assertEquals(400, mGeometry.getMaxOffset());
+    }
+
+    @Test
+    public void layout_fromLeftMirrorsOffsets() {
+        mGeometry.layout(1000, 600, 200, true);
+
+        assertEquals(-1, mGeometry.getDirection());
+        assertEquals(400, mGeometry.getMinOffset());
+        assertEquals(800, mGeometry.getMaxOffset());
+        // Expanded flush with the left edge, collapsed showing its right 200px, hidden off-screen
+        assertEquals(0, mGeometry.toLeft(mGeometry.getMinOffset()));
+        assertEquals(-400, mGeometry.toLeft(mGeometry.getMaxOffset()));
+        assertEquals(-600, mGeometry.toLeft(mGeometry.getHiddenOffset()));
+        assertEquals(700, mGeometry.toOffset(mGeometry.toLeft(700)));
+        assertEquals(1000, mGeometry.toOffsetX(0));
+        assertEquals(990, mGeometry.toOffsetX(10));
+
+        mGeometry.layout(1000, 600, 200, false);
+        assertEquals(700, mGeometry.toLeft(700));
+        assertEquals(10, mGeometry.toOffsetX(10));
+    }
+
+    @Test
+    public void clampLeft_respectsHideable() {
+        assertEquals(400, mGeometry.clampLeft(0));
+        assertEquals(800, mGeometry.clampLeft(950));
+        mGeometry.setHideable(true);
+        assertEquals(950, mGeometry.clampLeft(950));
+        assertEquals(1000, mGeometry.clampLeft(5000));
+    }
+
+    @Test
+    public void resolveReleaseState() {
+        assertEquals(STATE_EXPANDED, mGeometry.resolveReleaseState(700, -10f));
+        assertEquals(STATE_COLLAPSED, mGeometry.resolveReleaseState(500, 10f));
+        assertEquals(STATE_EXPANDED, mGeometry.resolveReleaseState(550, 0f));
+        assertEquals(STATE_COLLAPSED, mGeometry.resolveReleaseState(650, 0f));
+    }
+
+    @Test
+    public void expandedOvershootVelocity() {
+        // 400px from expanded, the fling loses 2400px/s on the way
+        assertEquals(-600f, mGeometry.getExpandedOvershootVelocity(800, -3000f), 0.01f);
+        assertEquals(0f, mGeometry.getExpandedOvershootVelocity(800, -2000f), 0f);
+        assertEquals(0f, mGeometry.getExpandedOvershootVelocity(800, 3000f), 0f);
+        assertEquals(-3000f, mGeometry.getExpandedOvershootVelocity(400, -3000f), 0f);
+    }
+
+    @Test
+    public void resolveReleaseState_hidesFastFlings() {
+        mGeometry.setHideable(true);
+        assertEquals(STATE_HIDDEN, mGeometry.resolveReleaseState(850, 2000f));
+        assertEquals(STATE_COLLAPSED, mGeometry.resolveReleaseState(810, 100f));
+    }
+
+    @Test
+    public void resolveNestedScrollStopState_mirrorsRelease() {
+        assertEquals(STATE_EXPANDED, mGeometry.resolveNestedScrollStopState(700, 5, 0f));
+        assertEquals(STATE_COLLAPSED, mGeometry.resolveNestedScrollStopState(500, -5, 0f));
+        assertEquals(STATE_EXPANDED, mGeometry.resolveNestedScrollStopState(550, 0, 0f));
+    }
+
+    @Test
+    public void shouldHide() {
+        assertFalse(mGeometry.shouldHide(600, 5000f));
+        assertTrue(mGeometry.shouldHide(950, 0f));
+        mGeometry.setSkipCollapsed(true);
+        assertTrue(mGeometry.shouldHide(600, 0f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getOffsetForState_hiddenRequiresHideable() {
+        mGeometry.getOffsetForState(STATE_HIDDEN);
+    }
+
+    @Test
+    public void slideOffset() {
+        assertEquals(1f, mGeometry.getSlideOffset(400), 0f);
+        assertEquals(0f, mGeometry.getSlideOffset(800), 0f);
+        assertEquals(0.5f, mGeometry.getSlideOffset(600), 0f);
+        assertEquals(-1f, mGeometry.getSlideOffset(1000), 0f);
+    }
+
+    @Test
+    public void detents_areSortedAndClamped() {
+        mGeometry.setDetents(DetentSpec.ofWidths(300, 500, 900));
+
+        assertEquals(3, mGeometry.getDetentCount());
+        assertEquals(700, mGeometry.getDetentOffset(0));
+        assertEquals(500, mGeometry.getDetentOffset(1));
+        assertEquals(400, mGeometry.getDetentOffset(2));
+    }
+
+    @Test
+    public void detents_followParentWidth() {
+        mGeometry.setDetents(DetentSpec.ofFractions(0.5f));
+        mGeometry.layout(800, 600, 200);
+
+        assertEquals(400, mGeometry.getDetentOffset(0));
+    }
+
+    @Test
+    public void resolveReleaseState_picksNearestProjectedDetent() {
+        mGeometry.setDetents(DetentSpec.ofWidths(300, 500));
+
+        assertEquals(STATE_DETENT, mGeometry.resolveReleaseState(690, 0f));
+        assertEquals(0, mGeometry.getResolvedDetent());
+        assertEquals(STATE_DETENT, mGeometry.resolveReleaseState(690, -1000f));
+        assertEquals(1, mGeometry.getResolvedDetent());
+        assertEquals(STATE_EXPANDED, mGeometry.resolveReleaseState(690, -4000f));
+        assertEquals(STATE_COLLAPSED, mGeometry.resolveReleaseState(690, 1000f));
+        assertEquals(500, mGeometry.getOffsetForState(STATE_DETENT, 1));
+    }
+
+    @Test
+    public void resolveReleaseState_detentsStillHide() {
+        mGeometry.setDetents(DetentSpec.ofWidths(300));
+        mGeometry.setHideable(true);
+
+        assertEquals(STATE_HIDDEN, mGeometry.resolveReleaseState(850, 2000f));
+    }
+
+    @Test
+    public void resolveNestedScrollStopState_movesToNextDetent() {
+        mGeometry.setDetents(DetentSpec.ofWidths(300, 500));
+
+        assertEquals(STATE_DETENT, mGeometry.resolveNestedScrollStopState(750, 5, 0f));
+        assertEquals(0, mGeometry.getResolvedDetent());
+        assertEquals(STATE_DETENT, mGeometry.resolveNestedScrollStopState(650, -5, 0f));
+        assertEquals(0, mGeometry.getResolvedDetent());
+        assertEquals(STATE_EXPANDED, mGeometry.resolveNestedScrollStopState(450, 5, 0f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getOffsetForState_rejectsUnknownDetent() {
+        mGeometry.getOffsetForState(STATE_DETENT, 0);
+    }
+}
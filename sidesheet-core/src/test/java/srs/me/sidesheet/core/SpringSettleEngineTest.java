@@ -0,0 +1,88 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpringSettleEngineTest {
+
+    private static final long FRAME_60HZ = 16_666_667L;
+    private static final long FRAME_120HZ = 8_333_333L;
+
+    @Test
+    public void settlesAtTarget() {
+        SpringSettleEngine engine = new SpringSettleEngine();
+        engine.start(800, 400, 0);
+
+        int frames = 0;
+        while (engine.step(FRAME_60HZ)) {
+            frames++;
+            assertTrue("Spring did not settle", frames < 600);
+        }
+
+        assertFalse(engine.isRunning());
+        assertEquals(400f, engine.getPosition(), 0f);
+        assertEquals(0f, engine.getVelocity(), 0f);
+    }
+
+    @Test
+    public void sameTrajectoryAtAnyFrameRate() {
+        SpringSettleEngine at60 = new SpringSettleEngine(800f, 0.7f);
+        SpringSettleEngine at120 = new SpringSettleEngine(800f, 0.7f);
+        at60.start(800, 400, -3000);
+        at120.start(800, 400, -3000);
+
+        for (int i = 0; i < 20; i++) {
+            at60.step(FRAME_60HZ);
+            at120.step(FRAME_120HZ);
+            at120.step(FRAME_120HZ + 1);
+            assertEquals(at60.getPosition(), at120.getPosition(), 0.01f);
+        }
+    }
+
+    @Test
+    public void continuesReleaseVelocity() {
+        SpringSettleEngine engine = new SpringSettleEngine();
+        engine.start(600, 400, 4000);
+
+        engine.step(FRAME_60HZ);
+
+        // Released while moving away from the target, the sheet first keeps going
+        assertTrue(engine.getPosition() > 600);
+    }
+
+    @Test
+    public void overdampedSpringDoesNotOvershoot() {
+        SpringSettleEngine engine = new SpringSettleEngine(1500f, 2f);
+        engine.start(800, 400, 0);
+
+        while (engine.step(FRAME_60HZ)) {
+            assertTrue(engine.getPosition() >= 400);
+        }
+        assertEquals(400f, engine.getPosition(), 0f);
+    }
+
+    @Test
+    public void startAtRestFinishesImmediately() {
+        SpringSettleEngine engine = new SpringSettleEngine();
+        engine.start(400, 400, 0);
+
+        assertFalse(engine.isRunning());
+        assertFalse(engine.step(FRAME_60HZ));
+    }
+
+    @Test
+    public void cancelKeepsPosition() {
+        SpringSettleEngine engine = new SpringSettleEngine();
+        engine.start(800, 400, 0);
+        engine.step(FRAME_60HZ);
+        float position = engine.getPosition();
+
+        engine.cancel();
+
+        assertFalse(engine.step(FRAME_60HZ));
+        assertEquals(position, engine.getPosition(), 0f);
+    }
+}
@@ -0,0 +1,108 @@
+package srs.me.sidesheet.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class VelocityEstimatorTest {
+
+    private static final float MAX_VELOCITY = 8000;
+
+    @Test
+    public void constantVelocity_isExactForBothStrategies() {
+        for (int strategy : new int[]{VelocityEstimator.STRATEGY_LSQ2,
+                VelocityEstimator.STRATEGY_IMPULSE}) {
+            VelocityEstimator estimator = new VelocityEstimator();
+            estimator.setStrategy(strategy);
+            // -2 px per ms
+            feed(estimator, 0, 1000, 8, 12, 800, -16);
+
+            assertEquals(-2000f, estimator.getVelocity(0, MAX_VELOCITY), 0.5f);
+        }
+    }
+
+    @Test
+    public void lsq2_followsDeceleration() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        // x = 4t - 0.02t^2, so the slope at t = 80 is 0.8 px per ms
+        for (int t = 0; t <= 80; t += 8) {
+            estimator.addMovement(0, 1000 + t, 4 * t - 0.02f * t * t);
+        }
+
+        assertEquals(800f, estimator.getVelocity(0, MAX_VELOCITY), 1f);
+    }
+
+    @Test
+    public void pointers_areTrackedSeparately() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        for (int i = 0; i < 10; i++) {
+            estimator.addMovement(0, 1000 + i * 8, 500 + i * 8);
+            estimator.addMovement(3, 1000 + i * 8, 500 - i * 16);
+        }
+
+        assertEquals(1000f, estimator.getVelocity(0, MAX_VELOCITY), 0.5f);
+        assertEquals(-2000f, estimator.getVelocity(3, MAX_VELOCITY), 0.5f);
+        assertEquals(3, estimator.getLastPointerId());
+
+        estimator.clearPointer(3);
+        assertEquals(0f, estimator.getVelocity(3, MAX_VELOCITY), 0f);
+        assertEquals(1000f, estimator.getVelocity(0, MAX_VELOCITY), 0.5f);
+    }
+
+    @Test
+    public void pause_discardsOlderSamples() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        feed(estimator, 0, 1000, 8, 6, 800, -16);
+        // Held still, then one small move
+        estimator.addMovement(0, 1000 + 5 * 8 + VelocityEstimator.STOPPED_MILLIS + 1, 720);
+        estimator.addMovement(0, 1000 + 5 * 8 + VelocityEstimator.STOPPED_MILLIS + 9, 716);
+
+        assertEquals(-500f, estimator.getVelocity(0, MAX_VELOCITY), 0.5f);
+    }
+
+    @Test
+    public void velocity_isClamped() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        feed(estimator, 0, 1000, 8, 5, 0, 200);
+
+        assertEquals(MAX_VELOCITY, estimator.getVelocity(0, MAX_VELOCITY), 0f);
+    }
+
+    @Test
+    public void ringBuffer_keepsNewestSamples() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        feed(estimator, 0, 1000, 4, VelocityEstimator.HISTORY_SIZE * 3, 0, 4);
+
+        assertEquals(1000f, estimator.getVelocity(0, MAX_VELOCITY), 0.5f);
+    }
+
+    @Test
+    public void duplicateTimestamp_replacesSample() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        feed(estimator, 0, 1000, 8, 4, 0, 8);
+        // The same event reported twice, as intercept and touch handlers both see it
+        estimator.addMovement(0, 1000 + 3 * 8, 24);
+
+        assertEquals(1000f, estimator.getVelocity(0, MAX_VELOCITY), 0.5f);
+    }
+
+    @Test
+    public void clear_forgetsEverything() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        feed(estimator, 0, 1000, 8, 5, 0, 8);
+
+        estimator.clear();
+
+        assertEquals(0f, estimator.getVelocity(0, MAX_VELOCITY), 0f);
+        assertEquals(-1, estimator.getLastPointerId());
+        estimator.addMovement(0, 2000, 10);
+        assertEquals(0f, estimator.getVelocity(0, MAX_VELOCITY), 0f);
+    }
+
+    private static void feed(VelocityEstimator estimator, int pointerId, long startMillis,
+                             long stepMillis, int count, float startX, float stepX) {
+        for (int i = 0; i < count; i++) {
+            estimator.addMovement(pointerId, startMillis + i * stepMillis, startX + i * stepX);
+        }
+    }
+}